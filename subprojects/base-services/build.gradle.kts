@@ -54,4 +54,4 @@ classycle {
     excludePatterns.add("org/gradle/util/GradleVersion**")
 }
 
-jmh.includes.set(listOf("HashingAlgorithmsBenchmark"))
+jmh.includes.set(listOf("HashingAlgorithmsBenchmark", "FileHashingBenchmark"))
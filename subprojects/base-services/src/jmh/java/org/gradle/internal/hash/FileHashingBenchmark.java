@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Compares hashing file contents through a stream, through a direct buffer and through a memory-mapped buffer.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class FileHashingBenchmark {
+
+    @Param({"4096", "1048576", "16777216", "268435456"})
+    long fileSize;
+
+    @Param({"stream", "direct", "mmap"})
+    String strategy;
+
+    @Param({"md5", "murmur3"})
+    String hashFunction;
+
+    private File file;
+    private DefaultStreamHasher streamHasher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("file-hashing", ".bin");
+        byte[] chunk = new byte[64 * 1024];
+        Random random = new Random(1234L);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            for (long written = 0; written < fileSize; written += chunk.length) {
+                random.nextBytes(chunk);
+                channel.write(ByteBuffer.wrap(chunk, 0, (int) Math.min(chunk.length, fileSize - written)));
+            }
+        }
+        HashFunction function = hashFunction.equals("md5") ? Hashing.md5() : Hashing.murmur3();
+        streamHasher = new DefaultStreamHasher(function, strategy.equals("mmap"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file.toPath());
+    }
+
+    @Benchmark
+    public HashCode hash() throws IOException {
+        if (strategy.equals("stream")) {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                return streamHasher.hash(inputStream);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return streamHasher.hash(channel);
+        }
+    }
+}
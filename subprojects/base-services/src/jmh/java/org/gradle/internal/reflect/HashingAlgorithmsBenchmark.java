@@ -23,6 +23,7 @@
 import org.bouncycastle.jcajce.provider.digest.Blake2b;
 import org.bouncycastle.jcajce.provider.digest.MD5;
 import org.bouncycastle.jcajce.provider.digest.SHA1;
+import org.gradle.internal.hash.PrimitiveHasher;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
@@ -62,6 +63,8 @@ private static MessageDigest getDigest(String name) {
         .put("sha1.bc", new MessageDigestHashProcessorFactory(new SHA1.Digest()))
         .put("blake2b.bc", new MessageDigestHashProcessorFactory(new Blake2b.Blake2b160()))
         .put("murmur3.guava", new GuavaProcessorFactory(Hashing.murmur3_128()))
+        .put("md5.gradle", new GradleProcessorFactory(org.gradle.internal.hash.Hashing.md5()))
+        .put("murmur3.gradle", new GradleProcessorFactory(org.gradle.internal.hash.Hashing.murmur3()))
         .build();
 
     Random random = new Random(1234L);
@@ -70,7 +73,7 @@ private static MessageDigest getDigest(String name) {
     int hashSize;
 
     // @Param({"md5.java", "md5.bc", "sha1.java", "sha1.bc", "blake2b.bc"})
-    @Param({"md5.java", "murmur3.guava"})
+    @Param({"md5.java", "murmur3.guava", "md5.gradle", "murmur3.gradle"})
     String type;
 
     byte[] input;
@@ -155,4 +158,31 @@ public void process(byte[] input, Blackhole blackhole) {
             blackhole.consume(hasher.hash());
         }
     }
+
+    private static class GradleProcessorFactory implements HashProcessorFactory {
+        private final org.gradle.internal.hash.HashFunction hashFunction;
+
+        public GradleProcessorFactory(org.gradle.internal.hash.HashFunction hashFunction) {
+            this.hashFunction = hashFunction;
+        }
+
+        @Override
+        public HashProcessor create() {
+            return new GradleProcessor(hashFunction.newPrimitiveHasher());
+        }
+    }
+
+    private static class GradleProcessor implements HashProcessor {
+        private final PrimitiveHasher hasher;
+
+        public GradleProcessor(PrimitiveHasher hasher) {
+            this.hasher = hasher;
+        }
+
+        @Override
+        public void process(byte[] input, Blackhole blackhole) {
+            hasher.putBytes(input);
+            blackhole.consume(hasher.hash());
+        }
+    }
 }
@@ -24,6 +24,7 @@
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.http.HttpBuildCache;
 import org.gradle.caching.http.HttpBuildCacheCredentials;
+import org.gradle.concurrent.ParallelismConfiguration;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
 import org.gradle.internal.deprecation.Documentation;
 import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
@@ -45,16 +46,19 @@
 public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFactory<HttpBuildCache> {
 
     private static final int MAX_REDIRECTS = Integer.getInteger("org.gradle.cache.http.max-redirects", 10);
+    private static final String MAX_CONNECTIONS_PROPERTY = "org.gradle.cache.http.max-connections";
 
     private final SslContextFactory sslContextFactory;
     private final HttpBuildCacheRequestCustomizer requestCustomizer;
     private final HttpClientHelper.Factory httpClientHelperFactory;
+    private final ParallelismConfiguration parallelismConfiguration;
 
     @Inject
-    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory, HttpBuildCacheRequestCustomizer requestCustomizer, HttpClientHelper.Factory httpClientHelperFactory) {
+    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory, HttpBuildCacheRequestCustomizer requestCustomizer, HttpClientHelper.Factory httpClientHelperFactory, ParallelismConfiguration parallelismConfiguration) {
         this.sslContextFactory = sslContextFactory;
         this.requestCustomizer = requestCustomizer;
         this.httpClientHelperFactory = httpClientHelperFactory;
+        this.parallelismConfiguration = parallelismConfiguration;
     }
 
     @Override
@@ -89,6 +93,7 @@ public BuildCacheService createBuildCacheService(HttpBuildCache configuration, D
         DefaultHttpSettings.Builder builder = DefaultHttpSettings.builder()
             .withAuthenticationSettings(authentications)
             .maxRedirects(MAX_REDIRECTS)
+            .maxConnections(maxConnections())
             .withRedirectMethodHandlingStrategy(HttpSettings.RedirectMethodHandlingStrategy.ALLOW_FOLLOW_FOR_MUTATIONS)
             .withRedirectVerifier(redirectVerifier);
         if (allowUntrustedServer) {
@@ -108,6 +113,14 @@ public BuildCacheService createBuildCacheService(HttpBuildCache configuration, D
         return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl, requestCustomizer, useExpectContinue);
     }
 
+    /**
+     * Every worker can load from or store to the cache at the same time, so make sure none of them has to wait for a pooled connection.
+     */
+    private int maxConnections() {
+        int maxWorkerCount = parallelismConfiguration.getMaxWorkerCount();
+        return Integer.getInteger(MAX_CONNECTIONS_PROPERTY, Math.max(DefaultHttpSettings.DEFAULT_MAX_CONNECTIONS, maxWorkerCount));
+    }
+
     private HttpRedirectVerifier createRedirectVerifier(URI url, boolean allowInsecureProtocol) {
         return HttpRedirectVerifierFactory
             .create(
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression applied to packed build cache entries.
+ *
+ * Every format starts with a distinct magic header, which allows loading an entry without knowing which compression was used to store it.
+ */
+public enum BuildCacheEntryCompression {
+    /**
+     * Good compression ratio at a relatively high CPU cost. This is the default.
+     */
+    GZIP {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output);
+        }
+
+        @Override
+        InputStream decompressWithHeader(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+
+        @Override
+        boolean matchesHeader(byte[] header) {
+            return header[0] == (byte) GZIPInputStream.GZIP_MAGIC && header[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+        }
+    },
+
+    /**
+     * Lower compression ratio than {@link #GZIP}, but considerably faster to both compress and decompress.
+     */
+    LZ4 {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new Lz4BlockOutputStream(output);
+        }
+
+        @Override
+        InputStream decompressWithHeader(InputStream input) throws IOException {
+            return new Lz4BlockInputStream(input);
+        }
+
+        @Override
+        boolean matchesHeader(byte[] header) {
+            return header[0] == Lz4BlockOutputStream.MAGIC[0] && header[1] == Lz4BlockOutputStream.MAGIC[1];
+        }
+    };
+
+    private static final int HEADER_LENGTH = 2;
+
+    /**
+     * Wraps the given stream so that everything written to it is compressed.
+     * Closing the returned stream closes the given stream.
+     */
+    public abstract OutputStream compress(OutputStream output) throws IOException;
+
+    abstract InputStream decompressWithHeader(InputStream input) throws IOException;
+
+    abstract boolean matchesHeader(byte[] header);
+
+    /**
+     * Wraps the given stream to decompress its contents, detecting the compression from the header of the stream.
+     */
+    public static InputStream decompress(InputStream input) throws IOException {
+        PushbackInputStream pushbackInput = new PushbackInputStream(input, HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int read = 0;
+        while (read < HEADER_LENGTH) {
+            int count = pushbackInput.read(header, read, HEADER_LENGTH - read);
+            if (count < 0) {
+                throw new EOFException("Unexpected end of build cache entry");
+            }
+            read += count;
+        }
+        pushbackInput.unread(header);
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression.matchesHeader(header)) {
+                return compression.decompressWithHeader(pushbackInput);
+            }
+        }
+        throw new IOException(String.format("Unknown build cache entry format, header: %s", Arrays.toString(header)));
+    }
+
+    /**
+     * Looks up a compression by its case-insensitive name.
+     */
+    public static BuildCacheEntryCompression forName(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown build cache entry compression '%s', supported values are: %s", name, Arrays.toString(values())), e);
+        }
+    }
+}
@@ -26,27 +26,34 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.function.Supplier;
 
-public class GZipBuildCacheEntryPacker implements BuildCacheEntryPacker {
+/**
+ * Compresses entries with the currently configured {@link BuildCacheEntryCompression}.
+ *
+ * When unpacking, the compression is detected from the header of the entry,
+ * so that entries written with a different compression can still be loaded.
+ */
+public class CompressingBuildCacheEntryPacker implements BuildCacheEntryPacker {
     private final BuildCacheEntryPacker delegate;
+    private final Supplier<BuildCacheEntryCompression> compression;
 
-    public GZipBuildCacheEntryPacker(BuildCacheEntryPacker delegate) {
+    public CompressingBuildCacheEntryPacker(BuildCacheEntryPacker delegate, Supplier<BuildCacheEntryCompression> compression) {
         this.delegate = delegate;
+        this.compression = compression;
     }
 
     @Override
     public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
-        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
-            return delegate.pack(entity, snapshots, gzipOutput, writeOrigin);
+        try (OutputStream compressedOutput = compression.get().compress(output)) {
+            return delegate.pack(entity, snapshots, compressedOutput, writeOrigin);
         }
     }
 
     @Override
     public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
-        try (GZIPInputStream gzipInput = new GZIPInputStream(input)) {
-            return delegate.unpack(entity, gzipInput, readOrigin);
+        try (InputStream decompressedInput = BuildCacheEntryCompression.decompress(input)) {
+            return delegate.unpack(entity, decompressedInput, readOrigin);
         }
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pure Java implementation of the LZ4 block format.
+ *
+ * The compressor uses a single-probe hash table, trading some compression ratio for speed.
+ * The decompressor validates all lengths and offsets, so corrupt input results in an {@link IOException} instead of an out-of-bounds access.
+ *
+ * @see <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4 block format description</a>
+ */
+final class Lz4BlockCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int RUN_MASK = 0x0F;
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_TRIGGER = 6;
+
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code src[srcOff, srcOff + srcLen)} into {@code dest} starting at {@code destOff}.
+     * The destination must have room for at least {@link #maxCompressedLength(int)} bytes.
+     *
+     * @return the number of bytes written to {@code dest}
+     */
+    int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+        int srcEnd = srcOff + srcLen;
+        int anchor = srcOff;
+        int dp = destOff;
+
+        if (srcLen > MATCH_FIND_LIMIT) {
+            Arrays.fill(hashTable, -1);
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int findLimit = srcEnd - MATCH_FIND_LIMIT;
+            int sp = srcOff;
+            int misses = 0;
+            while (sp < findLimit) {
+                int sequence = readInt(src, sp);
+                int hash = hash(sequence);
+                int ref = hashTable[hash];
+                hashTable[hash] = sp;
+                if (ref < 0 || sp - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    // Speed up skipping over incompressible data
+                    sp += 1 + (misses++ >>> SKIP_TRIGGER);
+                    continue;
+                }
+                misses = 0;
+
+                while (sp > anchor && ref > srcOff && src[sp - 1] == src[ref - 1]) {
+                    sp--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (sp + matchLength < matchLimit && src[sp + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                dp = writeSequence(src, anchor, sp - anchor, sp - ref, matchLength, dest, dp);
+                sp += matchLength;
+                anchor = sp;
+            }
+        }
+
+        int literalLength = srcEnd - anchor;
+        int tokenPos = dp++;
+        dp = writeLiterals(src, anchor, literalLength, dest, dp);
+        dest[tokenPos] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+        return dp - destOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength, byte[] dest, int dp) {
+        int tokenPos = dp++;
+        dp = writeLiterals(src, literalStart, literalLength, dest, dp);
+        dest[dp++] = (byte) offset;
+        dest[dp++] = (byte) (offset >>> 8);
+        int extraMatchLength = matchLength - MIN_MATCH;
+        if (extraMatchLength >= RUN_MASK) {
+            dp = writeLengthExtension(extraMatchLength - RUN_MASK, dest, dp);
+        }
+        dest[tokenPos] = (byte) ((Math.min(literalLength, RUN_MASK) << 4) | Math.min(extraMatchLength, RUN_MASK));
+        return dp;
+    }
+
+    private static int writeLiterals(byte[] src, int literalStart, int literalLength, byte[] dest, int dp) {
+        if (literalLength >= RUN_MASK) {
+            dp = writeLengthExtension(literalLength - RUN_MASK, dest, dp);
+        }
+        System.arraycopy(src, literalStart, dest, dp, literalLength);
+        return dp + literalLength;
+    }
+
+    private static int writeLengthExtension(int remaining, byte[] dest, int dp) {
+        while (remaining >= 0xFF) {
+            dest[dp++] = (byte) 0xFF;
+            remaining -= 0xFF;
+        }
+        dest[dp++] = (byte) remaining;
+        return dp;
+    }
+
+    /**
+     * Decompresses {@code src[srcOff, srcOff + srcLen)} into {@code dest} starting at {@code destOff}, writing at most {@code destLen} bytes.
+     *
+     * @return the number of bytes written to {@code dest}
+     */
+    static int decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) throws IOException {
+        int sp = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int dp = destOff;
+        int destEnd = destOff + destLen;
+
+        while (true) {
+            if (sp >= srcEnd) {
+                throw corrupt();
+            }
+            int token = src[sp++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw corrupt();
+                    }
+                    b = src[sp++] & 0xFF;
+                    literalLength += b;
+                } while (b == 0xFF);
+            }
+            if (literalLength > srcEnd - sp || literalLength > destEnd - dp) {
+                throw corrupt();
+            }
+            System.arraycopy(src, sp, dest, dp, literalLength);
+            sp += literalLength;
+            dp += literalLength;
+
+            if (sp == srcEnd) {
+                // The last sequence contains only literals
+                return dp - destOff;
+            }
+
+            if (srcEnd - sp < 2) {
+                throw corrupt();
+            }
+            int offset = (src[sp] & 0xFF) | ((src[sp + 1] & 0xFF) << 8);
+            sp += 2;
+            int matchStart = dp - offset;
+            if (offset == 0 || matchStart < destOff) {
+                throw corrupt();
+            }
+
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw corrupt();
+                    }
+                    b = src[sp++] & 0xFF;
+                    matchLength += b;
+                } while (b == 0xFF);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > destEnd - dp) {
+                throw corrupt();
+            }
+            if (offset >= matchLength) {
+                System.arraycopy(dest, matchStart, dest, dp, matchLength);
+            } else {
+                // Overlapping match, copy byte by byte to replicate the pattern
+                for (int i = 0; i < matchLength; i++) {
+                    dest[dp + i] = dest[matchStart + i];
+                }
+            }
+            dp += matchLength;
+        }
+    }
+
+    private static int readInt(byte[] buffer, int pos) {
+        return (buffer[pos] & 0xFF)
+            | (buffer[pos + 1] & 0xFF) << 8
+            | (buffer[pos + 2] & 0xFF) << 16
+            | (buffer[pos + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt LZ4 compressed data");
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Reads data written by {@link Lz4BlockOutputStream}.
+ */
+public class Lz4BlockInputStream extends InputStream {
+    private final DataInputStream input;
+    private final CRC32 checksum = new CRC32();
+    private final byte[] buffer = new byte[Lz4BlockOutputStream.BLOCK_SIZE];
+    private byte[] compressed = new byte[0];
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    public Lz4BlockInputStream(InputStream input) throws IOException {
+        this.input = new DataInputStream(input);
+        byte[] magic = new byte[Lz4BlockOutputStream.MAGIC.length];
+        this.input.readFully(magic);
+        if (!Arrays.equals(magic, Lz4BlockOutputStream.MAGIC)) {
+            throw new IOException("Not an LZ4 compressed stream");
+        }
+        int version = this.input.readUnsignedByte();
+        if (version != Lz4BlockOutputStream.FORMAT_VERSION) {
+            throw new IOException("Unsupported LZ4 stream format version " + version);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position == limit) {
+            if (finished) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int blockType = input.readUnsignedByte();
+        if (blockType == Lz4BlockOutputStream.END_OF_STREAM) {
+            finished = true;
+            return;
+        }
+        int length = input.readInt();
+        int expectedChecksum = input.readInt();
+        if (length < 0 || length > buffer.length) {
+            throw new IOException("Invalid LZ4 block length " + length);
+        }
+        switch (blockType) {
+            case Lz4BlockOutputStream.COMPRESSED_BLOCK:
+                int compressedLength = input.readInt();
+                if (compressedLength < 0 || compressedLength > Lz4BlockCodec.maxCompressedLength(buffer.length)) {
+                    throw new IOException("Invalid LZ4 compressed block length " + compressedLength);
+                }
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[Lz4BlockCodec.maxCompressedLength(buffer.length)];
+                }
+                input.readFully(compressed, 0, compressedLength);
+                if (Lz4BlockCodec.decompress(compressed, 0, compressedLength, buffer, 0, length) != length) {
+                    throw new IOException("Corrupt LZ4 compressed data");
+                }
+                break;
+            case Lz4BlockOutputStream.STORED_BLOCK:
+                input.readFully(buffer, 0, length);
+                break;
+            default:
+                throw new IOException("Unknown LZ4 block type " + blockType);
+        }
+        checksum.reset();
+        checksum.update(buffer, 0, length);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IOException("Checksum mismatch in LZ4 compressed data");
+        }
+        position = 0;
+        limit = length;
+    }
+}
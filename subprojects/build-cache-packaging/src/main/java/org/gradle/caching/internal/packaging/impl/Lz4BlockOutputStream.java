@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Writes data as a sequence of independently LZ4-compressed blocks.
+ *
+ * The stream starts with {@link #MAGIC} followed by the format version.
+ * Each block consists of a block type, the uncompressed length, the CRC32 checksum of the uncompressed data and, for compressed blocks, the compressed length, all followed by the block data.
+ * Blocks that do not compress are stored as-is. The stream ends with an {@link #END_OF_STREAM} block type.
+ */
+public class Lz4BlockOutputStream extends OutputStream {
+    static final byte[] MAGIC = {'G', 'L', 'Z', '4'};
+    static final int FORMAT_VERSION = 1;
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    static final int END_OF_STREAM = 0;
+    static final int COMPRESSED_BLOCK = 1;
+    static final int STORED_BLOCK = 2;
+
+    private final OutputStream output;
+    private final Lz4BlockCodec codec = new Lz4BlockCodec();
+    private final CRC32 checksum = new CRC32();
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(BLOCK_SIZE)];
+    private final byte[] blockHeader = new byte[13];
+    private int position;
+    private boolean closed;
+
+    public Lz4BlockOutputStream(OutputStream output) throws IOException {
+        this.output = output;
+        output.write(MAGIC);
+        output.write(FORMAT_VERSION);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == BLOCK_SIZE) {
+            writeBlock();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (position == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int count = Math.min(len, BLOCK_SIZE - position);
+            System.arraycopy(b, off, buffer, position, count);
+            position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (position > 0) {
+            writeBlock();
+        }
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (position > 0) {
+                writeBlock();
+            }
+            output.write(END_OF_STREAM);
+            output.flush();
+        } finally {
+            closed = true;
+            output.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        checksum.reset();
+        checksum.update(buffer, 0, position);
+        int compressedLength = codec.compress(buffer, 0, position, compressed, 0);
+        if (compressedLength < position) {
+            blockHeader[0] = COMPRESSED_BLOCK;
+            writeInt(position, 1);
+            writeInt((int) checksum.getValue(), 5);
+            writeInt(compressedLength, 9);
+            output.write(blockHeader, 0, 13);
+            output.write(compressed, 0, compressedLength);
+        } else {
+            blockHeader[0] = STORED_BLOCK;
+            writeInt(position, 1);
+            writeInt((int) checksum.getValue(), 5);
+            output.write(blockHeader, 0, 9);
+            output.write(buffer, 0, position);
+        }
+        position = 0;
+    }
+
+    private void writeInt(int value, int offset) {
+        blockHeader[offset] = (byte) (value >>> 24);
+        blockHeader[offset + 1] = (byte) (value >>> 16);
+        blockHeader[offset + 2] = (byte) (value >>> 8);
+        blockHeader[offset + 3] = (byte) value;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl
+
+import spock.lang.Specification
+
+class BuildCacheEntryCompressionTest extends Specification {
+
+    def "can round-trip #description data with #compression"() {
+        when:
+        def compressed = new ByteArrayOutputStream()
+        compression.compress(compressed).withCloseable { it.write(data) }
+        def decompressed = BuildCacheEntryCompression.decompress(new ByteArrayInputStream(compressed.toByteArray())).bytes
+
+        then:
+        decompressed == data
+
+        where:
+        [compression, description, data] << BuildCacheEntryCompression.values().collectMany { compression ->
+            [
+                [compression, "empty", new byte[0]],
+                [compression, "short", "Hello".bytes],
+                [compression, "random", randomBytes(300_000)],
+                [compression, "repetitive", ("The quick brown fox jumps over the lazy dog " * 10_000).bytes],
+                [compression, "zero", new byte[200_000]],
+            ]
+        }
+    }
+
+    def "LZ4 compresses repetitive data"() {
+        def data = ("The quick brown fox jumps over the lazy dog " * 10_000).bytes
+
+        when:
+        def compressed = new ByteArrayOutputStream()
+        BuildCacheEntryCompression.LZ4.compress(compressed).withCloseable { it.write(data) }
+
+        then:
+        compressed.size() < data.length / 10
+    }
+
+    def "fails to decompress unknown format"() {
+        when:
+        BuildCacheEntryCompression.decompress(new ByteArrayInputStream("unknown".bytes))
+
+        then:
+        def ex = thrown(IOException)
+        ex.message.startsWith("Unknown build cache entry format")
+    }
+
+    def "detects corrupt LZ4 entry"() {
+        def data = ("The quick brown fox jumps over the lazy dog " * 10_000).bytes
+        def compressed = new ByteArrayOutputStream()
+        BuildCacheEntryCompression.LZ4.compress(compressed).withCloseable { it.write(data) }
+        def corrupted = compressed.toByteArray()
+        corrupted[corrupted.length - 100] = (byte) (corrupted[corrupted.length - 100] ^ 0x55)
+
+        when:
+        BuildCacheEntryCompression.decompress(new ByteArrayInputStream(corrupted)).bytes
+
+        then:
+        thrown(IOException)
+    }
+
+    def "can look up compression by name"() {
+        expect:
+        BuildCacheEntryCompression.forName("lz4") == BuildCacheEntryCompression.LZ4
+        BuildCacheEntryCompression.forName("GZip") == BuildCacheEntryCompression.GZIP
+
+        when:
+        BuildCacheEntryCompression.forName("brotli")
+
+        then:
+        def ex = thrown(IllegalArgumentException)
+        ex.message == "Unknown build cache entry compression 'brotli', supported values are: [GZIP, LZ4]"
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length]
+        new Random(1234L).nextBytes(bytes)
+        return bytes
+    }
+}
@@ -25,6 +25,9 @@ dependencies {
     implementation(libs.inject)
 
     jmhImplementation(platform(project(":distributions-dependencies")))
+    jmhImplementation(project(":messaging"))
+    jmhImplementation(project(":core"))
+    jmhImplementation(testFixtures(project(":core")))
     jmhImplementation(libs.ant)
     jmhImplementation(libs.commonsCompress)
     jmhImplementation(libs.aircompressor)
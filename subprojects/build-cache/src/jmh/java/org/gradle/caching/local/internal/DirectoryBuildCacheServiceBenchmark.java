@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.file.temp.DefaultTemporaryFileProvider;
+import org.gradle.cache.CacheBuilder;
+import org.gradle.cache.CleanupAction;
+import org.gradle.cache.internal.DefaultCacheFactory;
+import org.gradle.cache.internal.DefaultFileLockManagerTestHelper;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.progress.NoOpProgressLoggerFactory;
+import org.gradle.internal.resource.local.DefaultPathKeyFileStore;
+import org.gradle.util.TestUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.gradle.cache.FileLockManager.LockMode.OnDemand;
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Stress test for concurrent loads and stores against the same local build cache directory.
+ *
+ * The cache is opened the same way as the directory build cache, with an on-demand cross-process lock
+ * and the file store used in builds. Loads either take that lock, as they did before, or read without it.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class DirectoryBuildCacheServiceBenchmark {
+    @Param({"1000"})
+    int entryCount;
+
+    @Param({"65536"})
+    int entrySize;
+
+    @Param({"false", "true"})
+    boolean lockFreeLoads;
+
+    File cacheDir;
+    DefaultExecutorFactory executorFactory;
+    DefaultCacheFactory cacheFactory;
+    DirectoryBuildCacheService service;
+    BuildCacheKey[] keys;
+    byte[] content;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        cacheDir = Files.createTempDirectory("directory-build-cache-benchmark").toFile();
+        executorFactory = new DefaultExecutorFactory();
+        cacheFactory = new DefaultCacheFactory(DefaultFileLockManagerTestHelper.createDefaultFileLockManager(), executorFactory, new NoOpProgressLoggerFactory());
+        service = new DirectoryBuildCacheService(
+            new DefaultPathKeyFileStore(TestUtil.getChecksumService(), cacheDir),
+            cacheFactory.open(cacheDir, "Build cache", Collections.emptyMap(), CacheBuilder.LockTarget.DefaultTarget, mode(OnDemand), null, CleanupAction.NO_OP),
+            new DefaultBuildCacheTempFileStore(new DefaultTemporaryFileProvider(() -> cacheDir)),
+            file -> {},
+            ".failed",
+            lockFreeLoads
+        );
+        content = new byte[entrySize];
+        new Random(1234L).nextBytes(content);
+        keys = new BuildCacheKey[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            keys[i] = new SimpleBuildCacheKey(String.format("%032x", i));
+            // Only populate half of the keys, so that loads see a mix of hits and misses
+            if (i % 2 == 0) {
+                store(keys[i]);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        service.close();
+        cacheFactory.close();
+        executorFactory.stop();
+        FileUtils.forceDelete(cacheDir);
+    }
+
+    @Benchmark
+    @Group("loadAndStore")
+    @GroupThreads(12)
+    public void load(Blackhole blackhole) {
+        BuildCacheKey key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        service.loadLocally(key, file -> blackhole.consume(file.length()));
+    }
+
+    @Benchmark
+    @Group("loadAndStore")
+    @GroupThreads(4)
+    public void store() {
+        store(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+    }
+
+    private void store(BuildCacheKey key) {
+        service.store(key, new BuildCacheEntryWriter() {
+            @Override
+            public void writeTo(OutputStream output) throws IOException {
+                output.write(content);
+            }
+
+            @Override
+            public long getSize() {
+                return content.length;
+            }
+        });
+    }
+
+    private static class SimpleBuildCacheKey implements BuildCacheKey {
+        private final String hashCode;
+
+        SimpleBuildCacheKey(String hashCode) {
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public String getHashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return hashCode.getBytes();
+        }
+
+        @Override
+        public String getDisplayName() {
+            return hashCode;
+        }
+    }
+}
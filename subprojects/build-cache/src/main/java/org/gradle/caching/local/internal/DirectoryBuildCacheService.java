@@ -16,7 +16,9 @@
 
 package org.gradle.caching.local.internal;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Striped;
 import org.gradle.api.Action;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.PersistentCache;
@@ -27,6 +29,7 @@
 import org.gradle.caching.BuildCacheService;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.file.FileAccessTracker;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.util.internal.GFileUtils;
@@ -36,24 +39,44 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Build cache service backed by a directory, with one file per entry.
+ *
+ * <p>Entries are published by moving completely written temporary files into place,
+ * so loading does not need the cross-process lock: a reader either sees a complete entry or none at all.
+ * Within the process, loads and stores of the same key are coordinated by lock stripes,
+ * so that operations on unrelated keys do not contend with each other.</p>
+ *
+ * <p>Loads still take the cross-process lock when the entry has an in-progress marker, so that the file store can clean up
+ * markers left behind by a crashed process, and on Windows, where an open entry cannot be replaced by a store in another process.</p>
+ */
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
 
+    private static final int LOCK_STRIPES = 64;
+
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean lockFreeLoads;
+    private final Striped<ReadWriteLock> locks = Striped.readWriteLock(LOCK_STRIPES);
 
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(fileStore, persistentCache, tempFileStore, fileAccessTracker, failedFileSuffix, !OperatingSystem.current().isWindows());
+    }
+
+    @VisibleForTesting
+    DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, String failedFileSuffix, boolean lockFreeLoads) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.fileAccessTracker = fileAccessTracker;
         this.failedFileSuffix = failedFileSuffix;
+        this.lockFreeLoads = lockFreeLoads;
     }
 
     private static class LoadAction implements Action<File> {
@@ -90,18 +113,29 @@ public boolean load(final BuildCacheKey key, final BuildCacheEntryReader reader)
 
     @Override
     public void loadLocally(final BuildCacheKey key, final Action<? super File> reader) {
+        File file = new File(persistentCache.getBaseDir(), key.getHashCode());
+        if (lockFreeLoads && !isInProgress(file)) {
+            loadWithoutFileLock(key, file, reader);
+        } else {
+            loadWithFileLock(key, reader);
+        }
+    }
+
+    private void loadWithFileLock(BuildCacheKey key, Action<? super File> reader) {
         // We need to lock other processes out here because garbage collection can be under way in another process
         persistentCache.withFileLock(() -> {
-            lock.readLock().lock();
+            Lock readLock = locks.get(key.getHashCode()).readLock();
+            readLock.lock();
             try {
                 loadInsideLock(key, reader);
             } finally {
-                lock.readLock().unlock();
+                readLock.unlock();
             }
         });
     }
 
     private void loadInsideLock(BuildCacheKey key, Action<? super File> reader) {
+        // The file store cleans up in-progress files, which no other process can be writing while we hold the cross-process lock
         LocallyAvailableResource resource = fileStore.get(key.getHashCode());
         if (resource == null) {
             return;
@@ -113,17 +147,70 @@ private void loadInsideLock(BuildCacheKey key, Action<? super File> reader) {
         try {
             reader.execute(file);
         } catch (Exception e) {
-            // Try to move the file out of the way in case its permanently corrupt
-            // Don't delete, so that it can be potentially used for debugging
-            File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
-            GFileUtils.deleteQuietly(failedFile);
-            //noinspection ResultOfMethodCallIgnored
-            file.renameTo(failedFile);
-
+            moveAside(file);
             throw UncheckedException.throwAsUncheckedException(e);
         }
     }
 
+    private void loadWithoutFileLock(BuildCacheKey key, File file, Action<? super File> reader) {
+        Lock readLock = locks.get(key.getHashCode()).readLock();
+        long lastModified;
+        Exception failure;
+        readLock.lock();
+        try {
+            lastModified = file.lastModified();
+            if (lastModified == 0) {
+                // No such entry
+                return;
+            }
+            fileAccessTracker.markAccessed(file);
+            try {
+                reader.execute(file);
+                return;
+            } catch (Exception e) {
+                failure = e;
+            }
+        } finally {
+            readLock.unlock();
+        }
+
+        if (file.exists()) {
+            moveAsideIfUnchanged(key, file, lastModified);
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+        // Else, garbage collection in another process removed the entry before we could read it
+    }
+
+    /**
+     * Moves an entry that could not be loaded out of the way, unless a store has replaced it since it was read.
+     */
+    private void moveAsideIfUnchanged(BuildCacheKey key, File file, long lastModified) {
+        persistentCache.withFileLock(() -> {
+            Lock writeLock = locks.get(key.getHashCode()).writeLock();
+            writeLock.lock();
+            try {
+                if (file.lastModified() == lastModified) {
+                    moveAside(file);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        });
+    }
+
+    private void moveAside(File file) {
+        // Try to move the file out of the way in case its permanently corrupt
+        // Don't delete, so that it can be potentially used for debugging
+        File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
+        GFileUtils.deleteQuietly(failedFile);
+        //noinspection ResultOfMethodCallIgnored
+        file.renameTo(failedFile);
+    }
+
+    private static boolean isInProgress(File file) {
+        return new File(file.getParentFile(), file.getName() + PathKeyFileStore.IN_PROGRESS_MARKER_FILE_SUFFIX).exists();
+    }
+
     @Override
     public void store(final BuildCacheKey key, final BuildCacheEntryWriter result) throws BuildCacheException {
         tempFileStore.withTempFile(key, new Action<File>() {
@@ -152,11 +239,12 @@ public void storeLocally(final BuildCacheKey key, final File file) {
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
-                lock.writeLock().lock();
+                Lock writeLock = locks.get(key.getHashCode()).writeLock();
+                writeLock.lock();
                 try {
                     storeInsideLock(key, file);
                 } finally {
-                    lock.writeLock().unlock();
+                    writeLock.unlock();
                 }
             }
         });
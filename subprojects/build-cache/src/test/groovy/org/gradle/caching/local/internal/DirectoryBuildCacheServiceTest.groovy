@@ -16,6 +16,7 @@
 
 package org.gradle.caching.local.internal
 
+import org.gradle.api.UncheckedIOException
 import org.gradle.api.internal.file.temp.DefaultTemporaryFileProvider
 import org.gradle.cache.PersistentCache
 import org.gradle.caching.BuildCacheEntryReader
@@ -42,7 +43,7 @@ class DirectoryBuildCacheServiceTest extends Specification {
     }
     def tempFileStore = new DefaultBuildCacheTempFileStore(new DefaultTemporaryFileProvider(() -> cacheDir))
     def fileAccessTracker = Mock(FileAccessTracker)
-    def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, ".failed")
+    def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, ".failed", true)
     def hashCode = "1234abcd"
     def key = Mock(BuildCacheKey) {
         getHashCode() >> hashCode
@@ -134,4 +135,105 @@ class DirectoryBuildCacheServiceTest extends Specification {
         1 * fileAccessTracker.markAccessed(cachedFile)
         loaded
     }
+
+    def "loads without taking the cross-process lock"() {
+        given:
+        def originalFile = temporaryFolder.createFile("foo")
+        originalFile.text = "bar"
+        service.storeLocally(key, originalFile)
+        def loaded = false
+
+        when:
+        service.loadLocally(key, { file ->
+            assert file.text == "bar"
+            loaded = true
+        })
+
+        then:
+        loaded
+        0 * persistentCache.withFileLock(_)
+    }
+
+    def "cleans up entry left behind by an interrupted store while holding the cross-process lock"() {
+        given:
+        cacheDir.file(hashCode).text = "partial"
+        cacheDir.file(hashCode + ".fslck").createFile()
+
+        when:
+        def loaded = service.load(key, new BuildCacheEntryReader() {
+            @Override
+            void readFrom(InputStream input) throws IOException {
+                throw new AssertionError("Should not read an entry that was not completely written")
+            }
+        })
+
+        then:
+        1 * persistentCache.withFileLock(_) >> { Runnable r -> r.run() }
+        !loaded
+        0 * fileAccessTracker.markAccessed(_)
+        !cacheDir.file(hashCode).exists()
+        !cacheDir.file(hashCode + ".fslck").exists()
+    }
+
+    def "moves corrupt entry out of the way while holding the cross-process lock"() {
+        given:
+        cacheDir.file(hashCode).text = "corrupt"
+
+        when:
+        service.load(key, new BuildCacheEntryReader() {
+            @Override
+            void readFrom(InputStream input) throws IOException {
+                throw new IOException("Corrupt entry")
+            }
+        })
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.message == "Corrupt entry"
+        1 * persistentCache.withFileLock(_) >> { Runnable r -> r.run() }
+        !cacheDir.file(hashCode).exists()
+        cacheDir.file(hashCode + ".failed").text == "corrupt"
+    }
+
+    def "does not move entry out of the way when it was replaced after failing to load it"() {
+        given:
+        def cachedFile = cacheDir.file(hashCode)
+        cachedFile.text = "corrupt"
+
+        when:
+        service.load(key, new BuildCacheEntryReader() {
+            @Override
+            void readFrom(InputStream input) throws IOException {
+                cachedFile.text = "replaced"
+                cachedFile.lastModified = cachedFile.lastModified() + 2000
+                throw new IOException("Corrupt entry")
+            }
+        })
+
+        then:
+        thrown(UncheckedIOException)
+        1 * persistentCache.withFileLock(_) >> { Runnable r -> r.run() }
+        cachedFile.text == "replaced"
+        !cacheDir.file(hashCode + ".failed").exists()
+    }
+
+    def "treats entry removed concurrently as missing"() {
+        given:
+        def cachedFile = cacheDir.file(hashCode)
+        cachedFile.text = "removed"
+
+        when:
+        def loaded = service.load(key, new BuildCacheEntryReader() {
+            @Override
+            void readFrom(InputStream input) throws IOException {
+                assert false
+            }
+        })
+
+        then:
+        1 * fileAccessTracker.markAccessed(cachedFile) >> { cachedFile.delete() }
+        !loaded
+        noExceptionThrown()
+        !cacheDir.file(hashCode + ".failed").exists()
+    }
 }
@@ -47,6 +47,7 @@ tasks.withType<org.jetbrains.kotlin.gradle.tasks.KotlinCompile>().configureEach
 dependencies {
     implementation(project(":base-services"))
     implementation(project(":base-services-groovy"))
+    implementation(project(":build-cache-packaging"))
     implementation(project(":composite-builds"))
     implementation(project(":core"))
     implementation(project(":core-api"))
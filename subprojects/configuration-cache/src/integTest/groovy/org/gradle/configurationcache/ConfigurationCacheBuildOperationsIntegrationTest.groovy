@@ -54,7 +54,7 @@ class ConfigurationCacheBuildOperationsIntegrationTest extends AbstractConfigura
             size() == 1
             with(get(0)) {
                 details == [:]
-                it.result == [:]
+                it.result.cacheEntrySize > 0
             }
         }
 
@@ -67,7 +67,7 @@ class ConfigurationCacheBuildOperationsIntegrationTest extends AbstractConfigura
             size() == 1
             with(get(0)) {
                 details == [:]
-                it.result == [:]
+                it.result.cacheEntrySize > 0
             }
         }
         operations.all(ConfigurationCacheStoreBuildOperationType).empty
@@ -96,7 +96,7 @@ class ConfigurationCacheBuildOperationsIntegrationTest extends AbstractConfigura
             size() == 1
             with(get(0)) {
                 details == [:]
-                it.result == [:]
+                it.result.cacheEntrySize > 0
             }
         }
 
@@ -108,12 +108,41 @@ class ConfigurationCacheBuildOperationsIntegrationTest extends AbstractConfigura
             size() == 1
             with(get(0)) {
                 details == [:]
-                it.result == [:]
+                it.result.cacheEntrySize > 0
             }
         }
         operations.all(ConfigurationCacheStoreBuildOperationType).empty
     }
 
+    def "can load compressed state and reports smaller cache entry"() {
+        given:
+        withLibBuild()
+        withAppBuild()
+
+        when:
+        inDirectory 'app'
+        configurationCacheRun 'assemble'
+
+        then:
+        def uncompressedSize = operations.only(ConfigurationCacheStoreBuildOperationType).result.cacheEntrySize
+
+        when:
+        inDirectory 'app'
+        configurationCacheRun 'assemble', '-Dorg.gradle.internal.configuration-cache.compress=true'
+
+        then:
+        def compressedSize = operations.only(ConfigurationCacheStoreBuildOperationType).result.cacheEntrySize
+        compressedSize < uncompressedSize
+
+        when:
+        inDirectory 'app'
+        configurationCacheRun 'assemble', '-Dorg.gradle.internal.configuration-cache.compress=true'
+
+        then:
+        operations.all(ConfigurationCacheStoreBuildOperationType).empty
+        operations.only(ConfigurationCacheLoadBuildOperationType).result.cacheEntrySize > 0
+    }
+
     private TestFile withLibBuild(boolean withPrecompiledScriptPlugin = false) {
         createDir('lib') {
             file('settings.gradle') << """
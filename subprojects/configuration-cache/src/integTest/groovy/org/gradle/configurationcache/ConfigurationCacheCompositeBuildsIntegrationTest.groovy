@@ -213,6 +213,52 @@ class ConfigurationCacheCompositeBuildsIntegrationTest extends AbstractConfigura
         configurationCache.assertStateLoaded()
     }
 
+    def "can store and load state of included builds concurrently (#parallel)"() {
+        given:
+        def configurationCache = newConfigurationCacheFixture()
+        withLibBuild()
+        withAppBuild()
+        createDir('other') {
+            file('settings.gradle') << """
+                rootProject.name = 'other'
+            """
+            file('build.gradle') << """
+                tasks.register('hello') {
+                    doLast { println 'Hello from other!' }
+                }
+            """
+        }
+        file('app/settings.gradle') << """
+            includeBuild '../other'
+        """
+        file('app/build.gradle') << """
+            tasks.named('run') {
+                dependsOn gradle.includedBuild('other').task(':hello')
+            }
+        """
+
+        when:
+        inDirectory 'app'
+        configurationCacheRun 'run', "-Dorg.gradle.internal.configuration-cache.parallel-included-builds=$parallel"
+
+        then:
+        outputContains 'Hello from other!'
+        outputContains 'Before!'
+        configurationCache.assertStateStored()
+
+        when:
+        inDirectory 'app'
+        configurationCacheRun 'run', "-Dorg.gradle.internal.configuration-cache.parallel-included-builds=$parallel"
+
+        then:
+        outputContains 'Hello from other!'
+        outputContains 'Before!'
+        configurationCache.assertStateLoaded()
+
+        where:
+        parallel << [true, false]
+    }
+
     def "reports a problem when source dependencies are present"() {
         given:
         def configurationCache = newConfigurationCacheFixture()
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configurationcache
+
+class ConfigurationCacheSharedEntriesIntegrationTest extends AbstractConfigurationCacheIntegrationTest {
+
+    def sharedDir = testDirectory.file("shared-configuration-cache")
+
+    def setup() {
+        buildFile << """
+            tasks.register("hello") {
+                def message = providers.gradleProperty("message").orElse("hello")
+                doLast { println(message.get()) }
+            }
+        """
+    }
+
+    def "restores entry published by another build tree"() {
+        given:
+        def configurationCache = newConfigurationCacheFixture()
+
+        when:
+        configurationCacheRun "hello", "-Dorg.gradle.internal.configuration-cache.shared-dir=${sharedDir}"
+
+        then:
+        configurationCache.assertStateStored()
+        sharedDir.allDescendants().any { it.endsWith(".zip") }
+
+        when:
+        file(".gradle/configuration-cache").deleteDir()
+        configurationCacheRun "hello", "-Dorg.gradle.internal.configuration-cache.shared-dir=${sharedDir}"
+
+        then:
+        outputContains("hello")
+        configurationCache.assertStateLoaded()
+    }
+
+    def "restores entry published by a build tree at another location with another Gradle user home"() {
+        given:
+        def configurationCache = newConfigurationCacheFixture()
+        def checkout = file("checkout")
+        def otherCheckout = file("other-checkout")
+        def userHome = file("user-home")
+        def otherUserHome = file("other-user-home")
+        [checkout, otherCheckout].each {
+            it.file("settings.gradle") << "rootProject.name = 'shared'"
+            it.file("build.gradle").text = buildFile.text
+        }
+
+        when:
+        executer.inDirectory(checkout).withGradleUserHomeDir(userHome)
+        configurationCacheRun "hello", "-Dorg.gradle.internal.configuration-cache.shared-dir=${sharedDir}"
+
+        then:
+        configurationCache.assertStateStored()
+
+        when:
+        // Like a CI agent that restores the caches of the Gradle user home to another location
+        userHome.file("caches").copyTo(otherUserHome.file("caches"))
+        executer.inDirectory(otherCheckout).withGradleUserHomeDir(otherUserHome)
+        configurationCacheRun "hello", "-Dorg.gradle.internal.configuration-cache.shared-dir=${sharedDir}"
+
+        then:
+        outputContains("hello")
+        configurationCache.assertStateLoaded()
+    }
+
+    def "checks fingerprint of restored entry"() {
+        given:
+        def configurationCache = newConfigurationCacheFixture()
+
+        when:
+        configurationCacheRun "hello", "-Dorg.gradle.internal.configuration-cache.shared-dir=${sharedDir}"
+
+        then:
+        configurationCache.assertStateStored()
+
+        when:
+        file(".gradle/configuration-cache").deleteDir()
+        buildFile << """
+            println("changed")
+        """
+        configurationCacheRun "hello", "-Dorg.gradle.internal.configuration-cache.shared-dir=${sharedDir}"
+
+        then:
+        outputContains("changed")
+        configurationCache.assertStateStored()
+    }
+
+    def "does not share entries by default"() {
+        given:
+        def configurationCache = newConfigurationCacheFixture()
+
+        when:
+        configurationCacheRun "hello"
+
+        then:
+        configurationCache.assertStateStored()
+        !sharedDir.exists()
+    }
+}
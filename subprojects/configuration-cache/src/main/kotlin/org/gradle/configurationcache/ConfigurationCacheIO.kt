@@ -19,6 +19,8 @@ package org.gradle.configurationcache
 import org.gradle.api.logging.LogLevel
 import org.gradle.cache.internal.streams.BlockAddress
 import org.gradle.cache.internal.streams.BlockAddressSerializer
+import org.gradle.caching.internal.packaging.impl.Lz4BlockInputStream
+import org.gradle.caching.internal.packaging.impl.Lz4BlockOutputStream
 import org.gradle.configurationcache.cacheentry.EntryDetails
 import org.gradle.configurationcache.cacheentry.ModelKey
 import org.gradle.configurationcache.extensions.useToRun
@@ -27,19 +29,18 @@ import org.gradle.configurationcache.problems.ConfigurationCacheProblems
 import org.gradle.configurationcache.serialization.DefaultReadContext
 import org.gradle.configurationcache.serialization.DefaultWriteContext
 import org.gradle.configurationcache.serialization.LoggingTracer
+import org.gradle.configurationcache.serialization.RelocatableFileSerializer
 import org.gradle.configurationcache.serialization.Tracer
 import org.gradle.configurationcache.serialization.beans.BeanStateReaderLookup
 import org.gradle.configurationcache.serialization.beans.BeanStateWriterLookup
 import org.gradle.configurationcache.serialization.codecs.Codecs
 import org.gradle.configurationcache.serialization.readCollection
-import org.gradle.configurationcache.serialization.readFile
 import org.gradle.configurationcache.serialization.readList
 import org.gradle.configurationcache.serialization.readNonNull
 import org.gradle.configurationcache.serialization.runReadOperation
 import org.gradle.configurationcache.serialization.runWriteOperation
 import org.gradle.configurationcache.serialization.withGradleIsolate
 import org.gradle.configurationcache.serialization.writeCollection
-import org.gradle.configurationcache.serialization.writeFile
 import org.gradle.internal.build.BuildStateRegistry
 import org.gradle.internal.buildtree.BuildTreeWorkGraph
 import org.gradle.internal.serialize.Decoder
@@ -66,6 +67,9 @@ class ConfigurationCacheIO internal constructor(
     private
     val codecs = codecs()
 
+    private
+    val fileSerializer = RelocatableFileSerializer(listOf(startParameter.rootDirectory, startParameter.gradleUserHomeDir))
+
     internal
     fun writeCacheEntryDetailsTo(
         buildStateRegistry: BuildStateRegistry,
@@ -165,7 +169,7 @@ class ConfigurationCacheIO internal constructor(
         stateFile: ConfigurationCacheStateFile,
         action: suspend DefaultReadContext.(ConfigurationCacheState) -> T
     ): T {
-        return withReadContextFor(stateFile.inputStream()) { codecs ->
+        return withReadContextFor(decompressing(stateFile.inputStream())) { codecs ->
             ConfigurationCacheState(codecs, stateFile).run {
                 action(this)
             }
@@ -178,7 +182,7 @@ class ConfigurationCacheIO internal constructor(
         action: suspend DefaultWriteContext.(ConfigurationCacheState) -> T
     ): T {
         val build = host.currentBuild
-        val (context, codecs) = writerContextFor(stateFile.outputStream(), build.gradle.owner.displayName.displayName + " state")
+        val (context, codecs) = writerContextFor(compressing(stateFile.outputStream()), build.gradle.owner.displayName.displayName + " state")
         return context.useToRun {
             runWriteOperation {
                 action(ConfigurationCacheState(codecs, stateFile))
@@ -186,6 +190,30 @@ class ConfigurationCacheIO internal constructor(
         }
     }
 
+    /**
+     * Compresses the state written to the given stream when [ConfigurationCacheStartParameter.isCompressState] is enabled.
+     *
+     * LZ4 is used, as for build cache entries, since the state is written on every cache miss and compression speed matters more than ratio.
+     */
+    private
+    fun compressing(outputStream: OutputStream): OutputStream =
+        if (startParameter.isCompressState) {
+            Lz4BlockOutputStream(outputStream)
+        } else {
+            outputStream
+        }
+
+    /**
+     * Decompresses the state read from the given stream as it is consumed, see [compressing].
+     */
+    private
+    fun decompressing(inputStream: InputStream): InputStream =
+        if (startParameter.isCompressState) {
+            Lz4BlockInputStream(inputStream)
+        } else {
+            inputStream
+        }
+
     internal
     fun writeModelTo(model: Any, stateFile: ConfigurationCacheStateFile) {
         writeConfigurationCacheState(stateFile) {
@@ -274,6 +302,7 @@ class ConfigurationCacheIO internal constructor(
         encoder,
         scopeRegistryListener,
         beanStateWriterLookup,
+        fileSerializer,
         logger,
         tracer,
         problems
@@ -287,6 +316,7 @@ class ConfigurationCacheIO internal constructor(
         codecs.userTypesCodec(),
         decoder,
         beanStateReaderLookup,
+        fileSerializer,
         logger,
         problems
     )
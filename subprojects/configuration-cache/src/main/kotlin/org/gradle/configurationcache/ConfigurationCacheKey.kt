@@ -64,6 +64,11 @@ class ConfigurationCacheKey(
 
         buildActionRequirements.appendKeyTo(this)
 
+        if (startParameter.isCompressState) {
+            // Compressed state files cannot be read as uncompressed ones, and vice versa
+            putString("lz4-compressed")
+        }
+
         // TODO:bamboo review with Adam
 //        require(buildActionRequirements.isRunsTasks || startParameter.requestedTaskNames.isEmpty())
         if (buildActionRequirements.isRunsTasks) {
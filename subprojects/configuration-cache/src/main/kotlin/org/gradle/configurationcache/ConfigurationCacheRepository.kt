@@ -37,10 +37,14 @@ import org.gradle.internal.nativeintegration.filesystem.FileSystem
 import org.gradle.internal.service.scopes.Scopes
 import org.gradle.internal.service.scopes.ServiceScope
 import java.io.File
+import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
 import java.nio.file.Files
 import java.nio.file.StandardCopyOption
+import java.util.zip.ZipEntry
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
 
 
 @ServiceScope(Scopes.BuildTree::class)
@@ -155,6 +159,60 @@ class ConfigurationCacheRepository(
             return DefaultValueStore(baseDir, stateType.fileBaseName, writer, reader)
         }
 
+        override fun restoreFrom(sharedEntryFile: File) {
+            withExclusiveAccessToCache(baseDir) { cacheDir ->
+                val entryFile = cacheDir.stateFile(StateType.Entry)
+                if (entryFile.isFile || !sharedEntryFile.isFile) {
+                    return@withExclusiveAccessToCache
+                }
+                Files.createDirectories(cacheDir.toPath())
+                chmod(cacheDir, 448) // octal 0700
+                markAccessed(cacheDir)
+                try {
+                    ZipInputStream(sharedEntryFile.inputStream().buffered()).use { zip ->
+                        generateSequence { zip.nextEntry }.forEach { zipEntry ->
+                            val file = cacheDir.resolve(File(zipEntry.name).name)
+                            Files.copy(zip, file.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                            chmod(file, 384) // octal 0600
+                        }
+                    }
+                } catch (e: IOException) {
+                    // The entry file is restored last, so removing it is enough for an incomplete entry to be stored again
+                    Files.deleteIfExists(entryFile.toPath())
+                    throw e
+                }
+            }
+        }
+
+        override fun publishTo(sharedEntryFile: File) {
+            withExclusiveAccessToCache(baseDir) { cacheDir ->
+                val files = cacheDir.listFiles()?.filter(File::isFile)
+                val entryFile = cacheDir.stateFile(StateType.Entry)
+                if (files == null || !entryFile.isFile) {
+                    return@withExclusiveAccessToCache
+                }
+                val sharedDir = Files.createDirectories(sharedEntryFile.parentFile.toPath())
+                val tempFile = Files.createTempFile(sharedDir, "${sharedEntryFile.name}-", ".tmp")
+                try {
+                    ZipOutputStream(Files.newOutputStream(tempFile).buffered()).use { zip ->
+                        // The entry file is written last, so that an interrupted restore never leaves it behind
+                        files.sortedBy { it.name == entryFile.name }.forEach { file ->
+                            zip.putNextEntry(ZipEntry(file.name))
+                            Files.copy(file.toPath(), zip)
+                            zip.closeEntry()
+                        }
+                    }
+                    // Replaces the previous entry in a single step, so that builds restoring it concurrently see either entry as a whole
+                    Files.move(tempFile, sharedEntryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+                } finally {
+                    Files.deleteIfExists(tempFile)
+                }
+            }
+        }
+
+        override fun cacheEntrySize(): Long =
+            baseDir.walk().filter(File::isFile).sumOf(File::length)
+
         override fun <T : Any> useForStateLoad(stateType: StateType, action: (ConfigurationCacheStateFile) -> T): T {
             return useForStateLoad { layout -> action(layout.fileFor(stateType)) }
         }
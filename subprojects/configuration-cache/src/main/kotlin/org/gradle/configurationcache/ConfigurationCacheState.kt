@@ -32,14 +32,16 @@ import org.gradle.configurationcache.CachedProjectState.Companion.computeCachedS
 import org.gradle.configurationcache.CachedProjectState.Companion.configureProjectFromCachedState
 import org.gradle.configurationcache.extensions.serviceOf
 import org.gradle.configurationcache.extensions.unsafeLazy
+import org.gradle.configurationcache.initialization.ConfigurationCacheStartParameter
 import org.gradle.configurationcache.problems.DocumentationSection.NotYetImplementedSourceDependencies
 import org.gradle.configurationcache.serialization.DefaultReadContext
 import org.gradle.configurationcache.serialization.DefaultWriteContext
+import org.gradle.configurationcache.serialization.ReadContext
+import org.gradle.configurationcache.serialization.WriteContext
 import org.gradle.configurationcache.serialization.codecs.Codecs
 import org.gradle.configurationcache.serialization.codecs.WorkNodeCodec
 import org.gradle.configurationcache.serialization.logNotImplemented
 import org.gradle.configurationcache.serialization.readCollection
-import org.gradle.configurationcache.serialization.readFile
 import org.gradle.configurationcache.serialization.readList
 import org.gradle.configurationcache.serialization.readNonNull
 import org.gradle.configurationcache.serialization.readStrings
@@ -47,7 +49,6 @@ import org.gradle.configurationcache.serialization.runReadOperation
 import org.gradle.configurationcache.serialization.withDebugFrame
 import org.gradle.configurationcache.serialization.withGradleIsolate
 import org.gradle.configurationcache.serialization.writeCollection
-import org.gradle.configurationcache.serialization.writeFile
 import org.gradle.configurationcache.serialization.writeStrings
 import org.gradle.configurationcache.services.EnvironmentChangeTracker
 import org.gradle.execution.plan.Node
@@ -70,14 +71,14 @@ import org.gradle.internal.execution.BuildOutputCleanupRegistry
 import org.gradle.internal.operations.BuildOperationContext
 import org.gradle.internal.operations.BuildOperationDescriptor
 import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.MultipleBuildOperationFailures
 import org.gradle.internal.operations.RunnableBuildOperation
-import org.gradle.internal.serialize.Decoder
-import org.gradle.internal.serialize.Encoder
 import org.gradle.plugin.management.internal.PluginRequests
 import org.gradle.vcs.internal.VcsMappingsStore
 import java.io.File
 import java.io.InputStream
 import java.io.OutputStream
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.contracts.InvocationKind
 import kotlin.contracts.contract
 
@@ -173,7 +174,8 @@ class ConfigurationCacheState(
                 storedBuilds = storedBuilds(),
                 requiredBuildServicesPerBuild = buildEventListeners
                     .filterIsInstance<BuildServiceProvider<*, *>>()
-                    .groupBy { it.buildIdentifier }
+                    .groupBy { it.buildIdentifier },
+                parallelIncludedBuilds = gradle.serviceOf<ConfigurationCacheStartParameter>().isParallelIncludedBuilds
             )
         )
         writeRootEventListenerSubscriptions(gradle, buildEventListeners)
@@ -380,8 +382,9 @@ class ConfigurationCacheState(
 
     private
     suspend fun DefaultWriteContext.writeChildBuilds(gradle: GradleInternal, buildTreeState: StoredBuildTreeState) {
+        val buildsToStore = mutableListOf<IncludedBuildState>()
         writeCollection(gradle.includedBuilds()) {
-            writeIncludedBuildState(it, buildTreeState)
+            writeIncludedBuildState(it, buildTreeState)?.let(buildsToStore::add)
         }
         if (gradle.serviceOf<VcsMappingsStore>().asResolver().hasRules()) {
             logNotImplemented(
@@ -392,6 +395,8 @@ class ConfigurationCacheState(
         } else {
             writeBoolean(false)
         }
+        writeBoolean(canLoadConcurrently(buildsToStore, buildTreeState))
+        storeIncludedBuildStates(gradle, buildsToStore, buildTreeState)
     }
 
     private
@@ -407,57 +412,141 @@ class ConfigurationCacheState(
                 documentationSection = NotYetImplementedSourceDependencies
             )
         }
+        val loadConcurrently = readBoolean()
+        val cachedBuildStates = loadIncludedBuildStates(parentBuild.gradle, includedBuilds.mapNotNull { it.second }, loadConcurrently)
         parentBuild.gradle.setIncludedBuilds(includedBuilds.map { it.first.model })
-        return includedBuilds.mapNotNull { it.second }
+        return cachedBuildStates
     }
 
+    /**
+     * Writes the definition of the given included build and returns the build
+     * when its state should be stored to its own state file.
+     */
     private
     suspend fun DefaultWriteContext.writeIncludedBuildState(
         reference: IncludedBuildInternal,
         buildTreeState: StoredBuildTreeState
-    ) {
+    ): IncludedBuildState? {
         val target = reference.target
         if (target is IncludedBuildState) {
-            val includedGradle = target.mutableModel
-            val buildDefinition = includedGradle.serviceOf<BuildDefinition>()
+            val buildDefinition = target.mutableModel.serviceOf<BuildDefinition>()
             writeBuildDefinition(buildDefinition)
             when {
                 buildTreeState.storedBuilds.store(buildDefinition) -> {
                     writeBoolean(true)
-                    target.projects.withMutableStateOfAllProjects {
-                        includedGradle.serviceOf<ConfigurationCacheIO>().writeIncludedBuildStateTo(
-                            stateFileFor(buildDefinition),
-                            buildTreeState
-                        )
-                    }
+                    return target
                 }
                 else -> {
                     writeBoolean(false)
                 }
             }
         }
+        return null
+    }
+
+    /**
+     * Whether the state files of the given builds can be read concurrently.
+     *
+     * Loading a build registers the builds it includes in the build tree, which must happen in a stable order
+     * to assign the same build identifiers as when storing. So only builds that include no other builds are loaded concurrently.
+     */
+    private
+    fun canLoadConcurrently(builds: List<IncludedBuildState>, buildTreeState: StoredBuildTreeState) =
+        buildTreeState.parallelIncludedBuilds && builds.size > 1 && builds.all { it.mutableModel.includedBuilds().isEmpty() }
+
+    /**
+     * Stores the state of each given build to its own state file.
+     *
+     * The state files of different builds are independent of each other, so when [StoredBuildTreeState.parallelIncludedBuilds]
+     * is enabled they are written concurrently, each one while holding the project locks of its own build.
+     */
+    private
+    fun storeIncludedBuildStates(gradle: GradleInternal, builds: List<IncludedBuildState>, buildTreeState: StoredBuildTreeState) {
+        if (!buildTreeState.parallelIncludedBuilds || builds.size < 2) {
+            builds.forEach { storeIncludedBuildState(it, buildTreeState) }
+            return
+        }
+        runConcurrently(gradle, builds, { "Store configuration cache state of ${it.displayName.displayName}" }) {
+            storeIncludedBuildState(it, buildTreeState)
+        }
+    }
+
+    private
+    fun storeIncludedBuildState(build: IncludedBuildState, buildTreeState: StoredBuildTreeState) {
+        val includedGradle = build.mutableModel
+        build.projects.withMutableStateOfAllProjects {
+            includedGradle.serviceOf<ConfigurationCacheIO>().writeIncludedBuildStateTo(
+                stateFileFor(includedGradle.serviceOf()),
+                buildTreeState
+            )
+        }
+    }
+
+    private
+    fun loadIncludedBuildStates(gradle: GradleInternal, builds: List<StoredIncludedBuild>, concurrently: Boolean): List<CachedBuildState> {
+        if (!concurrently) {
+            return builds.map { loadIncludedBuildState(it) }
+        }
+        val cachedBuildStates = arrayOfNulls<CachedBuildState>(builds.size)
+        runConcurrently(gradle, builds.indices.toList(), { "Load configuration cache state of ${builds[it].build.state.displayName.displayName}" }) {
+            cachedBuildStates[it] = loadIncludedBuildState(builds[it])
+        }
+        return cachedBuildStates.map { it!! }
+    }
+
+    private
+    fun loadIncludedBuildState(build: StoredIncludedBuild): CachedBuildState =
+        build.build.gradle.serviceOf<ConfigurationCacheIO>().readIncludedBuildStateFrom(build.stateFile, build.build)
+
+    private
+    fun <T> runConcurrently(gradle: GradleInternal, items: List<T>, displayName: (T) -> String, action: (T) -> Unit) {
+        try {
+            gradle.serviceOf<BuildOperationExecutor>().runAll<RunnableBuildOperation> {
+                items.forEach { item ->
+                    add(object : RunnableBuildOperation {
+                        override fun run(context: BuildOperationContext) =
+                            action(item)
+
+                        override fun description(): BuildOperationDescriptor.Builder =
+                            BuildOperationDescriptor.displayName(displayName(item))
+                    })
+                }
+            }
+        } catch (e: MultipleBuildOperationFailures) {
+            // Report the first failure the same way as when running one after the other, without losing the others
+            val failure = e.causes.first()
+            e.causes.drop(1).forEach(failure::addSuppressed)
+            throw failure
+        }
     }
 
+    /**
+     * Reads the definition of an included build and registers it, along with the state file
+     * to load the build from when its state was stored.
+     */
     private
     suspend fun DefaultReadContext.readIncludedBuildState(
         parentBuild: ConfigurationCacheBuild
-    ): Pair<IncludedBuildState, CachedBuildState?> {
+    ): Pair<IncludedBuildState, StoredIncludedBuild?> {
         val buildDefinition = readIncludedBuildDefinition(parentBuild)
         val includedBuild = parentBuild.addIncludedBuild(buildDefinition)
         val stored = readBoolean()
-        val cachedBuildState =
+        val storedBuild =
             if (stored) {
                 val confCacheBuild = includedBuild.withState { includedGradle ->
                     includedGradle.serviceOf<ConfigurationCacheHost>().createBuild(null, includedBuild.name)
                 }
-                confCacheBuild.gradle.serviceOf<ConfigurationCacheIO>().readIncludedBuildStateFrom(
-                    stateFileFor(buildDefinition),
-                    confCacheBuild
-                )
+                StoredIncludedBuild(confCacheBuild, stateFileFor(buildDefinition))
             } else null
-        return includedBuild to cachedBuildState
+        return includedBuild to storedBuild
     }
 
+    private
+    class StoredIncludedBuild(
+        val build: ConfigurationCacheBuild,
+        val stateFile: ConfigurationCacheStateFile
+    )
+
     private
     suspend fun DefaultWriteContext.writeBuildDefinition(buildDefinition: BuildDefinition) {
         buildDefinition.run {
@@ -597,7 +686,7 @@ class ConfigurationCacheState(
     }
 
     private
-    fun Encoder.writeRelevantProjects(relevantProjects: List<ProjectState>) {
+    fun WriteContext.writeRelevantProjects(relevantProjects: List<ProjectState>) {
         writeCollection(relevantProjects) { project ->
             val mutableModel = project.mutableModel
             writeString(mutableModel.path)
@@ -607,7 +696,7 @@ class ConfigurationCacheState(
     }
 
     private
-    fun Decoder.readRelevantProjects(build: ConfigurationCacheBuild) {
+    fun ReadContext.readRelevantProjects(build: ConfigurationCacheBuild) {
         readCollection {
             val projectPath = readString()
             val projectDir = readFile()
@@ -630,7 +719,7 @@ class ConfigurationCacheState(
 
     private
     fun storedBuilds() = object : StoredBuilds {
-        val buildRootDirs = hashSetOf<File>()
+        val buildRootDirs = ConcurrentHashMap.newKeySet<File>()
         override fun store(build: BuildDefinition): Boolean =
             buildRootDirs.add(build.buildRootDir!!)
     }
@@ -717,7 +806,8 @@ class ConfigurationCacheState(
 internal
 class StoredBuildTreeState(
     val storedBuilds: StoredBuilds,
-    val requiredBuildServicesPerBuild: Map<BuildIdentifier, List<BuildServiceProvider<*, *>>>
+    val requiredBuildServicesPerBuild: Map<BuildIdentifier, List<BuildServiceProvider<*, *>>>,
+    val parallelIncludedBuilds: Boolean
 )
 
 
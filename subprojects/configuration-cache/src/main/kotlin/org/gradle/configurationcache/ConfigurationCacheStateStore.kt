@@ -39,6 +39,21 @@ interface ConfigurationCacheStateStore {
      */
     fun useForStore(action: (ConfigurationCacheRepository.Layout) -> Unit)
 
+    /**
+     * Extracts the entry archived in [sharedEntryFile], unless a complete entry already exists locally.
+     */
+    fun restoreFrom(sharedEntryFile: File)
+
+    /**
+     * Replaces the archive in [sharedEntryFile] with an archive of this entry, if this entry is complete.
+     */
+    fun publishTo(sharedEntryFile: File)
+
+    /**
+     * Returns the total size in bytes of the state files of this cache entry.
+     */
+    fun cacheEntrySize(): Long
+
     /**
      * Creates a new [ValueStore] that can be used to load and store multiple values.
      */
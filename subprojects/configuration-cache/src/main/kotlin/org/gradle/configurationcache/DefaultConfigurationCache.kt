@@ -48,6 +48,7 @@ import org.gradle.internal.vfs.FileSystemAccess
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem
 import org.gradle.util.Path
 import java.io.File
+import java.io.IOException
 import java.io.OutputStream
 
 
@@ -90,6 +91,10 @@ class DefaultConfigurationCache internal constructor(
     private
     var hasSavedValues = false
 
+    // Has the entry been stored by this build?
+    private
+    var hasStoredEntry = false
+
     private
     lateinit var host: Host
 
@@ -105,6 +110,17 @@ class DefaultConfigurationCache internal constructor(
     private
     val cacheIO by lazy { host.service<ConfigurationCacheIO>() }
 
+    /**
+     * The archive through which the entry is shared with other machines, if any.
+     *
+     * Cache entries refer to files in the build tree and in the Gradle user home relative to these directories,
+     * so entries are shared between build trees at different locations.
+     */
+    private
+    val sharedEntryFile: File? by lazy {
+        startParameter.sharedCacheDirectory?.resolve("${cacheKey.string}.zip")
+    }
+
     private
     val gradlePropertiesController: GradlePropertiesController
         get() = host.service()
@@ -176,6 +192,7 @@ class DefaultConfigurationCache internal constructor(
             }
             problems.projectStateStats(reusedProjects.size, updatedProjects.size)
             hasSavedValues = false
+            hasStoredEntry = true
         }
     }
 
@@ -244,6 +261,10 @@ class DefaultConfigurationCache internal constructor(
     }
 
     override fun stop() {
+        if (hasStoredEntry) {
+            // Published once the build has completed, as the entry is discarded when the build reports configuration cache problems
+            publishCacheEntry()
+        }
         val stoppable = CompositeStoppable.stoppable()
         if (intermediateModels.isInitialized()) {
             stoppable.add(intermediateModels.value)
@@ -257,6 +278,7 @@ class DefaultConfigurationCache internal constructor(
 
     private
     fun checkFingerprint(): CheckedFingerprint {
+        sharedEntryFile?.let(::restoreCacheEntry)
         return store.useForStateLoad { layout ->
             val entryFile = layout.fileFor(StateType.Entry)
             val entryDetails = cacheIO.readCacheEntryDetailsFrom(entryFile)
@@ -269,6 +291,25 @@ class DefaultConfigurationCache internal constructor(
         }
     }
 
+    private
+    fun restoreCacheEntry(sharedEntryFile: File) {
+        try {
+            store.restoreFrom(sharedEntryFile)
+        } catch (e: IOException) {
+            logger.warn("Could not restore configuration cache entry from '{}'.", sharedEntryFile, e)
+        }
+    }
+
+    private
+    fun publishCacheEntry() {
+        val sharedEntryFile = sharedEntryFile ?: return
+        try {
+            store.publishTo(sharedEntryFile)
+        } catch (e: IOException) {
+            logger.warn("Could not publish configuration cache entry to '{}'.", sharedEntryFile, e)
+        }
+    }
+
     private
     fun <T> runWorkThatContributesToCacheEntry(action: () -> T): T {
         prepareForWork()
@@ -313,7 +354,7 @@ class DefaultConfigurationCache internal constructor(
         // can cause the provider value to incorrectly be treated as a task graph input
         Instrumented.discardListener()
 
-        buildOperationExecutor.withStoreOperation(cacheKey.string) {
+        buildOperationExecutor.withStoreOperation(cacheKey.string, store::cacheEntrySize) {
             store.useForStore { layout ->
                 try {
                     action(layout.fileFor(stateType))
@@ -353,7 +394,7 @@ class DefaultConfigurationCache internal constructor(
         // when loading the task graph.
         scopeRegistryListener.dispose()
 
-        val result = buildOperationExecutor.withLoadOperation {
+        val result = buildOperationExecutor.withLoadOperation(store::cacheEntrySize) {
             store.useForStateLoad(stateType, action)
         }
         crossConfigurationTimeBarrier()
@@ -53,6 +53,26 @@ class ConfigurationCacheStartParameter(
     val recreateCache: Boolean
         get() = startParameter.isConfigurationCacheRecreateCache
 
+    /**
+     * Whether the state files of sibling included builds are written and read concurrently, enabled by default.
+     */
+    val isParallelIncludedBuilds: Boolean
+        get() = !"false".equals(startParameter.systemPropertiesArgs["org.gradle.internal.configuration-cache.parallel-included-builds"], true)
+
+    /**
+     * Whether the state files are compressed.
+     */
+    val isCompressState: Boolean
+        get() = "true".equals(startParameter.systemPropertiesArgs["org.gradle.internal.configuration-cache.compress"], true)
+
+    /**
+     * The directory through which cache entries are shared with other machines, if any.
+     */
+    val sharedCacheDirectory: File?
+        get() = startParameter.systemPropertiesArgs["org.gradle.internal.configuration-cache.shared-dir"]?.let {
+            startParameter.currentDir.resolve(it)
+        }
+
     /**
      * See [StartParameter.getProjectDir].
      */
@@ -29,6 +29,7 @@ import org.gradle.configurationcache.serialization.beans.BeanStateReader
 import org.gradle.configurationcache.serialization.beans.BeanStateWriter
 import org.gradle.internal.serialize.Decoder
 import org.gradle.internal.serialize.Encoder
+import java.io.File
 
 
 /**
@@ -50,6 +51,11 @@ interface WriteContext : IsolateContext, MutableIsolateContext, Encoder {
     suspend fun write(value: Any?)
 
     fun writeClass(type: Class<*>)
+
+    /**
+     * Writes [file] so that it can be read by a build tree at a different location, see [RelocatableFileSerializer].
+     */
+    fun writeFile(file: File)
 }
 
 
@@ -82,6 +88,8 @@ interface ReadContext : IsolateContext, MutableIsolateContext, Decoder {
     suspend fun read(): Any?
 
     fun readClass(): Class<*>
+
+    fun readFile(): File
 }
 
 
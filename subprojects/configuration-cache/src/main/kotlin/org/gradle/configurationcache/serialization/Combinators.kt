@@ -27,7 +27,6 @@ import org.gradle.internal.serialize.Decoder
 import org.gradle.internal.serialize.Encoder
 import org.gradle.internal.serialize.Serializer
 
-import java.io.File
 import java.io.ObjectInputStream
 import java.io.ObjectOutputStream
 
@@ -275,7 +274,7 @@ suspend fun <K, V, T : MutableMap<K, V>> ReadContext.readMapEntriesInto(items: T
 
 
 internal
-fun Encoder.writeClassPath(classPath: ClassPath) {
+fun WriteContext.writeClassPath(classPath: ClassPath) {
     writeCollection(classPath.asFiles) {
         writeFile(it)
     }
@@ -283,7 +282,7 @@ fun Encoder.writeClassPath(classPath: ClassPath) {
 
 
 internal
-fun Decoder.readClassPath(): ClassPath {
+fun ReadContext.readClassPath(): ClassPath {
     val size = readSmallInt()
     val builder = DefaultClassPath.builderWithExactSize(size)
     for (i in 0 until size) {
@@ -293,17 +292,6 @@ fun Decoder.readClassPath(): ClassPath {
 }
 
 
-internal
-fun Encoder.writeFile(file: File?) {
-    BaseSerializerFactory.FILE_SERIALIZER.write(this, file)
-}
-
-
-internal
-fun Decoder.readFile(): File =
-    BaseSerializerFactory.FILE_SERIALIZER.read(this)
-
-
 internal
 fun Encoder.writeStrings(strings: Collection<String>) {
     writeCollection(strings) {
@@ -32,6 +32,8 @@ import org.gradle.initialization.ClassLoaderScopeRegistry
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.serialize.Decoder
 import org.gradle.internal.serialize.Encoder
+import org.gradle.internal.serialize.Serializer
+import java.io.File
 
 
 internal
@@ -47,6 +49,9 @@ class DefaultWriteContext(
     private
     val beanStateWriterLookup: BeanStateWriterLookup,
 
+    private
+    val fileSerializer: Serializer<File>,
+
     override val logger: Logger,
 
     override val tracer: Tracer?,
@@ -82,6 +87,10 @@ class DefaultWriteContext(
         }
     }
 
+    override fun writeFile(file: File) {
+        fileSerializer.write(this, file)
+    }
+
     override fun writeClass(type: Class<*>) {
         val id = classes.getId(type)
         if (id != null) {
@@ -201,6 +210,9 @@ class DefaultReadContext(
     private
     val beanStateReaderLookup: BeanStateReaderLookup,
 
+    private
+    val fileSerializer: Serializer<File>,
+
     override val logger: Logger,
 
     problemsListener: ProblemsListener
@@ -246,6 +258,9 @@ class DefaultReadContext(
     override fun beanStateReaderFor(beanType: Class<*>): BeanStateReader =
         beanStateReaderLookup.beanStateReaderFor(beanType)
 
+    override fun readFile(): File =
+        fileSerializer.read(this)
+
     override fun readClass(): Class<*> {
         val id = readSmallInt()
         val type = classes.getInstance(id)
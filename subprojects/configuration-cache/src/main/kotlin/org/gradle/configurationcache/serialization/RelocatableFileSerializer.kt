@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configurationcache.serialization
+
+import org.gradle.internal.serialize.Decoder
+import org.gradle.internal.serialize.Encoder
+import org.gradle.internal.serialize.Serializer
+import java.io.File
+
+
+/**
+ * Writes a file below one of the given [roots] relative to that root, and resolves it against the same root when reading it back.
+ *
+ * The roots are the root directory of the build tree and the Gradle user home, so that a cache entry can be loaded by a build tree
+ * that is checked out at a different location, or that uses a different Gradle user home. Other files are written as is.
+ * Roots are referred to by their position, so the same roots must be given, in the same order, when reading.
+ */
+internal
+class RelocatableFileSerializer(roots: List<File>) : Serializer<File> {
+
+    private
+    val roots = roots.map { it.absoluteFile }
+
+    override fun write(encoder: Encoder, value: File) {
+        // The most specific root wins, for a Gradle user home inside the root directory
+        val root = roots.indices
+            .filter { value.startsWith(roots[it]) }
+            .maxByOrNull { roots[it].path.length }
+        if (root == null) {
+            encoder.writeSmallInt(0)
+            encoder.writeString(value.path)
+        } else {
+            encoder.writeSmallInt(root + 1)
+            encoder.writeString(value.toRelativeString(roots[root]))
+        }
+    }
+
+    override fun read(decoder: Decoder): File {
+        val root = decoder.readSmallInt()
+        val path = decoder.readString()
+        return if (root == 0) File(path) else roots[root - 1].resolve(path)
+    }
+}
@@ -22,8 +22,6 @@ import org.gradle.api.tasks.util.PatternSet
 import org.gradle.configurationcache.serialization.Codec
 import org.gradle.configurationcache.serialization.ReadContext
 import org.gradle.configurationcache.serialization.WriteContext
-import org.gradle.configurationcache.serialization.readFile
-import org.gradle.configurationcache.serialization.writeFile
 
 
 internal
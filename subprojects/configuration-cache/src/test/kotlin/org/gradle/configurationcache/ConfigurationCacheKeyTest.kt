@@ -81,6 +81,22 @@ class ConfigurationCacheKeyTest {
         )
     }
 
+    @Test
+    fun `cache key honours state compression`() {
+        assertThat(
+            cacheKeyStringFromStartParameter {
+                systemPropertiesArgs["org.gradle.internal.configuration-cache.compress"] = "true"
+            },
+            not(equalTo(cacheKeyStringFromStartParameter { }))
+        )
+        assertThat(
+            cacheKeyStringFromStartParameter {
+                systemPropertiesArgs["org.gradle.internal.configuration-cache.compress"] = "false"
+            },
+            equalTo(cacheKeyStringFromStartParameter { })
+        )
+    }
+
     @Test
     fun `sanity check`() {
         assertThat(
@@ -292,6 +292,9 @@ class ConfigurationCacheFingerprintCheckerTest {
         override fun writeClass(type: Class<*>): Unit =
             undefined()
 
+        override fun writeFile(file: File): Unit =
+            undefined()
+
         override val logger: Logger
             get() = undefined()
 
@@ -392,6 +395,9 @@ class ConfigurationCacheFingerprintCheckerTest {
         override fun readClass(): Class<*> =
             undefined()
 
+        override fun readFile(): File =
+            undefined()
+
         override val logger: Logger
             get() = undefined()
 
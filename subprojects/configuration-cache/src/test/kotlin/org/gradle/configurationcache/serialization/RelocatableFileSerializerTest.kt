@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configurationcache.serialization
+
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder
+import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+
+
+class RelocatableFileSerializerTest {
+
+    private
+    val rootDir = File("/checkout/project").absoluteFile
+
+    private
+    val gradleUserHome = File("/checkout/project/.gradle-home").absoluteFile
+
+    private
+    val otherRootDir = File("/other/location").absoluteFile
+
+    private
+    val otherGradleUserHome = File("/home/user/.gradle").absoluteFile
+
+    @Test
+    fun `resolves files in the build tree against the new root directory`() {
+        assertThat(
+            relocate(File(rootDir, "sub/build.gradle")),
+            equalTo(File(otherRootDir, "sub/build.gradle"))
+        )
+        assertThat(
+            relocate(rootDir),
+            equalTo(otherRootDir)
+        )
+    }
+
+    @Test
+    fun `resolves files in the Gradle user home against the new Gradle user home`() {
+        assertThat(
+            relocate(File(gradleUserHome, "caches/jars-9/some.jar")),
+            equalTo(File(otherGradleUserHome, "caches/jars-9/some.jar"))
+        )
+    }
+
+    @Test
+    fun `keeps other files as they are`() {
+        val file = File("/usr/lib/jvm/bin/java").absoluteFile
+        assertThat(relocate(file), equalTo(file))
+        assertThat(relocate(File("relative/path")), equalTo(File("relative/path")))
+    }
+
+    private
+    fun relocate(file: File): File {
+        val outputStream = ByteArrayOutputStream()
+        KryoBackedEncoder(outputStream).use { encoder ->
+            RelocatableFileSerializer(listOf(rootDir, gradleUserHome)).write(encoder, file)
+        }
+        return KryoBackedDecoder(ByteArrayInputStream(outputStream.toByteArray())).use { decoder ->
+            RelocatableFileSerializer(listOf(otherRootDir, otherGradleUserHome)).read(decoder)
+        }
+    }
+}
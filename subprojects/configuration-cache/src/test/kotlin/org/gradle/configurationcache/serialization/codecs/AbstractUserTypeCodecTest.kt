@@ -27,6 +27,7 @@ import org.gradle.configurationcache.serialization.DefaultReadContext
 import org.gradle.configurationcache.serialization.DefaultWriteContext
 import org.gradle.configurationcache.serialization.IsolateOwner
 import org.gradle.configurationcache.serialization.MutableIsolateContext
+import org.gradle.configurationcache.serialization.RelocatableFileSerializer
 import org.gradle.configurationcache.serialization.beans.BeanConstructors
 import org.gradle.configurationcache.serialization.beans.BeanStateReaderLookup
 import org.gradle.configurationcache.serialization.beans.BeanStateWriterLookup
@@ -133,6 +134,7 @@ abstract class AbstractUserTypeCodecTest {
             encoder = encoder,
             scopeLookup = mock(),
             beanStateWriterLookup = BeanStateWriterLookup(),
+            fileSerializer = RelocatableFileSerializer(emptyList()),
             logger = mock(),
             tracer = null,
             problemsListener = problemHandler
@@ -144,6 +146,7 @@ abstract class AbstractUserTypeCodecTest {
             codec = codec,
             decoder = KryoBackedDecoder(inputStream),
             beanStateReaderLookup = BeanStateReaderLookup(BeanConstructors(TestCrossBuildInMemoryCacheFactory()), TestUtil.instantiatorFactory()),
+            fileSerializer = RelocatableFileSerializer(emptyList()),
             logger = mock(),
             problemsListener = mock()
         )
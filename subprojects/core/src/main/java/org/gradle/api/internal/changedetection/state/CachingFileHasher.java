@@ -30,6 +30,7 @@
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.InterningStringSerializer;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class CachingFileHasher implements FileHasher {
@@ -82,7 +83,35 @@ private FileInfo snapshot(File file) {
     }
 
     private FileInfo snapshot(File file, long length, long timestamp) {
-        String absolutePath = file.getAbsolutePath();
+        FileInfo info = getIfUnchanged(file.getAbsolutePath(), length, timestamp);
+        if (info != null) {
+            return info;
+        }
+
+        HashCode hash = delegate.hash(file);
+        info = store(file, length, timestamp, hash);
+        statisticsCollector.reportFileHashed(length);
+        return info;
+    }
+
+    /**
+     * Returns the cached hash of the file, or null when the file may have changed since it was hashed.
+     */
+    @Nullable
+    public HashCode getCachedHash(File file, long length, long lastModified) {
+        FileInfo info = getIfUnchanged(file.getAbsolutePath(), length, lastModified);
+        return info == null ? null : info.getHash();
+    }
+
+    /**
+     * Caches a hash of the file which was calculated by the caller, using the same function as the delegate.
+     */
+    public void putHash(File file, long length, long lastModified, HashCode hash) {
+        store(file, length, lastModified, hash);
+    }
+
+    @Nullable
+    private FileInfo getIfUnchanged(String absolutePath, long length, long timestamp) {
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
             FileInfo info = cache.getIfPresent(absolutePath);
 
@@ -90,11 +119,12 @@ private FileInfo snapshot(File file, long length, long timestamp) {
                 return info;
             }
         }
+        return null;
+    }
 
-        HashCode hash = delegate.hash(file);
+    private FileInfo store(File file, long length, long timestamp, HashCode hash) {
         FileInfo info = new FileInfo(hash, length, timestamp);
-        cache.put(stringInterner.intern(absolutePath), info);
-        statisticsCollector.reportFileHashed(length);
+        cache.put(stringInterner.intern(file.getAbsolutePath()), info);
         return info;
     }
 
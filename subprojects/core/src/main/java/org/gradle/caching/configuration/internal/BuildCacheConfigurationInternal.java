@@ -19,6 +19,7 @@
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.configuration.BuildCache;
 import org.gradle.caching.configuration.BuildCacheConfiguration;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.internal.service.scopes.Scopes;
 import org.gradle.internal.service.scopes.ServiceScope;
@@ -41,4 +42,14 @@ public interface BuildCacheConfigurationInternal extends BuildCacheConfiguration
      * Replaces remote build cache.
      */
     void setRemote(@Nullable BuildCache remote);
+
+    /**
+     * The compression used for newly stored entries. Entries are loaded regardless of the compression used to store them.
+     */
+    BuildCacheEntryCompression getEntryCompression();
+
+    /**
+     * Replaces the compression used for newly stored entries.
+     */
+    void setEntryCompression(BuildCacheEntryCompression entryCompression);
 }
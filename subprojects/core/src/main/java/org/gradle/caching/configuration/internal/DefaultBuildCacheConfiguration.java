@@ -22,6 +22,7 @@
 import org.gradle.api.GradleException;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.configuration.BuildCache;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.internal.Actions;
 import org.gradle.internal.Cast;
@@ -36,10 +37,13 @@
 public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationInternal {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultBuildCacheConfiguration.class);
 
+    public static final String ENTRY_COMPRESSION_PROPERTY = "org.gradle.unsafe.build-cache.entry-compression";
+
     private final Instantiator instantiator;
 
     private DirectoryBuildCache local;
     private BuildCache remote;
+    private BuildCacheEntryCompression entryCompression;
 
     private final Set<BuildCacheServiceRegistration> registrations;
 
@@ -47,6 +51,12 @@ public DefaultBuildCacheConfiguration(Instantiator instantiator, List<BuildCache
         this.instantiator = instantiator;
         this.registrations = Sets.newHashSet(allBuiltInBuildCacheServices);
         this.local = createLocalCacheConfiguration(instantiator, registrations);
+        this.entryCompression = defaultEntryCompression();
+    }
+
+    private static BuildCacheEntryCompression defaultEntryCompression() {
+        String compression = System.getProperty(ENTRY_COMPRESSION_PROPERTY);
+        return compression == null ? BuildCacheEntryCompression.GZIP : BuildCacheEntryCompression.forName(compression);
     }
 
     @Override
@@ -84,6 +94,16 @@ public void setRemote(@Nullable BuildCache remote) {
         this.remote = remote;
     }
 
+    @Override
+    public BuildCacheEntryCompression getEntryCompression() {
+        return entryCompression;
+    }
+
+    @Override
+    public void setEntryCompression(BuildCacheEntryCompression entryCompression) {
+        this.entryCompression = Preconditions.checkNotNull(entryCompression, "entryCompression cannot be null.");
+    }
+
     @Override
     public <T extends BuildCache> T remote(Class<T> type) {
         return remote(type, Actions.doNothing());
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.api.internal.TaskInternal;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prioritizes the nodes of an execution plan which are on the longest chain of remaining work.
+ *
+ * <p>The remaining work of a node is its own duration plus the largest remaining work of the nodes depending on it,
+ * where task durations are taken from the {@link TaskDurationHistory}.
+ * Among the nodes which are ready to execute, the one with the most remaining work is started first,
+ * so long chains of work start as early as possible instead of in plan order.
+ * A node is not started ahead of a ready node it should run after.
+ * The nodes are sorted by remaining work once, when the plan is finalized.</p>
+ */
+class CriticalPathPrioritizer {
+    private final TaskDurationHistory history;
+    private final Map<Node, Long> remainingWork = new IdentityHashMap<>();
+    private final List<Node> nodesByRemainingWork = new LinkedList<>();
+    private final Map<Node, Long> startTimes = new IdentityHashMap<>();
+    private final Map<String, Long> executedTaskDurations = new LinkedHashMap<>();
+    private long estimatedCriticalPathMillis;
+    private int prioritizedNodes;
+    private boolean started;
+    private long firstStartTime;
+    private long lastFinishTime;
+
+    CriticalPathPrioritizer(TaskDurationHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Determines the remaining work for each node, where the execution queue lists dependencies before the nodes depending on them.
+     */
+    void determineRemainingWork(Collection<Node> executionQueue) {
+        List<Node> nodes = new ArrayList<>(executionQueue);
+        List<String> taskPaths = new ArrayList<>();
+        for (Node node : nodes) {
+            if (node instanceof LocalTaskNode) {
+                taskPaths.add(((LocalTaskNode) node).getTask().getPath());
+            }
+        }
+        Map<String, Long> durations = history.getDurationsMillis(taskPaths);
+
+        remainingWork.clear();
+        for (ListIterator<Node> iterator = nodes.listIterator(nodes.size()); iterator.hasPrevious(); ) {
+            Node node = iterator.previous();
+            long remainingWorkOfDependents = 0;
+            for (Node dependent : node.getDependencyPredecessors()) {
+                remainingWorkOfDependents = Math.max(remainingWorkOfDependents, remainingWork.getOrDefault(dependent, 0L));
+            }
+            long nodeRemainingWork = durationOf(node, durations) + remainingWorkOfDependents;
+            remainingWork.put(node, nodeRemainingWork);
+            estimatedCriticalPathMillis = Math.max(estimatedCriticalPathMillis, nodeRemainingWork);
+        }
+
+        // Nodes without remaining work are left to the default selection in plan order
+        nodesByRemainingWork.clear();
+        for (Node node : nodes) {
+            if (remainingWork.get(node) > 0) {
+                nodesByRemainingWork.add(node);
+            }
+        }
+        // The sort is stable, so nodes with the same remaining work stay in plan order
+        nodesByRemainingWork.sort(Comparator.comparing(remainingWork::get, Comparator.reverseOrder()));
+    }
+
+    private static long durationOf(Node node, Map<String, Long> durations) {
+        if (node instanceof LocalTaskNode) {
+            return durations.getOrDefault(((LocalTaskNode) node).getTask().getPath(), 0L);
+        }
+        return 0;
+    }
+
+    /**
+     * Selects the ready node with the most remaining work.
+     *
+     * <p>Nodes are visited in order of decreasing remaining work, so the search stops at the first node which is ready to start.
+     * Nodes which have started are dropped along the way.</p>
+     */
+    @Nullable
+    Node selectNodeWithMostRemainingWork() {
+        for (Iterator<Node> iterator = nodesByRemainingWork.iterator(); iterator.hasNext(); ) {
+            Node node = iterator.next();
+            if (node.isExecuting() || node.isComplete()) {
+                iterator.remove();
+                continue;
+            }
+            if (isReadyToStart(node) && !shouldRunAfterReadyNode(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the dependencies of the node are complete. The prepare node of a task is not a dependency until it is started,
+     * so a task is ready when its prepare node has completed or still has to be started along with the task.
+     */
+    private static boolean isReadyToStart(Node node) {
+        return node.allDependenciesComplete() && node.allDependenciesSuccessful();
+    }
+
+    private static boolean shouldRunAfterReadyNode(Node node) {
+        if (!(node instanceof TaskNode)) {
+            return false;
+        }
+        for (Node shouldSuccessor : ((TaskNode) node).getShouldSuccessors()) {
+            // Should run after relationships no longer constrain the node once the other node has started
+            if (!shouldSuccessor.isExecuting() && !shouldSuccessor.isComplete() && isReadyToStart(shouldSuccessor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void nodePrioritized() {
+        prioritizedNodes++;
+    }
+
+    void nodeStarted(Node node) {
+        long now = System.nanoTime();
+        if (!started) {
+            started = true;
+            firstStartTime = now;
+        }
+        startTimes.put(node, now);
+    }
+
+    void nodeFinished(Node node) {
+        long now = System.nanoTime();
+        lastFinishTime = now;
+        Long startTime = startTimes.remove(node);
+        if (startTime == null || !(node instanceof LocalTaskNode) || !node.isSuccessful()) {
+            return;
+        }
+        TaskInternal task = ((LocalTaskNode) node).getTask();
+        // Up-to-date and cached tasks say little about how long the work takes when it needs to run
+        if (!task.getState().getSkipped()) {
+            executedTaskDurations.put(task.getPath(), TimeUnit.NANOSECONDS.toMillis(now - startTime));
+        }
+    }
+
+    /**
+     * Stores the durations of the tasks executed since the plan started, if any.
+     */
+    void storeDurations(String buildPath) {
+        if (!started) {
+            return;
+        }
+        history.storeDurations(buildPath, executedTaskDurations, prioritizedNodes, estimatedCriticalPathMillis, TimeUnit.NANOSECONDS.toMillis(lastFinishTime - firstStartTime));
+        // The plan may be closed more than once
+        started = false;
+        executedTaskDurations.clear();
+        startTimes.clear();
+        nodesByRemainingWork.clear();
+    }
+}
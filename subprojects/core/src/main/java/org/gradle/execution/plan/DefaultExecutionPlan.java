@@ -81,7 +81,7 @@ public class DefaultExecutionPlan implements ExecutionPlan, WorkSource<Node> {
 
     private final Set<Node> entryNodes = new LinkedHashSet<>();
     private final NodeMapping nodeMapping = new NodeMapping();
-    private final List<Node> executionQueue = new LinkedList<>();
+    private final Set<Node> executionQueue = new LinkedHashSet<>();
     private final List<Throwable> failures = new ArrayList<>();
     private final String displayName;
     private final TaskNodeFactory taskNodeFactory;
@@ -90,6 +90,8 @@ public class DefaultExecutionPlan implements ExecutionPlan, WorkSource<Node> {
     private final ExecutionNodeAccessHierarchy destroyableHierarchy;
     private final ResourceLockCoordinationService lockCoordinator;
     private final Action<ResourceLock> resourceUnlockListener = this::resourceUnlocked;
+    @Nullable
+    private final CriticalPathPrioritizer criticalPathPrioritizer;
     private Spec<? super Task> filter = Specs.satisfyAll();
     private int order = 0;
 
@@ -123,6 +125,21 @@ public DefaultExecutionPlan(
         ExecutionNodeAccessHierarchy outputHierarchy,
         ExecutionNodeAccessHierarchy destroyableHierarchy,
         ResourceLockCoordinationService lockCoordinator
+    ) {
+        this(displayName, taskNodeFactory, dependencyResolver, outputHierarchy, destroyableHierarchy, lockCoordinator, null);
+    }
+
+    /**
+     * @param taskDurationHistory when present, ready nodes are selected along the critical path instead of in plan order.
+     */
+    public DefaultExecutionPlan(
+        String displayName,
+        TaskNodeFactory taskNodeFactory,
+        TaskDependencyResolver dependencyResolver,
+        ExecutionNodeAccessHierarchy outputHierarchy,
+        ExecutionNodeAccessHierarchy destroyableHierarchy,
+        ResourceLockCoordinationService lockCoordinator,
+        @Nullable TaskDurationHistory taskDurationHistory
     ) {
         this.displayName = displayName;
         this.taskNodeFactory = taskNodeFactory;
@@ -130,6 +147,7 @@ public DefaultExecutionPlan(
         this.outputHierarchy = outputHierarchy;
         this.destroyableHierarchy = destroyableHierarchy;
         this.lockCoordinator = lockCoordinator;
+        this.criticalPathPrioritizer = taskDurationHistory == null ? null : new CriticalPathPrioritizer(taskDurationHistory);
     }
 
     @Override
@@ -348,6 +366,9 @@ private void addFinalizerToQueue(LinkedList<NodeInVisitingSegment> nodeQueue, in
 
     @Override
     public void close() {
+        if (criticalPathPrioritizer != null) {
+            criticalPathPrioritizer.storeDurations(displayName);
+        }
         lockCoordinator.removeLockReleaseListener(resourceUnlockListener);
         completionHandler = localTaskNode -> {
         };
@@ -371,6 +392,9 @@ public WorkSource<Node> finalizePlan() {
         for (Node node : executionQueue) {
             node.updateAllDependenciesComplete();
         }
+        if (criticalPathPrioritizer != null) {
+            criticalPathPrioritizer.determineRemainingWork(executionQueue);
+        }
 
         maybeNodesSelectable = true;
         maybeNodesReady = true;
@@ -613,6 +637,23 @@ public Selection<Node> selectNext() {
         }
 
         List<ResourceLock> resources = new ArrayList<>();
+        if (criticalPathPrioritizer != null && priorityNodes.isEmpty()) {
+            Node prioritizedNode = criticalPathPrioritizer.selectNodeWithMostRemainingWork();
+            if (prioritizedNode != null) {
+                Node startedNode = attemptToStartNodeOrPrepareNode(prioritizedNode, resources);
+                if (startedNode != null) {
+                    if (hasReadyNodeBefore(prioritizedNode)) {
+                        criticalPathPrioritizer.nodePrioritized();
+                    }
+                    if (startedNode == prioritizedNode) {
+                        executionQueue.remove(prioritizedNode);
+                    }
+                    return Selection.of(startedNode);
+                }
+            }
+            // Else, fall back to selecting the first node in plan order that can start
+        }
+
         Iterator<Node> iterator = Iterators.concat(priorityNodes.iterator(), executionQueue.iterator());
         boolean foundReadyNode = false;
         boolean skippedNode = false;
@@ -633,28 +674,12 @@ public Selection<Node> selectNext() {
 
                 foundReadyNode = true;
 
-                Node prepareNode = node.getPrepareNode();
-                if (prepareNode != null) {
-                    if (!prepareNode.isRequired()) {
-                        prepareNode.require();
-                        prepareNode.updateAllDependenciesComplete();
-                    }
-                    if (prepareNode.allDependenciesComplete()) {
-                        if (attemptToStart(prepareNode, resources)) {
-                            node.addDependencySuccessor(prepareNode);
-                            node.forceAllDependenciesCompleteUpdate();
-                            return Selection.of(prepareNode);
-                        } else {
-                            // Cannot start prepare node, so skip to next node
-                            continue;
-                        }
-                    }
-                    // else prepare node has already completed
-                }
-
-                if (attemptToStart(node, resources)) {
+                Node startedNode = attemptToStartNodeOrPrepareNode(node, resources);
+                if (startedNode == node) {
                     iterator.remove();
-                    return Selection.of(node);
+                }
+                if (startedNode != null) {
+                    return Selection.of(startedNode);
                 }
             } else if (node.isComplete()) {
                 // node is complete
@@ -686,6 +711,53 @@ public Selection<Node> selectNext() {
         }
     }
 
+    /**
+     * Whether a node ahead of the given node in plan order is ready to start, so that selecting the given node changes the order of execution.
+     */
+    private boolean hasReadyNodeBefore(Node node) {
+        for (Node candidate : executionQueue) {
+            if (candidate == node) {
+                return false;
+            }
+            if (!candidate.isExecuting() && candidate.allDependenciesComplete() && candidate.allDependenciesSuccessful()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Attempts to start a node whose dependencies are complete, or its prepare node when that has not completed yet.
+     *
+     * @return the node which has been started, or null when nothing could be started.
+     */
+    @Nullable
+    private Node attemptToStartNodeOrPrepareNode(Node node, List<ResourceLock> resources) {
+        Node prepareNode = node.getPrepareNode();
+        if (prepareNode != null) {
+            if (!prepareNode.isRequired()) {
+                prepareNode.require();
+                prepareNode.updateAllDependenciesComplete();
+            }
+            if (prepareNode.allDependenciesComplete()) {
+                if (attemptToStart(prepareNode, resources)) {
+                    node.addDependencySuccessor(prepareNode);
+                    node.forceAllDependenciesCompleteUpdate();
+                    return prepareNode;
+                } else {
+                    // Cannot start prepare node, so skip to next node
+                    return null;
+                }
+            }
+            // else prepare node has already completed
+        }
+
+        if (attemptToStart(node, resources)) {
+            return node;
+        }
+        return null;
+    }
+
     private boolean attemptToStart(Node node, List<ResourceLock> resources) {
         resources.clear();
         if (!tryAcquireLocksForNode(node, resources)) {
@@ -871,6 +943,9 @@ private boolean doesConsumerDependOnDestroyer(Node consumer, Node destroyer) {
 
     private void recordNodeExecutionStarted(Node node) {
         runningNodes.add(node);
+        if (criticalPathPrioritizer != null) {
+            criticalPathPrioritizer.nodeStarted(node);
+        }
     }
 
     private void recordNodeCompleted(Node node) {
@@ -916,6 +991,9 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
             }
             runningNodes.remove(node);
             node.finishExecution(this::recordNodeCompleted);
+            if (criticalPathPrioritizer != null) {
+                criticalPathPrioritizer.nodeFinished(node);
+            }
             if (node.isFailed()) {
                 LOGGER.debug("Node {} failed", node);
                 handleFailure(node);
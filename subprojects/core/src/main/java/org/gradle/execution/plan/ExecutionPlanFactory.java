@@ -20,6 +20,8 @@
 import org.gradle.internal.service.scopes.Scopes;
 import org.gradle.internal.service.scopes.ServiceScope;
 
+import javax.annotation.Nullable;
+
 @ServiceScope(Scopes.Build.class)
 public class ExecutionPlanFactory {
     private final String displayName;
@@ -28,6 +30,8 @@ public class ExecutionPlanFactory {
     private final ExecutionNodeAccessHierarchy outputHierarchy;
     private final ExecutionNodeAccessHierarchy destroyableHierarchy;
     private final ResourceLockCoordinationService lockCoordinationService;
+    @Nullable
+    private final TaskDurationHistory taskDurationHistory;
 
     public ExecutionPlanFactory(
         String displayName,
@@ -35,7 +39,8 @@ public ExecutionPlanFactory(
         TaskDependencyResolver dependencyResolver,
         ExecutionNodeAccessHierarchy outputHierarchy,
         ExecutionNodeAccessHierarchy destroyableHierarchy,
-        ResourceLockCoordinationService lockCoordinationService
+        ResourceLockCoordinationService lockCoordinationService,
+        @Nullable TaskDurationHistory taskDurationHistory
     ) {
         this.displayName = displayName;
         this.taskNodeFactory = taskNodeFactory;
@@ -43,9 +48,10 @@ public ExecutionPlanFactory(
         this.outputHierarchy = outputHierarchy;
         this.destroyableHierarchy = destroyableHierarchy;
         this.lockCoordinationService = lockCoordinationService;
+        this.taskDurationHistory = taskDurationHistory;
     }
 
     public ExecutionPlan createPlan() {
-        return new DefaultExecutionPlan(displayName, taskNodeFactory, dependencyResolver, outputHierarchy, destroyableHierarchy, lockCoordinationService);
+        return new DefaultExecutionPlan(displayName, taskNodeFactory, dependencyResolver, outputHierarchy, destroyableHierarchy, lockCoordinationService, taskDurationHistory);
     }
 }
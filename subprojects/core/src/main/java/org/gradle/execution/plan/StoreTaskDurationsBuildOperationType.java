@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Stores the durations of the tasks executed by an execution plan scheduled along the critical path.
+ *
+ * <p>The result compares the wall-clock time of the execution with the critical path estimated from previous builds,
+ * which is a lower bound for the execution time regardless of the number of workers.</p>
+ *
+ * @see TaskDurationHistory
+ */
+public interface StoreTaskDurationsBuildOperationType extends BuildOperationType<StoreTaskDurationsBuildOperationType.Details, StoreTaskDurationsBuildOperationType.Result> {
+
+    interface Details {
+        /**
+         * The identity path of the build which executed the tasks.
+         */
+        String getBuildPath();
+    }
+
+    interface Result {
+        /**
+         * The number of tasks whose duration has been stored.
+         */
+        int getStoredTaskDurations();
+
+        /**
+         * The number of nodes started ahead of earlier nodes in the plan since they were on a longer path of remaining work.
+         */
+        int getPrioritizedNodes();
+
+        /**
+         * The longest chain of dependent tasks in the plan, based on the task durations of previous builds.
+         */
+        long getEstimatedCriticalPathMillis();
+
+        /**
+         * The wall-clock time between starting the first node and finishing the last node of the plan.
+         */
+        long getExecutionTimeMillis();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.scopes.BuildScopedCache;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.service.scopes.Scopes;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * The durations of the tasks of a build, as observed when they were last executed.
+ *
+ * <p>Used to schedule the nodes of an execution plan along the critical path, when enabled via {@link #CRITICAL_PATH_SCHEDULING_PROPERTY}.
+ * Durations are stored per task path in the persistent cache of the build. The cache is only opened when it is used.</p>
+ */
+@ServiceScope(Scopes.Build.class)
+public class TaskDurationHistory implements Closeable {
+    public static final String CRITICAL_PATH_SCHEDULING_PROPERTY = "org.gradle.internal.execution.critical-path-scheduling";
+
+    private final BuildScopedCache cacheRepository;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private PersistentCache cache;
+    private PersistentIndexedCache<String, Long> durations;
+
+    public TaskDurationHistory(BuildScopedCache cacheRepository, BuildOperationExecutor buildOperationExecutor) {
+        this.cacheRepository = cacheRepository;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    public static boolean isCriticalPathSchedulingEnabled() {
+        return Boolean.getBoolean(CRITICAL_PATH_SCHEDULING_PROPERTY);
+    }
+
+    /**
+     * Returns the durations of the last executions of the given tasks, omitting tasks that have not been executed before.
+     * The durations are all read while holding the cache lock once.
+     */
+    public Map<String, Long> getDurationsMillis(Collection<String> taskPaths) {
+        PersistentIndexedCache<String, Long> durations = getDurations();
+        return cache.useCache(() -> {
+            Map<String, Long> result = new HashMap<>();
+            for (String taskPath : taskPaths) {
+                Long duration = durations.getIfPresent(taskPath);
+                if (duration != null) {
+                    result.put(taskPath, duration);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Stores the durations of the tasks executed by a plan, and reports how the execution time compares to the estimated critical path.
+     */
+    public void storeDurations(String buildPath, Map<String, Long> taskDurations, int prioritizedNodes, long estimatedCriticalPathMillis, long executionTimeMillis) {
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                PersistentIndexedCache<String, Long> durations = getDurations();
+                cache.useCache(() -> taskDurations.forEach(durations::put));
+                context.setResult(new StoreTaskDurationsBuildOperationType.Result() {
+                    @Override
+                    public int getStoredTaskDurations() {
+                        return taskDurations.size();
+                    }
+
+                    @Override
+                    public int getPrioritizedNodes() {
+                        return prioritizedNodes;
+                    }
+
+                    @Override
+                    public long getEstimatedCriticalPathMillis() {
+                        return estimatedCriticalPathMillis;
+                    }
+
+                    @Override
+                    public long getExecutionTimeMillis() {
+                        return executionTimeMillis;
+                    }
+                });
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Store task durations")
+                    .details((StoreTaskDurationsBuildOperationType.Details) () -> buildPath);
+            }
+        });
+    }
+
+    private synchronized PersistentIndexedCache<String, Long> getDurations() {
+        if (durations == null) {
+            cache = cacheRepository
+                .cache("taskDurations")
+                .withDisplayName("task durations cache")
+                .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
+                .open();
+            durations = cache.createCache(PersistentIndexedCacheParameters.of("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER));
+        }
+        return durations;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (cache != null) {
+            cache.close();
+            cache = null;
+            durations = null;
+        }
+    }
+}
@@ -20,18 +20,26 @@
 import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache;
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics;
 import org.gradle.api.internal.changedetection.state.FileTimeStampInspector;
+import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.service.scopes.Scopes;
 import org.gradle.internal.service.scopes.ServiceScope;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @ServiceScope(Scopes.BuildSession.class)
 public class DefaultChecksumService implements ChecksumService {
-    private final CachingFileHasher md5;
-    private final CachingFileHasher sha1;
-    private final CachingFileHasher sha256;
-    private final CachingFileHasher sha512;
+    private final FileSystem fileSystem;
+    private final FileHasherStatistics.Collector statisticsCollector;
+    private final CachedChecksum md5;
+    private final CachedChecksum sha1;
+    private final CachedChecksum sha256;
+    private final CachedChecksum sha512;
 
     public DefaultChecksumService(
         StringInterner stringInterner,
@@ -40,13 +48,15 @@ public DefaultChecksumService(
         FileTimeStampInspector fileTimeStampInspector,
         FileHasherStatistics.Collector statisticsCollector
     ) {
+        this.fileSystem = fileSystem;
+        this.statisticsCollector = statisticsCollector;
         md5 = createCache(stringInterner, fileStore, fileSystem, fileTimeStampInspector, "md5", Hashing.md5(), statisticsCollector);
         sha1 = createCache(stringInterner, fileStore, fileSystem, fileTimeStampInspector, "sha1", Hashing.sha1(), statisticsCollector);
         sha256 = createCache(stringInterner, fileStore, fileSystem, fileTimeStampInspector, "sha256", Hashing.sha256(), statisticsCollector);
         sha512 = createCache(stringInterner, fileStore, fileSystem, fileTimeStampInspector, "sha512", Hashing.sha512(), statisticsCollector);
     }
 
-    private CachingFileHasher createCache(
+    private CachedChecksum createCache(
         StringInterner stringInterner,
         CrossBuildFileHashCache fileStore,
         FileSystem fileSystem,
@@ -55,43 +65,85 @@ private CachingFileHasher createCache(
         HashFunction hashFunction,
         FileHasherStatistics.Collector statisticsCollector
     ) {
-        return new CachingFileHasher(new ChecksumHasher(hashFunction), fileStore, stringInterner, fileTimeStampInspector, name + "-checksums", fileSystem, 1000, statisticsCollector);
+        CachingFileHasher hasher = new CachingFileHasher(new ChecksumHasher(hashFunction), fileStore, stringInterner, fileTimeStampInspector, name + "-checksums", fileSystem, 1000, statisticsCollector);
+        return new CachedChecksum(hashFunction, hasher);
     }
 
     @Override
     public HashCode md5(File file) {
-        return doHash(file, md5);
+        return doHash(file, md5.hasher);
     }
 
     @Override
     public HashCode sha1(File file) {
-        return doHash(file, sha1);
+        return doHash(file, sha1.hasher);
     }
 
     @Override
     public HashCode sha256(File file) {
-        return doHash(file, sha256);
+        return doHash(file, sha256.hasher);
     }
 
     @Override
     public HashCode sha512(File file) {
-        return doHash(file, sha512);
+        return doHash(file, sha512.hasher);
     }
 
     @Override
     public HashCode hash(File src, String algorithm) {
+        return doHash(src, checksumFor(algorithm).hasher);
+    }
+
+    @Override
+    public Map<String, HashCode> hashAll(File src, Collection<String> algorithms) {
+        FileMetadata fileMetadata = fileSystem.stat(src);
+        long length = fileMetadata.getLength();
+        long lastModified = fileMetadata.getLastModified();
+
+        Map<String, HashCode> hashes = new LinkedHashMap<>();
+        List<String> missingAlgorithms = new ArrayList<>();
+        List<CachedChecksum> missingChecksums = new ArrayList<>();
+        for (String algorithm : algorithms) {
+            CachedChecksum checksum = checksumFor(algorithm);
+            HashCode hash = checksum.hasher.getCachedHash(src, length, lastModified);
+            if (hash != null) {
+                hashes.put(algorithm, hash);
+            } else if (!missingAlgorithms.contains(algorithm)) {
+                missingAlgorithms.add(algorithm);
+                missingChecksums.add(checksum);
+            }
+        }
+        if (missingChecksums.isEmpty()) {
+            return hashes;
+        }
+
+        List<HashFunction> hashFunctions = new ArrayList<>(missingChecksums.size());
+        for (CachedChecksum checksum : missingChecksums) {
+            hashFunctions.add(checksum.hashFunction);
+        }
+        List<HashCode> computedHashes = ChecksumHasher.hashAll(src, hashFunctions);
+        statisticsCollector.reportFileHashed(length);
+        for (int i = 0; i < missingChecksums.size(); i++) {
+            HashCode hash = computedHashes.get(i);
+            missingChecksums.get(i).hasher.putHash(src, length, lastModified, hash);
+            hashes.put(missingAlgorithms.get(i), hash);
+        }
+        return hashes;
+    }
+
+    private CachedChecksum checksumFor(String algorithm) {
         switch (algorithm.toLowerCase()) {
             case "md5":
-                return md5(src);
+                return md5;
             case "sha1":
             case "sha-1":
-                return sha1(src);
+                return sha1;
             case "sha256":
             case "sha-256":
-                return sha256(src);
+                return sha256;
             case "sha512":
             case "sha-512":
-                return sha512(src);
+                return sha512;
         }
         throw new UnsupportedOperationException("Cannot hash with algorith " + algorithm);
     }
@@ -100,4 +152,13 @@ private HashCode doHash(File file, CachingFileHasher hasher) {
         return hasher.hash(file);
     }
 
+    private static class CachedChecksum {
+        private final HashFunction hashFunction;
+        private final CachingFileHasher hasher;
+
+        CachedChecksum(HashFunction hashFunction, CachingFileHasher hasher) {
+            this.hashFunction = hashFunction;
+            this.hasher = hasher;
+        }
+    }
 }
@@ -53,13 +53,6 @@ public class DefaultPathKeyFileStore implements PathKeyFileStore {
 
     private final ChecksumService checksumService;
 
-    /*
-        When writing a file into the filestore a marker file with this suffix is written alongside,
-        then removed after the write. This is used to detect partially written files (due to a serious crash)
-        and to silently clean them.
-     */
-    public static final String IN_PROGRESS_MARKER_FILE_SUFFIX = ".fslck";
-
     private File baseDir;
 
     public DefaultPathKeyFileStore(ChecksumService checksumService, File baseDir) {
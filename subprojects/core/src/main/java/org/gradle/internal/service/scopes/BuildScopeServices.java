@@ -106,6 +106,7 @@
 import org.gradle.execution.plan.ExecutionNodeAccessHierarchies;
 import org.gradle.execution.plan.ExecutionPlanFactory;
 import org.gradle.execution.plan.TaskDependencyResolver;
+import org.gradle.execution.plan.TaskDurationHistory;
 import org.gradle.execution.plan.TaskNodeDependencyResolver;
 import org.gradle.execution.plan.TaskNodeFactory;
 import org.gradle.execution.plan.WorkNodeDependencyResolver;
@@ -245,7 +246,8 @@ ExecutionPlanFactory createExecutionPlanFactory(
         TaskNodeFactory taskNodeFactory,
         TaskDependencyResolver dependencyResolver,
         ExecutionNodeAccessHierarchies executionNodeAccessHierarchies,
-        ResourceLockCoordinationService lockCoordinationService
+        ResourceLockCoordinationService lockCoordinationService,
+        TaskDurationHistory taskDurationHistory
     ) {
         return new ExecutionPlanFactory(
             gradleInternal.getIdentityPath().toString(),
@@ -253,10 +255,15 @@ ExecutionPlanFactory createExecutionPlanFactory(
             dependencyResolver,
             executionNodeAccessHierarchies.getOutputHierarchy(),
             executionNodeAccessHierarchies.getDestroyableHierarchy(),
-            lockCoordinationService
+            lockCoordinationService,
+            TaskDurationHistory.isCriticalPathSchedulingEnabled() ? taskDurationHistory : null
         );
     }
 
+    TaskDurationHistory createTaskDurationHistory(BuildScopedCache buildScopedCache, BuildOperationExecutor buildOperationExecutor) {
+        return new TaskDurationHistory(buildScopedCache, buildOperationExecutor);
+    }
+
     ExecutionNodeAccessHierarchies createExecutionNodeAccessHierarchies(FileSystem fileSystem, Stat stat) {
         return new ExecutionNodeAccessHierarchies(fileSystem.isCaseSensitive() ? CaseSensitivity.CASE_SENSITIVE : CaseSensitivity.CASE_INSENSITIVE, stat);
     }
@@ -67,8 +67,11 @@
 import org.gradle.internal.fingerprint.impl.DefaultGenericFileTreeSnapshotter;
 import org.gradle.internal.fingerprint.impl.FileCollectionFingerprinterRegistrations;
 import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.DefaultStreamHasher;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeintegration.NativeCapabilities;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -93,6 +96,7 @@
 import org.gradle.internal.watch.vfs.impl.DefaultWatchableFileSystemDetector;
 import org.gradle.internal.watch.vfs.impl.LocationsWrittenByCurrentBuild;
 import org.gradle.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
+import org.gradle.internal.watch.vfs.impl.VirtualFileSystemImage;
 import org.gradle.internal.watch.vfs.impl.WatchingVirtualFileSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -119,6 +123,15 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
 
     public static final String MAX_HIERARCHIES_TO_WATCH_PROPERTY = "org.gradle.vfs.watch.hierarchies.max";
 
+    /**
+     * When file system watching is enabled, this system property makes the daemon persist the VFS when it stops, so the next daemon can reuse the unchanged parts.
+     *
+     * The property needs to be set for the daemon JVM.
+     *
+     * @see VirtualFileSystemImage
+     */
+    public static final String PERSIST_VFS_PROPERTY = "org.gradle.vfs.persist";
+
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
 
@@ -134,6 +147,17 @@ public static int getMaximumNumberOfWatchedHierarchies(StartParameter startParam
             : DEFAULT_MAX_HIERARCHIES_TO_WATCH;
     }
 
+    /**
+     * File hashes computed with a non-default content hash function are stored separately, so switching the function never reuses stale hashes.
+     * The name is derived from the stream hasher actually used, which is created once per process.
+     */
+    private static String fileHashesCacheName(StreamHasher streamHasher) {
+        HashFunction hashFunction = streamHasher.getHashFunction();
+        return hashFunction == Hashing.defaultFunction()
+            ? "fileHashes"
+            : "fileHashes-" + DefaultStreamHasher.getContentHashIdentifier(hashFunction);
+    }
+
     @Nullable
     private static String getSystemProperty(String systemProperty, Map<String, String> systemPropertiesArgs) {
         return systemPropertiesArgs.getOrDefault(systemProperty, System.getProperty(systemProperty));
@@ -179,7 +203,7 @@ FileHasher createCachingFileHasher(
             StreamHasher streamHasher,
             StringInterner stringInterner
         ) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, fileHashesCacheName(streamHasher), fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             fileTimeStampInspector.attach(fileHasher);
             return fileHasher;
         }
@@ -212,7 +236,9 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
             FileChangeListeners fileChangeListeners,
             FileSystem fileSystem,
             GlobalCacheLocations globalCacheLocations,
-            WatchableFileSystemDetector watchableFileSystemDetector
+            GlobalScopedCache globalScopedCache,
+            WatchableFileSystemDetector watchableFileSystemDetector,
+            StreamHasher streamHasher
         ) {
             CaseSensitivity caseSensitivity = fileSystem.isCaseSensitive() ? CASE_SENSITIVE : CASE_INSENSITIVE;
             VfsRootReference rootReference = new VfsRootReference(DefaultSnapshotHierarchy.empty(caseSensitivity));
@@ -230,7 +256,10 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
                     sectionId -> documentationRegistry.getDocumentationFor("gradle_daemon", sectionId),
                     locationsWrittenByCurrentBuild,
                     watchableFileSystemDetector,
-                    fileChangeListeners
+                    fileChangeListeners,
+                    Boolean.getBoolean(PERSIST_VFS_PROPERTY)
+                        ? new VirtualFileSystemImage(new File(globalScopedCache.baseDirForCache("vfs"), "vfs.bin"), fileHashesCacheName(streamHasher))
+                        : null
                 ))
                 .orElse(new WatchingNotSupportedVirtualFileSystem(rootReference));
             listenerManager.addListener((BuildAddedListener) buildState -> {
@@ -353,7 +382,7 @@ FileHasher createFileHasher(
             StringInterner stringInterner,
             FileHasherStatistics.Collector statisticsCollector
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, fileHashesCacheName(streamHasher), fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
@@ -104,7 +104,7 @@ DefaultFilePropertyFactory createFilePropertyFactory(PropertyHost propertyHost,
     }
 
     StreamHasher createStreamHasher() {
-        return new DefaultStreamHasher();
+        return new DefaultStreamHasher(DefaultStreamHasher.configuredHashFunction());
     }
 
     Deleter createDeleter(Clock clock, FileSystem fileSystem, OperatingSystem os) {
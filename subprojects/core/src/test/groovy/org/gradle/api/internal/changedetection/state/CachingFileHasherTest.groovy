@@ -173,4 +173,32 @@ class CachingFileHasherTest extends Specification {
         1 * statisticsCollector.reportFileHashed(length)
         0 * _
     }
+
+    def "returns cached hash only when file has not changed"() {
+        when:
+        def cached = hasher.getCachedHash(file, 12, 123)
+        def changed = hasher.getCachedHash(file, 13, 123)
+
+        then:
+        cached == hash
+        changed == null
+
+        and:
+        2 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, 123) >> true
+        2 * cache.getIfPresent(file.absolutePath) >> new FileInfo(hash, 12, 123)
+        0 * _
+    }
+
+    def "caches hash calculated by caller without hashing file"() {
+        when:
+        hasher.putHash(file, 12, 123, hash)
+
+        then:
+        1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
+            assert fileInfo.hash == hash
+            assert fileInfo.length == 12
+            assert fileInfo.timestamp == 123
+        }
+        0 * _
+    }
 }
@@ -49,9 +49,13 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
     DefaultExecutionPlan executionPlan
 
     def setup() {
+        executionPlan = createExecutionPlan(null)
+    }
+
+    private DefaultExecutionPlan createExecutionPlan(TaskDurationHistory taskDurationHistory) {
         def taskNodeFactory = new TaskNodeFactory(project.gradle, Stub(DocumentationRegistry), Stub(BuildTreeWorkGraphController), nodeValidator)
         def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
-        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, dependencyResolver, new ExecutionNodeAccessHierarchy(CASE_SENSITIVE, fs), new ExecutionNodeAccessHierarchy(CASE_SENSITIVE, fs), coordinator)
+        return new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, dependencyResolver, new ExecutionNodeAccessHierarchy(CASE_SENSITIVE, fs), new ExecutionNodeAccessHierarchy(CASE_SENSITIVE, fs), coordinator, taskDurationHistory)
     }
 
     TaskInternal task(Map<String, ?> options = [:], String name) {
@@ -59,7 +63,7 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         _ * task.taskDependencies >> taskDependencyResolvingTo(task, options.dependsOn ?: [])
         _ * task.lifecycleDependencies >> taskDependencyResolvingTo(task, options.dependsOn ?: [])
         _ * task.finalizedBy >> taskDependencyResolvingTo(task, options.finalizedBy ?: [])
-        _ * task.shouldRunAfter >> taskDependencyResolvingTo(task, [])
+        _ * task.shouldRunAfter >> taskDependencyResolvingTo(task, options.shouldRunAfter ?: [])
         _ * task.mustRunAfter >> taskDependencyResolvingTo(task, options.mustRunAfter ?: [])
         _ * task.sharedResources >> (options.resources ?: [])
         TaskStateInternal state = Mock()
@@ -1313,6 +1317,84 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         invalidTask == second
     }
 
+    def "starts ready tasks on the critical path first when task durations are known"() {
+        given:
+        def taskDurationHistory = Stub(TaskDurationHistory) {
+            getDurationsMillis(_) >> { Collection<String> paths -> paths.collectEntries { [it, it.endsWith("b") || it.endsWith("c") ? 10L : 1L] } }
+        }
+        executionPlan = createExecutionPlan(taskDurationHistory)
+        Task a = task("a", type: Async)
+        Task b = task("b", type: Async)
+        Task c = task("c", type: Async, dependsOn: [b])
+
+        when:
+        addToGraphAndPopulate(a, c)
+
+        then:
+        executionPlan.tasks as List == [a, b, c]
+
+        when:
+        def prepareNode = selectNextNode()
+
+        then:
+        // The node on the critical path is prepared and started before the earlier node in plan order
+        prepareNode instanceof ResolveMutationsNode
+        (prepareNode as ResolveMutationsNode).node.task == b
+
+        when:
+        finishedExecuting(prepareNode)
+        def first = selectNextTaskNode()
+        def second = selectNextTaskNode()
+
+        then:
+        first.task == b
+        second.task == a
+        assertNoWorkReadyToStartAfterSelect()
+
+        when:
+        finishedExecuting(second)
+        finishedExecuting(first)
+
+        then:
+        assertLastTaskReady(c)
+        assertAllWorkComplete()
+    }
+
+    def "does not start task on the critical path ahead of a ready task it should run after"() {
+        given:
+        def taskDurationHistory = Stub(TaskDurationHistory) {
+            getDurationsMillis(_) >> { Collection<String> paths -> paths.collectEntries { [it, it.endsWith("b") ? 10L : 1L] } }
+        }
+        executionPlan = createExecutionPlan(taskDurationHistory)
+        Task a = task("a", type: Async)
+        Task b = task("b", type: Async, shouldRunAfter: [a])
+
+        when:
+        addToGraphAndPopulate(a, b)
+
+        then:
+        assertTasksReady(a, b)
+        assertAllWorkComplete()
+    }
+
+    def "starts task on the critical path once the task it should run after has started"() {
+        given:
+        def taskDurationHistory = Stub(TaskDurationHistory) {
+            getDurationsMillis(_) >> { Collection<String> paths -> paths.collectEntries { [it, it.endsWith("c") ? 10L : 1L] } }
+        }
+        executionPlan = createExecutionPlan(taskDurationHistory)
+        Task a = task("a", type: Async)
+        Task b = task("b", type: Async)
+        Task c = task("c", type: Async, shouldRunAfter: [a])
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+
+        then:
+        assertTasksReady(a, c, b)
+        assertAllWorkComplete()
+    }
+
     private void tasksAreNotExecutedInParallel(Task first, Task second) {
         addToGraphAndPopulate(first, second)
 
@@ -172,6 +172,11 @@ class TestUtil {
                             def algo = algorithm.toLowerCase().replaceAll('-', '')
                             Hashing."$algo"().hashBytes(src.bytes)
                         }
+
+                        @Override
+                        Map<String, HashCode> hashAll(File src, Collection<String> algorithms) {
+                            algorithms.collectEntries { [it, hash(src, it)] }
+                        }
                     }
                 }
             })
@@ -89,6 +89,7 @@
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolvedComponentsHistory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionDescriptorFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DesugaredAttributeContainerSerializer;
@@ -587,7 +588,8 @@ ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory re
                                                                 ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor,
                                                                 InstantiatorFactory instantiatorFactory,
                                                                 ComponentSelectionDescriptorFactory componentSelectionDescriptorFactory,
-                                                                CalculatedValueContainerFactory calculatedValueContainerFactory) {
+                                                                CalculatedValueContainerFactory calculatedValueContainerFactory,
+                                                                ResolvedComponentsHistory resolvedComponentsHistory) {
         return new DefaultArtifactDependencyResolver(
             buildOperationExecutor,
             resolverFactories,
@@ -603,7 +605,12 @@ ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory re
             componentMetadataSupplierRuleExecutor,
             instantiatorFactory,
             componentSelectionDescriptorFactory,
-            calculatedValueContainerFactory);
+            calculatedValueContainerFactory,
+            resolvedComponentsHistory);
+    }
+
+    ResolvedComponentsHistory createResolvedComponentsHistory(BuildScopedCache buildScopedCache) {
+        return new ResolvedComponentsHistory(buildScopedCache);
     }
 
     ProjectPublicationRegistry createProjectPublicationRegistry() {
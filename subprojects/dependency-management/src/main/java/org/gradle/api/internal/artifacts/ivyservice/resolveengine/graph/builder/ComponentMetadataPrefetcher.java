@@ -0,0 +1,462 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.DependencySubstitutionInternal;
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.descriptor.MavenScope;
+import org.gradle.internal.component.external.model.ComponentVariant;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector;
+import org.gradle.internal.component.external.model.GradleDependencyMetadata;
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor;
+import org.gradle.internal.component.external.model.maven.MavenModuleResolveMetadata;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches the metadata of components speculatively, before the graph traversal gets to them.
+ *
+ * <p>Whenever the metadata of a component becomes available, the modules it depends on with a fixed version are queued for prefetching,
+ * so the metadata of a deep graph is fetched level by level without waiting for the traversal.
+ * Dependencies excluded by the configuration or by the dependencies leading to them are not prefetched, and dependency substitution rules
+ * are applied to the others first. As the rules are not thread safe, dependencies found by a prefetch wait for the next time the traversal
+ * calls this resolver to have the rules applied. Only one version of each module is prefetched, as conflict resolution picks one anyway,
+ * and a module the traversal has resolved is not prefetched at another version.
+ * The components the graph contained when it was last resolved can be queued up front, see {@link ResolvedComponentsHistory}.
+ * At most {@link #PREFETCH_CONCURRENCY_PROPERTY} components are fetched at the same time.</p>
+ *
+ * <p>The traversal still requests the metadata it needs in its own order, through this resolver.
+ * A prefetched result is used when the traversal requests the same component without overrides, otherwise the component is resolved as usual.
+ * A component which is requested before its prefetch has started is resolved by the traversal itself,
+ * so the traversal never waits for queued work. As the results come from the same resolver either way, the resulting graph does not change.</p>
+ */
+class ComponentMetadataPrefetcher implements ComponentMetaDataResolver {
+    public static final String PREFETCH_CONCURRENCY_PROPERTY = "org.gradle.internal.dependency-resolution.metadata-prefetch-concurrency";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComponentMetadataPrefetcher.class);
+
+    private enum State { QUEUED, RUNNING, DONE, CLAIMED }
+
+    private final ComponentMetaDataResolver delegate;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ModuleExclusions moduleExclusions;
+    private final DependencySubstitutionApplicator dependencySubstitutionApplicator;
+    private final int maxConcurrency;
+    private final Map<ComponentIdentifier, Prefetch> prefetches = new HashMap<>();
+    private final Map<ModuleIdentifier, String> moduleVersions = new HashMap<>();
+    private final Deque<Prefetch> pending = new ArrayDeque<>();
+    private final Deque<Candidate> unsubstituted = new ArrayDeque<>();
+    private BuildOperationQueue<RunnableBuildOperation> queue;
+    private ExcludeSpec rootExclusions;
+    private Thread resolutionThread;
+    private int inFlight;
+    private int maxInFlight;
+    private int expectedCount;
+    private int fetchedCount;
+    private int usedCount;
+    private long waitTimeNanos;
+
+    ComponentMetadataPrefetcher(ComponentMetaDataResolver delegate, VersionSelectorScheme versionSelectorScheme, ModuleExclusions moduleExclusions, DependencySubstitutionApplicator dependencySubstitutionApplicator, int maxConcurrency) {
+        this.delegate = delegate;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleExclusions = moduleExclusions;
+        this.dependencySubstitutionApplicator = dependencySubstitutionApplicator;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Returns the configured number of components to prefetch concurrently, or 0 when prefetching is disabled.
+     */
+    static int getConfiguredConcurrency() {
+        return Math.max(0, Integer.getInteger(PREFETCH_CONCURRENCY_PROPERTY, 0));
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Starts prefetching, running the fetches as operations of the given queue. Must be called by the thread which traverses the graph.
+     *
+     * @param rootExclusions the exclusions of the root configuration, which apply to all dependencies
+     */
+    synchronized void start(BuildOperationQueue<RunnableBuildOperation> queue, ExcludeSpec rootExclusions) {
+        this.queue = queue;
+        this.rootExclusions = rootExclusions;
+        this.resolutionThread = Thread.currentThread();
+    }
+
+    /**
+     * Stops prefetching. Fetches which have not started yet are skipped.
+     */
+    synchronized void stop() {
+        queue = null;
+        pending.clear();
+        unsubstituted.clear();
+    }
+
+    @Override
+    public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+        substituteFoundDependencies();
+        DefaultBuildableComponentResolveResult prefetched = componentOverrideMetadata == DefaultComponentOverrideMetadata.EMPTY ? claim(identifier) : null;
+        if (prefetched != null) {
+            for (String location : prefetched.getAttempted()) {
+                result.attempted(location);
+            }
+            result.resolved(prefetched.getMetadata());
+            return;
+        }
+        delegate.resolve(identifier, componentOverrideMetadata, result);
+        ExcludeSpec rootExclusions = getRootExclusions();
+        if (rootExclusions != null && result.hasResult() && result.getFailure() == null) {
+            // The path the traversal took to this component is not known, so only the exclusions of the root configuration apply
+            prefetchDependenciesOf(result.getMetadata(), rootExclusions);
+        }
+    }
+
+    @Override
+    public boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+        // A prefetched result can only be used when the component is resolved without overrides, which are not known here
+        return delegate.isFetchingMetadataCheap(identifier);
+    }
+
+    /**
+     * Returns true when the metadata of the given component, resolved with the given overrides, is either prefetched or cheap to fetch.
+     */
+    boolean isFetchingMetadataCheap(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata) {
+        substituteFoundDependencies();
+        if (componentOverrideMetadata == DefaultComponentOverrideMetadata.EMPTY) {
+            synchronized (this) {
+                Prefetch prefetch = prefetches.get(identifier);
+                if (prefetch != null && prefetch.state == State.DONE && prefetch.result != null) {
+                    return true;
+                }
+            }
+        }
+        return delegate.isFetchingMetadataCheap(identifier);
+    }
+
+    /**
+     * Takes the successful prefetched result for the given component, if any. Waits for the prefetch when it is running.
+     */
+    @Nullable
+    private synchronized DefaultBuildableComponentResolveResult claim(ComponentIdentifier identifier) {
+        if (identifier instanceof ModuleComponentIdentifier) {
+            // The traversal selected this version of the module, so do not prefetch any other
+            ModuleComponentIdentifier moduleComponentIdentifier = (ModuleComponentIdentifier) identifier;
+            moduleVersions.put(moduleComponentIdentifier.getModuleIdentifier(), moduleComponentIdentifier.getVersion());
+        }
+        Prefetch prefetch = prefetches.get(identifier);
+        if (prefetch == null) {
+            // Resolved by the traversal, so there is no need to prefetch it later
+            prefetches.put(identifier, new Prefetch(identifier, null, State.CLAIMED));
+            return null;
+        }
+        if (prefetch.state == State.RUNNING) {
+            long startTime = System.nanoTime();
+            while (prefetch.state == State.RUNNING) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            waitTimeNanos += System.nanoTime() - startTime;
+        }
+        if (prefetch.state == State.DONE && prefetch.result != null) {
+            DefaultBuildableComponentResolveResult result = prefetch.result;
+            // Do not hold on to the result, as the traversal keeps the metadata it needs
+            prefetch.result = null;
+            prefetch.state = State.CLAIMED;
+            usedCount++;
+            return result;
+        }
+        // Not started, or failed, in which case the traversal resolves the component to report the failure as usual
+        pending.remove(prefetch);
+        prefetch.state = State.CLAIMED;
+        return null;
+    }
+
+    private void prefetchDependenciesOf(ComponentResolveMetadata metadata, ExcludeSpec exclusions) {
+        // Only use the declared dependencies, which are immutable and can be read while the traversal uses the metadata
+        if (metadata instanceof MavenModuleResolveMetadata) {
+            for (MavenDependencyDescriptor dependency : ((MavenModuleResolveMetadata) metadata).getDependencies()) {
+                MavenScope scope = dependency.getScope();
+                if (!dependency.isOptional() && !dependency.isConstraint() && (scope == MavenScope.Compile || scope == MavenScope.Runtime)) {
+                    maybePrefetch(dependency.getSelector(), dependency.getAllExcludes(), exclusions);
+                }
+            }
+        } else if (metadata instanceof ModuleComponentResolveMetadata) {
+            for (ComponentVariant variant : ((ModuleComponentResolveMetadata) metadata).getVariants()) {
+                for (ComponentVariant.Dependency dependency : variant.getDependencies()) {
+                    ModuleComponentSelector selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId(dependency.getGroup(), dependency.getModule()), dependency.getVersionConstraint(), dependency.getAttributes(), dependency.getRequestedCapabilities());
+                    maybePrefetch(selector, dependency.getExcludes(), exclusions);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prefetches the target of the given dependency, unless it is excluded.
+     *
+     * @param excludes the excludes declared by the dependency, which apply to its own dependencies
+     * @param exclusions the exclusions which apply to the dependency
+     */
+    private void maybePrefetch(ModuleComponentSelector selector, List<ExcludeMetadata> excludes, ExcludeSpec exclusions) {
+        if (exclusions.excludes(selector.getModuleIdentifier())) {
+            return;
+        }
+        ExcludeSpec dependencyExclusions = excludes.isEmpty() ? exclusions : moduleExclusions.excludeAny(exclusions, moduleExclusions.excludeAny(excludes));
+        if (dependencySubstitutionApplicator == DependencySubstitutionApplicator.NO_OP) {
+            maybePrefetch(selector, dependencyExclusions);
+        } else if (Thread.currentThread() == resolutionThread) {
+            substituteAndPrefetch(new Candidate(selector, dependencyExclusions));
+        } else {
+            synchronized (this) {
+                if (queue != null) {
+                    unsubstituted.add(new Candidate(selector, dependencyExclusions));
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the dependency substitution rules to the dependencies found by prefetches, and prefetches their targets.
+     * Does nothing unless called by the thread which traverses the graph, as the rules are not thread safe.
+     */
+    private void substituteFoundDependencies() {
+        if (Thread.currentThread() != resolutionThread) {
+            return;
+        }
+        while (true) {
+            Candidate candidate;
+            synchronized (this) {
+                candidate = unsubstituted.poll();
+            }
+            if (candidate == null) {
+                return;
+            }
+            substituteAndPrefetch(candidate);
+        }
+    }
+
+    private void substituteAndPrefetch(Candidate candidate) {
+        // The substitution rules only look at the selector and the requested artifacts
+        DependencySubstitutionApplicator.SubstitutionResult substitutionResult = dependencySubstitutionApplicator.apply(new GradleDependencyMetadata(candidate.selector, ImmutableList.of(), false, false, null, false, (IvyArtifactName) null));
+        if (substitutionResult.hasFailure()) {
+            // The traversal reports the failure
+            return;
+        }
+        DependencySubstitutionInternal details = substitutionResult.getResult();
+        ComponentSelector target = details != null && details.isUpdated() ? details.getTarget() : candidate.selector;
+        if (target instanceof ModuleComponentSelector) {
+            maybePrefetch((ModuleComponentSelector) target, candidate.exclusions);
+        }
+    }
+
+    private void maybePrefetch(ModuleComponentSelector selector, ExcludeSpec exclusions) {
+        String version = selector.getVersionConstraint().getRequiredVersion();
+        if (version.isEmpty() || versionSelectorScheme.parseSelector(version).isDynamic()) {
+            return;
+        }
+        schedule(DefaultModuleComponentIdentifier.newId(selector.getModuleIdentifier(), version), exclusions);
+    }
+
+    /**
+     * Returns the exclusions of the root configuration, or null when not prefetching.
+     */
+    @Nullable
+    private synchronized ExcludeSpec getRootExclusions() {
+        return queue != null ? rootExclusions : null;
+    }
+
+    /**
+     * Prefetches the metadata of the given components, which the graph is expected to contain, in the given order.
+     */
+    void prefetchAll(Collection<? extends ComponentIdentifier> identifiers) {
+        ExcludeSpec rootExclusions = getRootExclusions();
+        if (rootExclusions == null) {
+            return;
+        }
+        for (ComponentIdentifier identifier : identifiers) {
+            if (schedule(identifier, rootExclusions)) {
+                synchronized (this) {
+                    expectedCount++;
+                }
+            }
+        }
+    }
+
+    private synchronized boolean schedule(ComponentIdentifier identifier, ExcludeSpec exclusions) {
+        if (queue == null || prefetches.containsKey(identifier)) {
+            return false;
+        }
+        if (identifier instanceof ModuleComponentIdentifier) {
+            ModuleComponentIdentifier moduleComponentIdentifier = (ModuleComponentIdentifier) identifier;
+            String version = moduleVersions.putIfAbsent(moduleComponentIdentifier.getModuleIdentifier(), moduleComponentIdentifier.getVersion());
+            if (version != null && !version.equals(moduleComponentIdentifier.getVersion())) {
+                return false;
+            }
+        }
+        Prefetch prefetch = new Prefetch(identifier, exclusions, State.QUEUED);
+        prefetches.put(identifier, prefetch);
+        if (inFlight < maxConcurrency) {
+            submit(prefetch);
+        } else {
+            pending.add(prefetch);
+        }
+        return true;
+    }
+
+    private void submit(Prefetch prefetch) {
+        inFlight++;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+        queue.add(prefetch);
+    }
+
+    private synchronized void submitNext() {
+        inFlight--;
+        if (queue != null && !pending.isEmpty()) {
+            submit(pending.remove());
+        }
+    }
+
+    synchronized PrefetchComponentMetadataBuildOperationType.Result getResult() {
+        int expectedComponents = expectedCount;
+        int prefetchedComponents = fetchedCount;
+        int usedComponents = usedCount;
+        int requestsInFlight = maxInFlight;
+        long waitTimeMillis = waitTimeNanos / 1_000_000;
+        return new PrefetchComponentMetadataBuildOperationType.Result() {
+            @Override
+            public int getExpectedComponentCount() {
+                return expectedComponents;
+            }
+
+            @Override
+            public int getPrefetchedComponentCount() {
+                return prefetchedComponents;
+            }
+
+            @Override
+            public int getUsedPrefetchedComponentCount() {
+                return usedComponents;
+            }
+
+            @Override
+            public int getMaxRequestsInFlight() {
+                return requestsInFlight;
+            }
+
+            @Override
+            public long getWaitTimeMillis() {
+                return waitTimeMillis;
+            }
+        };
+    }
+
+    private static class Candidate {
+        private final ModuleComponentSelector selector;
+        private final ExcludeSpec exclusions;
+
+        Candidate(ModuleComponentSelector selector, ExcludeSpec exclusions) {
+            this.selector = selector;
+            this.exclusions = exclusions;
+        }
+    }
+
+    private class Prefetch implements RunnableBuildOperation {
+        private final ComponentIdentifier identifier;
+        private final ExcludeSpec exclusions;
+        private State state;
+        private DefaultBuildableComponentResolveResult result;
+
+        Prefetch(ComponentIdentifier identifier, @Nullable ExcludeSpec exclusions, State state) {
+            this.identifier = identifier;
+            this.exclusions = exclusions;
+            this.state = state;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            synchronized (ComponentMetadataPrefetcher.this) {
+                if (state != State.QUEUED || queue == null) {
+                    submitNext();
+                    return;
+                }
+                state = State.RUNNING;
+            }
+            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+            try {
+                delegate.resolve(identifier, DefaultComponentOverrideMetadata.EMPTY, result);
+            } catch (Exception e) {
+                // A failed prefetch is ignored, and the component is resolved again if the traversal needs it
+                LOGGER.debug("Could not prefetch metadata of {}.", identifier, e);
+            }
+            boolean resolved = result.hasResult() && result.getFailure() == null;
+            synchronized (ComponentMetadataPrefetcher.this) {
+                state = State.DONE;
+                if (resolved) {
+                    this.result = result;
+                    fetchedCount++;
+                }
+                ComponentMetadataPrefetcher.this.notifyAll();
+                submitNext();
+            }
+            if (resolved) {
+                prefetchDependenciesOf(result.getMetadata(), exclusions);
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Prefetch metadata of " + identifier);
+        }
+    }
+}
@@ -190,15 +190,7 @@ public void resolve() {
             return;
         }
 
-        ComponentOverrideMetadata componentOverrideMetadata;
-        if (selectors != null && selectors.size() > 0) {
-            // Taking the first selector here to determine the 'changing' status and 'client module' is our best bet to get the selector that will most likely be chosen in the end.
-            // As selectors are sorted accordingly (see ModuleSelectors.SELECTOR_COMPARATOR).
-            SelectorState firstSelector = selectors.first();
-            componentOverrideMetadata = DefaultComponentOverrideMetadata.forDependency(firstSelector.isChanging(), selectors.getFirstDependencyArtifact(), firstSelector.getClientModule());
-        } else {
-            componentOverrideMetadata = DefaultComponentOverrideMetadata.EMPTY;
-        }
+        ComponentOverrideMetadata componentOverrideMetadata = getComponentOverrideMetadata();
         DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
         if (tryResolveVirtualPlatform()) {
             return;
@@ -212,6 +204,19 @@ public void resolve() {
         metadata = result.getMetadata();
     }
 
+    /**
+     * Returns the overrides the metadata of this component is resolved with.
+     */
+    ComponentOverrideMetadata getComponentOverrideMetadata() {
+        if (selectors != null && selectors.size() > 0) {
+            // Taking the first selector here to determine the 'changing' status and 'client module' is our best bet to get the selector that will most likely be chosen in the end.
+            // As selectors are sorted accordingly (see ModuleSelectors.SELECTOR_COMPARATOR).
+            SelectorState firstSelector = selectors.first();
+            return DefaultComponentOverrideMetadata.forDependency(firstSelector.isChanging(), selectors.getFirstDependencyArtifact(), firstSelector.getClientModule());
+        }
+        return DefaultComponentOverrideMetadata.EMPTY;
+    }
+
     private boolean tryResolveVirtualPlatform() {
         if (module.isVirtualPlatform()) {
             for (ComponentState version : module.getAllVersions()) {
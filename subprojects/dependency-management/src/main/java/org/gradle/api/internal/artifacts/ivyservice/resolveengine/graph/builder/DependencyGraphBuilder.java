@@ -26,12 +26,14 @@
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.capabilities.Capability;
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
 import org.gradle.api.internal.artifacts.ResolveContext;
 import org.gradle.api.internal.artifacts.ResolvedVersionConstraint;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.Version;
@@ -58,7 +60,10 @@
 import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.LongIdGenerator;
 import org.gradle.internal.operations.BuildOperationConstraint;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.resolve.ModuleVersionResolveException;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
@@ -97,6 +102,7 @@ public class DependencyGraphBuilder {
     private final Comparator<Version> versionComparator;
     private final VersionParser versionParser;
     private final ResolutionConflictTracker conflictTracker;
+    private final ResolvedComponentsHistory resolvedComponentsHistory;
 
     final static Spec<EdgeState> ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC = dependencyState -> dependencyState.getDependencyState().getDependency().isEndorsingStrictVersions();
     final static Spec<EdgeState> NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC = dependencyState -> !dependencyState.getDependencyState().getDependency().isEndorsingStrictVersions();
@@ -115,7 +121,8 @@ public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolve
                                   ImmutableAttributesFactory attributesFactory,
                                   VersionSelectorScheme versionSelectorScheme,
                                   Comparator<Version> versionComparator,
-                                  VersionParser versionParser) {
+                                  VersionParser versionParser,
+                                  @Nullable ResolvedComponentsHistory resolvedComponentsHistory) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
@@ -132,6 +139,7 @@ public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolve
         this.versionComparator = versionComparator;
         this.versionParser = versionParser;
         this.conflictTracker = new ResolutionConflictTracker(moduleConflictHandler, capabilitiesConflictHandler);
+        this.resolvedComponentsHistory = resolvedComponentsHistory;
     }
 
     public void resolve(final ResolveContext resolveContext, final DependencyGraphVisitor modelVisitor, boolean includeSyntheticDependencies) {
@@ -145,10 +153,18 @@ public void resolve(final ResolveContext resolveContext, final DependencyGraphVi
 
         List<? extends DependencyMetadata> syntheticDependencies = includeSyntheticDependencies ? syntheticDependenciesOf(rootModule, resolveContext.getName()) : Collections.emptyList();
 
-        final ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema, moduleExclusions, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme, versionComparator, versionParser, moduleConflictHandler.getResolver(), graphSize, resolveContext.getResolutionStrategy().getConflictResolution(), syntheticDependencies, conflictTracker);
+        int prefetchConcurrency = ComponentMetadataPrefetcher.getConfiguredConcurrency();
+        ComponentMetadataPrefetcher prefetcher = prefetchConcurrency > 0 ? new ComponentMetadataPrefetcher(metaDataResolver, versionSelectorScheme, moduleExclusions, dependencySubstitutionApplicator, prefetchConcurrency) : null;
+
+        final ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, prefetcher != null ? prefetcher : metaDataResolver, edgeFilter, attributesSchema, moduleExclusions, componentSelectorConverter, attributesFactory, dependencySubstitutionApplicator, versionSelectorScheme, versionComparator, versionParser, moduleConflictHandler.getResolver(), graphSize, resolveContext.getResolutionStrategy().getConflictResolution(), syntheticDependencies, conflictTracker);
 
         Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache = Maps.newHashMapWithExpectedSize(graphSize / 2);
-        traverseGraph(resolveState, componentIdentifierCache);
+        if (prefetcher != null) {
+            String historyKey = resolvedComponentsHistory != null && resolveContext instanceof ConfigurationInternal ? ((ConfigurationInternal) resolveContext).getIdentityPath().getPath() : null;
+            traverseGraphWhilePrefetching(resolveState, componentIdentifierCache, prefetcher, historyKey, resolveContext.getDisplayName());
+        } else {
+            traverseGraph(resolveState, componentIdentifierCache);
+        }
 
         validateGraph(resolveState, resolutionStrategy.isFailingOnDynamicVersions(), resolutionStrategy.isFailingOnChangingVersions());
 
@@ -177,6 +193,52 @@ private static int estimateSize(ResolveContext resolveContext) {
         return Math.max(10, estimate);
     }
 
+    /**
+     * Traverses the dependency graph while the prefetcher fetches the metadata of the components the graph is likely to contain.
+     * When a history key is given, the components selected by the last resolution are prefetched up front, and the selected components are recorded for the next resolution.
+     */
+    private void traverseGraphWhilePrefetching(final ResolveState resolveState, final Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, ComponentMetadataPrefetcher prefetcher, @Nullable String historyKey, String displayName) {
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                List<ComponentIdentifier> expectedComponents = historyKey != null ? resolvedComponentsHistory.getComponents(historyKey) : Collections.emptyList();
+                buildOperationExecutor.runAll(buildOperationQueue -> {
+                    prefetcher.start(buildOperationQueue, moduleExclusions.excludeAny(resolveState.getRoot().getMetadata().getExcludes()));
+                    try {
+                        prefetcher.prefetchAll(expectedComponents);
+                        traverseGraph(resolveState, componentIdentifierCache);
+                    } finally {
+                        prefetcher.stop();
+                    }
+                }, BuildOperationConstraint.UNCONSTRAINED);
+                if (historyKey != null) {
+                    List<ComponentIdentifier> selectedComponents = selectedModuleComponents(resolveState);
+                    if (!selectedComponents.equals(expectedComponents)) {
+                        resolvedComponentsHistory.storeComponents(historyKey, selectedComponents);
+                    }
+                }
+                context.setResult(prefetcher.getResult());
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Resolve dependency graph of " + displayName + " with metadata prefetching")
+                    .details((PrefetchComponentMetadataBuildOperationType.Details) prefetcher::getMaxConcurrency);
+            }
+        });
+    }
+
+    private static List<ComponentIdentifier> selectedModuleComponents(ResolveState resolveState) {
+        List<ComponentIdentifier> selectedComponents = Lists.newArrayList();
+        for (ModuleResolveState module : resolveState.getModules()) {
+            ComponentState selected = module.getSelected();
+            if (selected != null && selected.getComponentId() instanceof ModuleComponentIdentifier) {
+                selectedComponents.add(selected.getComponentId());
+            }
+        }
+        return selectedComponents;
+    }
+
     /**
      * Traverses the dependency graph, resolving conflicts and building the paths from the root configuration.
      */
@@ -259,7 +321,7 @@ private boolean resolveEdges(final NodeState node,
             return false;
         }
         if (performSelectionSerially(dependencies, dependencyFilter, resolveState, recomputeSelectors)) {
-            maybeDownloadMetadataInParallel(node, componentIdentifierCache, dependencies, dependencyFilter);
+            maybeDownloadMetadataInParallel(resolveState, node, componentIdentifierCache, dependencies, dependencyFilter);
             attachToTargetRevisionsSerially(dependencies, dependencyFilter);
             return true;
         } else {
@@ -333,7 +395,7 @@ private void checkForModuleConflicts(ResolveState resolveState, ModuleResolveSta
      * Prepares the resolution of edges, either serially or concurrently.
      * It uses a simple heuristic to determine if we should perform concurrent resolution, based on the number of edges, and whether they have unresolved metadata.
      */
-    private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, List<EdgeState> dependencies, Spec<EdgeState> dependencyFilter) {
+    private void maybeDownloadMetadataInParallel(ResolveState resolveState, NodeState node, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache, List<EdgeState> dependencies, Spec<EdgeState> dependencyFilter) {
         List<ComponentState> requiringDownload = null;
         for (EdgeState dependency : dependencies) {
             if (!dependencyFilter.isSatisfiedBy(dependency)) {
@@ -341,7 +403,7 @@ private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionId
             }
             ComponentState targetComponent = dependency.getTargetComponent();
             if (targetComponent != null && targetComponent.isSelected() && !targetComponent.alreadyResolved()) {
-                if (!metaDataResolver.isFetchingMetadataCheap(toComponentId(targetComponent.getId(), componentIdentifierCache))) {
+                if (!isFetchingMetadataCheap(resolveState.getMetaDataResolver(), targetComponent, toComponentId(targetComponent.getId(), componentIdentifierCache))) {
                     // Avoid initializing the list if there are no components requiring download (a common case)
                     if (requiringDownload == null) {
                         requiringDownload = Lists.newArrayList();
@@ -362,6 +424,14 @@ private void maybeDownloadMetadataInParallel(NodeState node, Map<ModuleVersionId
         }
     }
 
+    private static boolean isFetchingMetadataCheap(ComponentMetaDataResolver metaDataResolver, ComponentState component, ComponentIdentifier identifier) {
+        if (metaDataResolver instanceof ComponentMetadataPrefetcher) {
+            // Prefetched metadata is only used when the component is resolved without overrides
+            return ((ComponentMetadataPrefetcher) metaDataResolver).isFetchingMetadataCheap(identifier, component.getComponentOverrideMetadata());
+        }
+        return metaDataResolver.isFetchingMetadataCheap(identifier);
+    }
+
     private ComponentIdentifier toComponentId(ModuleVersionIdentifier id, Map<ModuleVersionIdentifier, ComponentIdentifier> componentIdentifierCache) {
         ComponentIdentifier identifier = componentIdentifierCache.get(id);
         if (identifier == null) {
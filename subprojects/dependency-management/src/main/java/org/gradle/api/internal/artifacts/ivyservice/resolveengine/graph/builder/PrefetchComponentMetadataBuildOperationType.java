@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Resolves a dependency graph while fetching the metadata of the components it is likely to contain ahead of the traversal.
+ *
+ * @see ComponentMetadataPrefetcher
+ */
+public interface PrefetchComponentMetadataBuildOperationType extends BuildOperationType<PrefetchComponentMetadataBuildOperationType.Details, PrefetchComponentMetadataBuildOperationType.Result> {
+
+    interface Details {
+        /**
+         * The maximum number of components whose metadata is prefetched at the same time.
+         */
+        int getMaxConcurrency();
+    }
+
+    interface Result {
+        /**
+         * The number of components queued for prefetching up front, as the graph contained them when it was last resolved.
+         */
+        int getExpectedComponentCount();
+
+        /**
+         * The number of components whose metadata was prefetched successfully.
+         */
+        int getPrefetchedComponentCount();
+
+        /**
+         * The number of prefetched components which were used by the traversal.
+         */
+        int getUsedPrefetchedComponentCount();
+
+        /**
+         * The largest number of components whose metadata was being prefetched at the same time.
+         */
+        int getMaxRequestsInFlight();
+
+        /**
+         * The time the traversal spent waiting for prefetches which were in progress.
+         */
+        long getWaitTimeMillis();
+    }
+}
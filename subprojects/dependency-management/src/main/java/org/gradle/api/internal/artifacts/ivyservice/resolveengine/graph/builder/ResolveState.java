@@ -157,6 +157,10 @@ Spec<? super DependencyMetadata> getEdgeFilter() {
         return edgeFilter;
     }
 
+    ComponentMetaDataResolver getMetaDataResolver() {
+        return metaDataResolver;
+    }
+
     RootNode getRoot() {
         return root;
     }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.scopes.BuildScopedCache;
+import org.gradle.internal.serialize.ListSerializer;
+import org.gradle.internal.service.scopes.Scopes;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * The module components selected by the last resolution of each configuration of a build.
+ *
+ * <p>Used to prefetch the metadata of the components a configuration is likely to resolve to, before the traversal of its graph discovers them,
+ * when metadata prefetching is enabled via {@link ComponentMetadataPrefetcher#PREFETCH_CONCURRENCY_PROPERTY}.
+ * The components are stored per configuration identity path in the persistent cache of the build. The cache is only opened when it is used.</p>
+ */
+@ServiceScope(Scopes.Build.class)
+public class ResolvedComponentsHistory implements Closeable {
+    private final BuildScopedCache cacheRepository;
+    private PersistentCache cache;
+    private PersistentIndexedCache<String, List<ComponentIdentifier>> components;
+
+    public ResolvedComponentsHistory(BuildScopedCache cacheRepository) {
+        this.cacheRepository = cacheRepository;
+    }
+
+    /**
+     * Returns the module components selected by the last resolution of the configuration, or an empty list when it has not been resolved before.
+     */
+    public List<ComponentIdentifier> getComponents(String configurationPath) {
+        List<ComponentIdentifier> result = getCache().getIfPresent(configurationPath);
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * Stores the module components selected by a resolution of the configuration.
+     */
+    public void storeComponents(String configurationPath, List<ComponentIdentifier> selectedComponents) {
+        getCache().put(configurationPath, selectedComponents);
+    }
+
+    private synchronized PersistentIndexedCache<String, List<ComponentIdentifier>> getCache() {
+        if (components == null) {
+            cache = cacheRepository
+                .cache("resolvedComponents")
+                .withDisplayName("resolved components cache")
+                .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
+                .open();
+            components = cache.createCache(PersistentIndexedCacheParameters.of("resolvedComponents", String.class, new ListSerializer<>(new ComponentIdentifierSerializer())));
+        }
+        return components;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (cache != null) {
+            cache.close();
+            cache = null;
+            components = null;
+        }
+    }
+}
@@ -195,13 +195,15 @@ private void verifySignature(SignatureVerificationService signatureVerificationS
 
     private void verifyChecksums(ChecksumService checksumService, File file, ArtifactVerificationMetadata verification, ArtifactVerificationResultBuilder builder) {
         List<Checksum> checksums = verification.getChecksums();
+        // Calculate all the checksums in a single pass over the file, instead of reading the file once per checksum
+        Map<String, HashCode> actualChecksums = checksumService.hashAll(file, checksums.stream().map(checksum -> checksum.getKind().getAlgorithm()).collect(Collectors.toList()));
         for (Checksum checksum : checksums) {
-            verifyChecksum(checksum.getKind(), file, checksum.getValue(), checksum.getAlternatives(), checksumService, builder);
+            String actualChecksum = actualChecksums.get(checksum.getKind().getAlgorithm()).toString();
+            verifyChecksum(checksum.getKind(), file, checksum.getValue(), checksum.getAlternatives(), actualChecksum, builder);
         }
     }
 
-    private static void verifyChecksum(ChecksumKind algorithm, File file, String expected, Set<String> alternatives, ChecksumService cache, ArtifactVerificationResultBuilder builder) {
-        String actualChecksum = checksumOf(algorithm, file, cache);
+    private static void verifyChecksum(ChecksumKind algorithm, File file, String expected, Set<String> alternatives, String actualChecksum, ArtifactVerificationResultBuilder builder) {
         if (expected.equals(actualChecksum)) {
             return;
         }
@@ -215,25 +217,6 @@ private static void verifyChecksum(ChecksumKind algorithm, File file, String exp
         builder.failWith(new ChecksumVerificationFailure(file, algorithm, expected, actualChecksum));
     }
 
-    private static String checksumOf(ChecksumKind algorithm, File file, ChecksumService cache) {
-        HashCode hashValue = null;
-        switch (algorithm) {
-            case md5:
-                hashValue = cache.md5(file);
-                break;
-            case sha1:
-                hashValue = cache.sha1(file);
-                break;
-            case sha256:
-                hashValue = cache.sha256(file);
-                break;
-            case sha512:
-                hashValue = cache.sha512(file);
-                break;
-        }
-        return hashValue.toString();
-    }
-
     public Collection<ComponentVerificationMetadata> getVerificationMetadata() {
         return verificationMetadata.values();
     }
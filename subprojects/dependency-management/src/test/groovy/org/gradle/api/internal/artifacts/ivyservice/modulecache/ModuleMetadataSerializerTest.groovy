@@ -47,6 +47,8 @@ import org.gradle.internal.resource.local.LocalFileStandInExternalResource
 import org.gradle.internal.resource.local.LocallyAvailableExternalResource
 import org.gradle.internal.serialize.InputStreamBackedDecoder
 import org.gradle.internal.serialize.OutputStreamBackedEncoder
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedDecoder
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedEncoder
 import org.gradle.util.AttributeTestUtil
 import org.gradle.util.TestUtil
 import spock.lang.Specification
@@ -94,6 +96,26 @@ class ModuleMetadataSerializerTest extends Specification {
 
     }
 
+    def "can write and re-read sample #sample.parentFile.name metadata file #sample.name with deduplicated strings"() {
+        given:
+        def metadata = parse(sample)
+        ByteArrayOutputStream baos = new ByteArrayOutputStream()
+        new StringDeduplicatingKryoBackedEncoder(baos).withCloseable { encoder ->
+            serializer.write(encoder, metadata.asImmutable(), Maps.newHashMap())
+        }
+
+        when:
+        def deserializedMetadata = new StringDeduplicatingKryoBackedDecoder(new ByteArrayInputStream(baos.toByteArray())).withCloseable { decoder ->
+            serializer.read(decoder, moduleIdentifierFactory, Maps.newHashMap())
+        }
+
+        then:
+        deserializedMetadata.asImmutable() == metadata.asImmutable()
+
+        where:
+        sample << sampleFiles()
+    }
+
     private MutableModuleComponentResolveMetadata deserialize(byte[] serializedForm) {
         serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(serializedForm)), moduleIdentifierFactory, Maps.newHashMap())
     }
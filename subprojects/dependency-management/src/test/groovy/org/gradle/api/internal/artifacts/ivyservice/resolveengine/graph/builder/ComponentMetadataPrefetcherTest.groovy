@@ -0,0 +1,289 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import com.google.common.collect.ImmutableList
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DependencySubstitutionInternal
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions
+import org.gradle.internal.component.external.descriptor.DefaultExclude
+import org.gradle.internal.component.external.descriptor.MavenScope
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.external.model.maven.MavenDependencyDescriptor
+import org.gradle.internal.component.external.model.maven.MavenDependencyType
+import org.gradle.internal.component.external.model.maven.MavenModuleResolveMetadata
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata
+import org.gradle.internal.component.model.ExcludeMetadata
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult
+import spock.lang.Specification
+
+class ComponentMetadataPrefetcherTest extends Specification {
+    def delegate = Mock(ComponentMetaDataResolver)
+    def moduleExclusions = new ModuleExclusions()
+    def queue = Mock(BuildOperationQueue)
+    def operations = []
+    def metadata = [:]
+
+    def setup() {
+        _ * queue.add(_) >> { RunnableBuildOperation operation -> operations << operation }
+        _ * delegate.resolve(_, _, _) >> { ComponentIdentifier id, overrides, BuildableComponentResolveResult result -> result.resolved(metadata[id]) }
+    }
+
+    def "prefetches fixed versions of the dependencies of a resolved component"() {
+        def prefetcher = prefetcher(10)
+        component("a", dependency("b", "1.0"), dependency("c", "[1.0,2.0)"), dependency("d", "1.0", MavenScope.Test), dependency("e", "1.0", MavenScope.Compile, true))
+        component("b", dependency("f", "1.0"))
+        component("f")
+
+        when:
+        resolve(prefetcher, "a")
+
+        then:
+        operations.size() == 1
+
+        when:
+        runOperations()
+
+        then:
+        operations.size() == 2
+        prefetcher.getResult().prefetchedComponentCount == 2
+    }
+
+    def "uses prefetched metadata instead of resolving the component again"() {
+        def prefetcher = prefetcher(10)
+        component("a", dependency("b", "1.0"))
+        component("b")
+        resolve(prefetcher, "a")
+        runOperations()
+
+        expect:
+        prefetcher.isFetchingMetadataCheap(id("b"), DefaultComponentOverrideMetadata.EMPTY)
+
+        when:
+        def result = resolve(prefetcher, "b")
+
+        then:
+        0 * delegate.resolve(_, _, _)
+        result.metadata == metadata[id("b")]
+        prefetcher.getResult().usedPrefetchedComponentCount == 1
+    }
+
+    def "does not report prefetched metadata as cheap to fetch when the component is resolved with overrides"() {
+        def prefetcher = prefetcher(10)
+        component("a", dependency("b", "1.0"))
+        component("b")
+        resolve(prefetcher, "a")
+        runOperations()
+
+        when:
+        def cheap = prefetcher.isFetchingMetadataCheap(id("b"), DefaultComponentOverrideMetadata.EMPTY.withChanging())
+
+        then:
+        1 * delegate.isFetchingMetadataCheap(id("b")) >> false
+        !cheap
+    }
+
+    def "does not prefetch excluded dependencies"() {
+        def prefetcher = prefetcher(10)
+        component("a", dependency("b", "1.0", MavenScope.Compile, false, [new DefaultExclude(DefaultModuleIdentifier.newId("org", "d"))]))
+        component("b", dependency("c", "1.0"), dependency("d", "1.0"))
+        component("c")
+
+        when:
+        resolve(prefetcher, "a")
+        runOperations()
+
+        then:
+        operations.size() == 2
+        prefetcher.getResult().prefetchedComponentCount == 2
+        !prefetcher.isFetchingMetadataCheap(id("d"), DefaultComponentOverrideMetadata.EMPTY)
+    }
+
+    def "does not prefetch dependencies excluded by the configuration"() {
+        def prefetcher = new ComponentMetadataPrefetcher(delegate, versionSelectorScheme(), moduleExclusions, DependencySubstitutionApplicator.NO_OP, 10)
+        prefetcher.start(queue, moduleExclusions.excludeAny([new DefaultExclude(DefaultModuleIdentifier.newId("org", "b"))]))
+        component("a", dependency("b", "1.0"))
+
+        when:
+        resolve(prefetcher, "a")
+
+        then:
+        operations.empty
+    }
+
+    def "prefetches the target of a substituted dependency"() {
+        def substitution = Stub(DependencySubstitutionInternal) {
+            isUpdated() >> true
+            getTarget() >> DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", "c"), "1.0")
+        }
+        def applicator = Stub(DependencySubstitutionApplicator) {
+            apply({ it.selector.module == "b" }) >> DependencySubstitutionApplicator.SubstitutionResult.of(substitution)
+            apply({ it.selector.module != "b" }) >> DependencySubstitutionApplicator.NO_OP_SUBSTITUTION_RESULT
+        }
+        def prefetcher = new ComponentMetadataPrefetcher(delegate, versionSelectorScheme(), moduleExclusions, applicator, 10)
+        prefetcher.start(queue, moduleExclusions.nothing())
+        component("a", dependency("b", "1.0"))
+        component("c")
+
+        when:
+        resolve(prefetcher, "a")
+        runOperations()
+
+        then:
+        operations.size() == 1
+        prefetcher.isFetchingMetadataCheap(id("c"), DefaultComponentOverrideMetadata.EMPTY)
+        !prefetcher.isFetchingMetadataCheap(id("b"), DefaultComponentOverrideMetadata.EMPTY)
+    }
+
+    def "does not prefetch another version of a module resolved by the traversal"() {
+        def prefetcher = prefetcher(10)
+        component("a", dependency("b", "2.0"))
+        component("b")
+        resolve(prefetcher, "b")
+
+        when:
+        resolve(prefetcher, "a")
+
+        then:
+        operations.empty
+    }
+
+    def "resolves a component requested before its prefetch starts"() {
+        def prefetcher = prefetcher(10)
+        component("a", dependency("b", "1.0"))
+        component("b")
+        resolve(prefetcher, "a")
+
+        when:
+        def result = resolve(prefetcher, "b")
+
+        then:
+        1 * delegate.resolve(id("b"), _, _) >> { ComponentIdentifier id, overrides, BuildableComponentResolveResult r -> r.resolved(metadata[id]) }
+        result.metadata == metadata[id("b")]
+
+        when:
+        runOperations()
+
+        then:
+        0 * delegate.resolve(_, _, _)
+        prefetcher.getResult().prefetchedComponentCount == 0
+    }
+
+    def "limits the number of concurrent prefetches"() {
+        def prefetcher = prefetcher(1)
+        component("a", dependency("b", "1.0"), dependency("c", "1.0"))
+        component("b")
+        component("c")
+
+        when:
+        resolve(prefetcher, "a")
+
+        then:
+        operations.size() == 1
+
+        when:
+        runOperations()
+
+        then:
+        operations.size() == 2
+        prefetcher.getResult().prefetchedComponentCount == 2
+        prefetcher.getResult().maxRequestsInFlight == 1
+    }
+
+    def "prefetches expected components up front"() {
+        def prefetcher = prefetcher(1)
+        component("a")
+        component("b")
+
+        when:
+        prefetcher.prefetchAll([id("a"), id("b"), id("a")])
+
+        then:
+        operations.size() == 1
+
+        when:
+        runOperations()
+
+        then:
+        operations.size() == 2
+        prefetcher.getResult().expectedComponentCount == 2
+        prefetcher.getResult().prefetchedComponentCount == 2
+    }
+
+    def "does not prefetch once stopped"() {
+        def prefetcher = prefetcher(10)
+        component("a", dependency("b", "1.0"))
+        component("b")
+        resolve(prefetcher, "a")
+
+        when:
+        prefetcher.stop()
+        runOperations()
+
+        then:
+        0 * delegate.resolve(_, _, _)
+        prefetcher.getResult().prefetchedComponentCount == 0
+    }
+
+    private ComponentMetadataPrefetcher prefetcher(int maxConcurrency) {
+        def prefetcher = new ComponentMetadataPrefetcher(delegate, versionSelectorScheme(), moduleExclusions, DependencySubstitutionApplicator.NO_OP, maxConcurrency)
+        prefetcher.start(queue, moduleExclusions.nothing())
+        return prefetcher
+    }
+
+    private static DefaultVersionSelectorScheme versionSelectorScheme() {
+        return new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+    }
+
+    private DefaultBuildableComponentResolveResult resolve(ComponentMetadataPrefetcher prefetcher, String module) {
+        def result = new DefaultBuildableComponentResolveResult()
+        prefetcher.resolve(id(module), DefaultComponentOverrideMetadata.EMPTY, result)
+        return result
+    }
+
+    private void runOperations() {
+        for (int i = 0; i < operations.size(); i++) {
+            operations[i].run(null)
+        }
+    }
+
+    private void component(String module, MavenDependencyDescriptor... dependencies) {
+        def component = Stub(MavenModuleResolveMetadata) {
+            getDependencies() >> ImmutableList.copyOf(dependencies)
+        }
+        metadata[id(module)] = component
+    }
+
+    private static MavenDependencyDescriptor dependency(String module, String version, MavenScope scope = MavenScope.Compile, boolean optional = false, List<ExcludeMetadata> excludes = []) {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", module), version)
+        return new MavenDependencyDescriptor(scope, optional ? MavenDependencyType.OPTIONAL_DEPENDENCY : MavenDependencyType.DEPENDENCY, selector, null, excludes)
+    }
+
+    private static ComponentIdentifier id(String module) {
+        return DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", module), "1.0")
+    }
+}
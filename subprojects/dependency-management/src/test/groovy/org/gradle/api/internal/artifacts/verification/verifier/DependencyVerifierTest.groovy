@@ -88,11 +88,32 @@ class DependencyVerifierTest extends Specification {
         verifier.verify(checksumService, signatureVerificationService, kind, artifact, artifactFile, null, result)
 
         then:
-        1 * checksumService.md5(artifactFile) >> hashCode
+        1 * checksumService.hashAll(artifactFile, ["MD5"]) >> ["MD5": hashCode]
         1 * signatureVerificationService.getPublicKeyService()
         0 * result.failWith(_)
     }
 
+    def "calculates all checksums of an artifact at once"() {
+        def componentId = DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "foo"), "1.0")
+        def sha256 = new Checksum(ChecksumKind.sha256, "my-sha256", [] as Set<String>, "")
+        def sha512 = new Checksum(ChecksumKind.sha512, "my-sha512", [] as Set<String>, "")
+        def verificationMetadata = new ImmutableComponentVerificationMetadata(componentId, [new ImmutableArtifactVerificationMetadata("foo-1.0.jar", [sha256, sha512], [] as Set, [] as Set)])
+        verifier = new DependencyVerifier([(componentId): verificationMetadata], new DependencyVerificationConfiguration(true, false, [], true, [], [] as Set, []), [])
+
+        when:
+        artifactFile.exists() >> true
+        verifier.verify(checksumService, signatureVerificationService, kind, new ModuleComponentFileArtifactIdentifier(componentId, "foo-1.0.jar"), artifactFile, null, result)
+
+        then:
+        1 * checksumService.hashAll(artifactFile, ["SHA-256", "SHA-512"]) >> [
+            "SHA-256": Mock(HashCode) { toString() >> "my-sha256" },
+            "SHA-512": Mock(HashCode) { toString() >> "other-sha512" }
+        ]
+        0 * checksumService._
+        1 * signatureVerificationService.getPublicKeyService()
+        1 * result.failWith({ it instanceof ChecksumVerificationFailure })
+    }
+
     private void artifact(String group, String name, String version) {
         artifact = new ModuleComponentFileArtifactIdentifier(
             DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId(group, name), version),
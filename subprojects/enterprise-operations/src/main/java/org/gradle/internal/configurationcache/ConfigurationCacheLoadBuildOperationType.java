@@ -29,6 +29,10 @@ public interface Details {
     }
 
     public interface Result {
+        /**
+         * The total size in bytes of the files of the loaded cache entry.
+         */
+        long getCacheEntrySize();
     }
 
 }
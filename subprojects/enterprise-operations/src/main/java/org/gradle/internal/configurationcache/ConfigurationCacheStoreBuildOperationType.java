@@ -29,6 +29,10 @@ public interface Details {
     }
 
     public interface Result {
+        /**
+         * The total size in bytes of the files of the stored cache entry.
+         */
+        long getCacheEntrySize();
     }
 
 }
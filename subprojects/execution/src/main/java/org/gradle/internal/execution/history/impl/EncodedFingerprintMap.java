@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ForwardingMap;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Fingerprints of a file collection loaded from the execution history, kept in their serialized form until first accessed.
+ *
+ * <p>Up-to-date checks usually only need to compare the root hashes of a property,
+ * so most loaded fingerprints are never decoded into {@link FileSystemLocationFingerprint} instances.
+ * Strings are deduplicated within the encoded form, which means an absolute path that is also used as the normalized path is stored once.
+ * Writing a map that was never decoded reuses the original bytes.</p>
+ */
+class EncodedFingerprintMap extends ForwardingMap<String, FileSystemLocationFingerprint> {
+    private final int size;
+    private final byte[] encoded;
+    private final FingerprintMapSerializer serializer;
+    private volatile Map<String, FileSystemLocationFingerprint> decoded;
+
+    EncodedFingerprintMap(int size, byte[] encoded, FingerprintMapSerializer serializer) {
+        this.size = size;
+        this.encoded = encoded;
+        this.serializer = serializer;
+    }
+
+    static byte[] encode(Map<String, FileSystemLocationFingerprint> fingerprints, FingerprintMapSerializer serializer) throws Exception {
+        if (fingerprints instanceof EncodedFingerprintMap) {
+            return ((EncodedFingerprintMap) fingerprints).encoded;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (StringDeduplicatingKryoBackedEncoder encoder = new StringDeduplicatingKryoBackedEncoder(outputStream, 512)) {
+            serializer.write(encoder, fingerprints);
+            encoder.flush();
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    protected Map<String, FileSystemLocationFingerprint> delegate() {
+        Map<String, FileSystemLocationFingerprint> result = decoded;
+        if (result == null) {
+            synchronized (this) {
+                result = decoded;
+                if (result == null) {
+                    result = decode();
+                    decoded = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, FileSystemLocationFingerprint> decode() {
+        try (StringDeduplicatingKryoBackedDecoder decoder = new StringDeduplicatingKryoBackedDecoder(new ByteArrayInputStream(encoded), Math.max(1, Math.min(encoded.length, 4096)))) {
+            return serializer.read(decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -44,10 +44,11 @@ public FileCollectionFingerprintSerializer(Interner<String> stringInterner) {
 
     @Override
     public FileCollectionFingerprint read(Decoder decoder) throws IOException {
-        Map<String, FileSystemLocationFingerprint> fingerprints = fingerprintMapSerializer.read(decoder);
-        if (fingerprints.isEmpty()) {
+        int fingerprintCount = decoder.readSmallInt();
+        if (fingerprintCount == 0) {
             return FileCollectionFingerprint.EMPTY;
         }
+        Map<String, FileSystemLocationFingerprint> fingerprints = new EncodedFingerprintMap(fingerprintCount, decoder.readBinary(), fingerprintMapSerializer);
         ImmutableMultimap<String, HashCode> rootHashes = readRootHashes(decoder);
         HashCode strategyConfigurationHash = hashCodeSerializer.read(decoder);
         return new SerializableFileCollectionFingerprint(fingerprints, rootHashes, strategyConfigurationHash);
@@ -69,8 +70,10 @@ private ImmutableMultimap<String, HashCode> readRootHashes(Decoder decoder) thro
 
     @Override
     public void write(Encoder encoder, FileCollectionFingerprint value) throws Exception {
-        fingerprintMapSerializer.write(encoder, value.getFingerprints());
-        if (!value.getFingerprints().isEmpty()) {
+        Map<String, FileSystemLocationFingerprint> fingerprints = value.getFingerprints();
+        encoder.writeSmallInt(fingerprints.size());
+        if (!fingerprints.isEmpty()) {
+            encoder.writeBinary(EncodedFingerprintMap.encode(fingerprints, fingerprintMapSerializer));
             writeRootHashes(encoder, value.getRootHashes());
             hashCodeSerializer.write(encoder, ((SerializableFileCollectionFingerprint) value).getStrategyConfigurationHash());
         }
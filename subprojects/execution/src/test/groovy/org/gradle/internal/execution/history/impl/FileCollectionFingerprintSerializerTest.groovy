@@ -93,4 +93,30 @@ class FileCollectionFingerprintSerializerTest extends SerializerSpec {
         out.fingerprints.keySet() as List == ["/3", "/2", "/1"]
         out.rootHashes.keySet() as List == ["/3", "/2", "/1"]
     }
+
+    def "defers decoding fingerprints until they are accessed"() {
+        def rootHashes = ImmutableMultimap.of("/root", TestHashCodes.hashCodeFrom(1234))
+        when:
+        def out = serialize(new SerializableFileCollectionFingerprint(
+            "/root/a": new DefaultFileSystemLocationFingerprint("/root/a", FileType.RegularFile, TestHashCodes.hashCodeFrom(1)),
+            "/root/b": new DefaultFileSystemLocationFingerprint("/root/b", FileType.RegularFile, TestHashCodes.hashCodeFrom(2)),
+            rootHashes,
+            TestHashCodes.hashCodeFrom(5432)
+        ), serializer)
+
+        then:
+        out.rootHashes == rootHashes
+        out.fingerprints instanceof EncodedFingerprintMap
+        out.fingerprints.size() == 2
+        out.fingerprints.@decoded == null
+
+        when:
+        def reserialized = serialize(out, serializer)
+
+        then:
+        out.fingerprints.@decoded == null
+        reserialized.fingerprints.keySet() as List == ["/root/a", "/root/b"]
+        reserialized.fingerprints["/root/b"].normalizedContentHash == TestHashCodes.hashCodeFrom(2)
+        out.fingerprints.@decoded == null
+    }
 }
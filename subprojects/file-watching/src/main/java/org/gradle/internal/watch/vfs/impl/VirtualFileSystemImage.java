@@ -0,0 +1,386 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MissingFileSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.SnapshotHierarchy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An on-disk image of the snapshots retained by the virtual file system, so a new daemon does not need to snapshot unchanged locations again.
+ *
+ * <p>The image is written when the daemon stops, and only contains snapshots which still match the file system at that time.
+ * Besides the snapshots themselves, the image records the modification time of each directory, since adding or removing an entry changes it.
+ * Before a snapshot from the image is used again, every location in it is checked against the file system:
+ * regular files need to have the same length and modification time, directories the same modification time, and missing files must still be missing.
+ * Parts of a hierarchy that fail the check are dropped, while the unchanged parts are kept as separate snapshots.</p>
+ *
+ * <p>Locations accessed via symlinks are never persisted, since changes to the symlink target would not be detected.
+ * Neither are locations modified shortly before the image is written:
+ * a change to them may not have been reported by the file watchers yet, or may not have changed the timestamp due to its resolution.</p>
+ */
+public class VirtualFileSystemImage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualFileSystemImage.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final long MODIFICATION_GUARD_MILLIS = 2000;
+
+    private static final byte DIRECTORY = 0;
+    private static final byte REGULAR_FILE = 1;
+    private static final byte MISSING = 2;
+
+    private final File imageFile;
+    private final String contentHashIdentifier;
+
+    /**
+     * @param contentHashIdentifier identifies how file content hashes have been calculated, an image written with a different identifier is ignored.
+     */
+    public VirtualFileSystemImage(File imageFile, String contentHashIdentifier) {
+        this.imageFile = imageFile;
+        this.contentHashIdentifier = contentHashIdentifier;
+    }
+
+    /**
+     * Writes the snapshots of the given hierarchy which are still up-to-date, replacing any previous image.
+     */
+    public void write(SnapshotHierarchy root) {
+        CurrentStateValidator validator = new CurrentStateValidator(System.currentTimeMillis() - MODIFICATION_GUARD_MILLIS);
+        List<FileSystemLocationSnapshot> upToDateRoots = new ArrayList<>();
+        root.rootSnapshots().forEach(snapshot -> collectUpToDateRoots(snapshot, validator, upToDateRoots));
+        try {
+            Path imagePath = imageFile.toPath();
+            Files.createDirectories(imagePath.getParent());
+            Path tempFile = Files.createTempFile(imagePath.getParent(), imageFile.getName(), ".tmp");
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    output.writeInt(FORMAT_VERSION);
+                    output.writeUTF(contentHashIdentifier);
+                    output.writeInt(upToDateRoots.size());
+                    for (FileSystemLocationSnapshot snapshot : upToDateRoots) {
+                        output.writeUTF(snapshot.getAbsolutePath());
+                        writeEntry(snapshot, validator.directoryTimestamps, output);
+                    }
+                }
+                Files.move(tempFile, imagePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            LOGGER.debug("Wrote {} root snapshots of the virtual file system to {}", upToDateRoots.size(), imageFile);
+        } catch (IOException e) {
+            LOGGER.info("Unable to write the virtual file system image to {}", imageFile, e);
+        }
+    }
+
+    /**
+     * Reads the snapshots from the image, without checking them against the file system yet.
+     *
+     * @return the contents of the image, or {@code null} when there is no usable image.
+     */
+    @Nullable
+    public Contents read() {
+        if (!imageFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(imageFile.toPath())))) {
+            if (input.readInt() != FORMAT_VERSION || !contentHashIdentifier.equals(input.readUTF())) {
+                LOGGER.debug("Ignoring incompatible virtual file system image {}", imageFile);
+                return null;
+            }
+            int rootCount = input.readInt();
+            List<FileSystemLocationSnapshot> roots = new ArrayList<>(rootCount);
+            Map<String, Long> directoryTimestamps = new HashMap<>();
+            for (int i = 0; i < rootCount; i++) {
+                String absolutePath = input.readUTF();
+                String name = input.readUTF();
+                roots.add(readEntry(absolutePath, name, input, directoryTimestamps));
+            }
+            LOGGER.debug("Read {} root snapshots of the virtual file system from {}", rootCount, imageFile);
+            return new Contents(roots, directoryTimestamps);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Unable to read the virtual file system image from {}", imageFile, e);
+            return null;
+        }
+    }
+
+    private static void writeEntry(FileSystemLocationSnapshot snapshot, Map<String, Long> directoryTimestamps, DataOutputStream output) throws IOException {
+        output.writeUTF(snapshot.getName());
+        switch (snapshot.getType()) {
+            case Directory:
+                output.writeByte(DIRECTORY);
+                output.writeLong(directoryTimestamps.get(snapshot.getAbsolutePath()));
+                writeHash(snapshot.getHash(), output);
+                List<FileSystemLocationSnapshot> children = ((DirectorySnapshot) snapshot).getChildren();
+                output.writeInt(children.size());
+                for (FileSystemLocationSnapshot child : children) {
+                    writeEntry(child, directoryTimestamps, output);
+                }
+                break;
+            case RegularFile:
+                FileMetadata metadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                output.writeByte(REGULAR_FILE);
+                writeHash(snapshot.getHash(), output);
+                output.writeLong(metadata.getLength());
+                output.writeLong(metadata.getLastModified());
+                break;
+            case Missing:
+                output.writeByte(MISSING);
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private static FileSystemLocationSnapshot readEntry(String absolutePath, String name, DataInputStream input, Map<String, Long> directoryTimestamps) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case DIRECTORY:
+                directoryTimestamps.put(absolutePath, input.readLong());
+                HashCode directoryHash = readHash(input);
+                int childCount = input.readInt();
+                ImmutableList.Builder<FileSystemLocationSnapshot> children = ImmutableList.builderWithExpectedSize(childCount);
+                for (int i = 0; i < childCount; i++) {
+                    String childName = input.readUTF();
+                    children.add(readEntry(childPath(absolutePath, childName), childName, input, directoryTimestamps));
+                }
+                return new DirectorySnapshot(absolutePath, name, FileMetadata.AccessType.DIRECT, directoryHash, children.build());
+            case REGULAR_FILE:
+                HashCode fileHash = readHash(input);
+                long length = input.readLong();
+                long lastModified = input.readLong();
+                return new RegularFileSnapshot(absolutePath, name, fileHash, DefaultFileMetadata.file(lastModified, length, FileMetadata.AccessType.DIRECT));
+            case MISSING:
+                return new MissingFileSnapshot(absolutePath, name, FileMetadata.AccessType.DIRECT);
+            default:
+                throw new IOException("Unknown entry type " + type);
+        }
+    }
+
+    private static void writeHash(HashCode hash, DataOutputStream output) throws IOException {
+        byte[] bytes = hash.toByteArray();
+        output.writeByte(bytes.length);
+        output.write(bytes);
+    }
+
+    private static HashCode readHash(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readUnsignedByte()];
+        input.readFully(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+
+    private static String childPath(String parentPath, String childName) {
+        return parentPath.endsWith(File.separator)
+            ? parentPath + childName
+            : parentPath + File.separatorChar + childName;
+    }
+
+    /**
+     * Adds the snapshot to the up-to-date roots if it matches the file system entirely, or else its largest up-to-date descendants.
+     */
+    private static void collectUpToDateRoots(FileSystemLocationSnapshot snapshot, SnapshotValidator validator, List<FileSystemLocationSnapshot> upToDateRoots) {
+        if (collectUpToDateDescendants(snapshot, validator, upToDateRoots)) {
+            upToDateRoots.add(snapshot);
+        }
+    }
+
+    /**
+     * Checks whether the snapshot matches the file system entirely.
+     * If it does not, the largest up-to-date descendants are added to the up-to-date roots instead.
+     */
+    private static boolean collectUpToDateDescendants(FileSystemLocationSnapshot snapshot, SnapshotValidator validator, List<FileSystemLocationSnapshot> upToDateRoots) {
+        if (snapshot.getAccessType() != FileMetadata.AccessType.DIRECT) {
+            return false;
+        }
+        if (!(snapshot instanceof DirectorySnapshot)) {
+            return validator.isUpToDate(snapshot);
+        }
+        List<FileSystemLocationSnapshot> children = ((DirectorySnapshot) snapshot).getChildren();
+        boolean[] childUpToDate = new boolean[children.size()];
+        boolean allChildrenUpToDate = true;
+        for (int i = 0; i < childUpToDate.length; i++) {
+            childUpToDate[i] = collectUpToDateDescendants(children.get(i), validator, upToDateRoots);
+            allChildrenUpToDate &= childUpToDate[i];
+        }
+        if (allChildrenUpToDate && validator.isUpToDate(snapshot)) {
+            return true;
+        }
+        for (int i = 0; i < childUpToDate.length; i++) {
+            if (childUpToDate[i]) {
+                upToDateRoots.add(children.get(i));
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static BasicFileAttributes readAttributes(String absolutePath) {
+        try {
+            return Files.readAttributes(Paths.get(absolutePath), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isMissing(String absolutePath) {
+        try {
+            Files.readAttributes(Paths.get(absolutePath), BasicFileAttributes.class);
+            return false;
+        } catch (NoSuchFileException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private interface SnapshotValidator {
+        /**
+         * Checks whether the snapshot itself matches the file system, without looking at the children of a directory.
+         */
+        boolean isUpToDate(FileSystemLocationSnapshot snapshot);
+    }
+
+    /**
+     * Checks snapshots before writing the image, and records the modification times of directories.
+     */
+    private static class CurrentStateValidator implements SnapshotValidator {
+        private final long modifiedBefore;
+        private final Map<String, Long> directoryTimestamps = new HashMap<>();
+
+        public CurrentStateValidator(long modifiedBefore) {
+            this.modifiedBefore = modifiedBefore;
+        }
+
+        @Override
+        public boolean isUpToDate(FileSystemLocationSnapshot snapshot) {
+            String absolutePath = snapshot.getAbsolutePath();
+            switch (snapshot.getType()) {
+                case Directory:
+                    BasicFileAttributes directoryAttributes = readAttributes(absolutePath);
+                    if (directoryAttributes == null || !directoryAttributes.isDirectory()) {
+                        return false;
+                    }
+                    long lastModified = directoryAttributes.lastModifiedTime().toMillis();
+                    if (lastModified >= modifiedBefore) {
+                        return false;
+                    }
+                    directoryTimestamps.put(absolutePath, lastModified);
+                    return true;
+                case RegularFile:
+                    FileMetadata metadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                    return metadata.getLastModified() < modifiedBefore && isFileUpToDate(absolutePath, metadata.getLength(), metadata.getLastModified());
+                case Missing:
+                    return isMissing(absolutePath);
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    private static boolean isFileUpToDate(String absolutePath, long length, long lastModified) {
+        BasicFileAttributes attributes = readAttributes(absolutePath);
+        return attributes != null
+            && attributes.isRegularFile()
+            && attributes.size() == length
+            && attributes.lastModifiedTime().toMillis() == lastModified;
+    }
+
+    /**
+     * The snapshots read from an image.
+     *
+     * <p>Snapshots are handed out at most once, and only after checking them against the file system.</p>
+     */
+    public static class Contents {
+        private final List<FileSystemLocationSnapshot> roots;
+        private final Map<String, Long> directoryTimestamps;
+
+        private Contents(List<FileSystemLocationSnapshot> roots, Map<String, Long> directoryTimestamps) {
+            this.roots = roots;
+            this.directoryTimestamps = directoryTimestamps;
+        }
+
+        /**
+         * Removes the snapshots within the given hierarchy from the image contents.
+         *
+         * @return the parts of the removed snapshots which are still up-to-date.
+         */
+        public List<FileSystemLocationSnapshot> takeUpToDateSnapshotsWithin(File hierarchy) {
+            String hierarchyPath = hierarchy.getAbsolutePath();
+            List<FileSystemLocationSnapshot> snapshotsWithinHierarchy = new ArrayList<>();
+            for (Iterator<FileSystemLocationSnapshot> iterator = roots.iterator(); iterator.hasNext(); ) {
+                FileSystemLocationSnapshot snapshot = iterator.next();
+                if (isWithin(snapshot.getAbsolutePath(), hierarchyPath)) {
+                    snapshotsWithinHierarchy.add(snapshot);
+                    iterator.remove();
+                }
+            }
+            List<FileSystemLocationSnapshot> upToDateRoots = new ArrayList<>();
+            snapshotsWithinHierarchy.forEach(snapshot -> collectUpToDateRoots(snapshot, this::isUpToDate, upToDateRoots));
+            return upToDateRoots;
+        }
+
+        private static boolean isWithin(String path, String hierarchyPath) {
+            return path.startsWith(hierarchyPath)
+                && (path.length() == hierarchyPath.length() || path.charAt(hierarchyPath.length()) == File.separatorChar || hierarchyPath.endsWith(File.separator));
+        }
+
+        private boolean isUpToDate(FileSystemLocationSnapshot snapshot) {
+            String absolutePath = snapshot.getAbsolutePath();
+            switch (snapshot.getType()) {
+                case Directory:
+                    BasicFileAttributes attributes = readAttributes(absolutePath);
+                    Long recordedTimestamp = directoryTimestamps.get(absolutePath);
+                    return attributes != null
+                        && attributes.isDirectory()
+                        && recordedTimestamp != null
+                        && attributes.lastModifiedTime().toMillis() == recordedTimestamp;
+                case RegularFile:
+                    FileMetadata metadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                    return isFileUpToDate(absolutePath, metadata.getLength(), metadata.getLastModified());
+                case Missing:
+                    return isMissing(absolutePath);
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+}
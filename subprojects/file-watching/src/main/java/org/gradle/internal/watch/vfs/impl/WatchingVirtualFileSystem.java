@@ -24,6 +24,7 @@
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemNode;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.vfs.impl.AbstractVirtualFileSystem;
@@ -68,6 +69,8 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
     private final LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild;
     private final WatchableFileSystemDetector watchableFileSystemDetector;
     private final FileChangeListeners fileChangeListeners;
+    @Nullable
+    private final VirtualFileSystemImage image;
     private final List<File> unsupportedFileSystems = new ArrayList<>();
     private Logger warningLogger = LOGGER;
 
@@ -80,6 +83,17 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
     private Exception reasonForNotWatchingFiles;
     private boolean stateInvalidatedAtStartOfBuild;
 
+    /**
+     * Whether the {@link VirtualFileSystemImage} has already been considered, it is only read when watching starts for the first time.
+     */
+    private boolean imageRead;
+
+    /**
+     * Snapshots read from the {@link VirtualFileSystemImage}, which are restored when their watchable hierarchy is registered during the first build.
+     */
+    @Nullable
+    private VirtualFileSystemImage.Contents imageContents;
+
     public WatchingVirtualFileSystem(
         FileWatcherRegistryFactory watcherRegistryFactory,
         VfsRootReference rootReference,
@@ -87,6 +101,18 @@ public WatchingVirtualFileSystem(
         LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild,
         WatchableFileSystemDetector watchableFileSystemDetector,
         FileChangeListeners fileChangeListeners
+    ) {
+        this(watcherRegistryFactory, rootReference, daemonDocumentationIndex, locationsWrittenByCurrentBuild, watchableFileSystemDetector, fileChangeListeners, null);
+    }
+
+    public WatchingVirtualFileSystem(
+        FileWatcherRegistryFactory watcherRegistryFactory,
+        VfsRootReference rootReference,
+        DaemonDocumentationIndex daemonDocumentationIndex,
+        LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild,
+        WatchableFileSystemDetector watchableFileSystemDetector,
+        FileChangeListeners fileChangeListeners,
+        @Nullable VirtualFileSystemImage image
     ) {
         super(rootReference);
         this.watcherRegistryFactory = watcherRegistryFactory;
@@ -94,6 +120,9 @@ public WatchingVirtualFileSystem(
         this.locationsWrittenByCurrentBuild = locationsWrittenByCurrentBuild;
         this.watchableFileSystemDetector = watchableFileSystemDetector;
         this.fileChangeListeners = fileChangeListeners;
+        this.image = image;
+        // Without an image there is nothing to read
+        this.imageRead = image == null;
     }
 
     @Override
@@ -212,11 +241,57 @@ public void registerWatchableHierarchy(File watchableHierarchy) {
             }
             return withWatcherChangeErrorHandling(
                 currentRoot,
-                () -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, currentRoot)
+                () -> {
+                    watchRegistry.registerWatchableHierarchy(watchableHierarchy, currentRoot);
+                    return restoreSnapshotsFromImage(watchableHierarchy, currentRoot);
+                }
             );
         });
     }
 
+    @Override
+    public void invalidateAll() {
+        rootReference.update(currentRoot -> {
+            discardImage();
+            return currentRoot;
+        });
+        super.invalidateAll();
+    }
+
+    /**
+     * Restores the up-to-date snapshots from the image within a hierarchy which is now being watched.
+     *
+     * The snapshots are checked against the file system while holding the lock on the root,
+     * so file system events received in the meantime are only handled after the snapshots have been stored.
+     */
+    @CheckReturnValue
+    private SnapshotHierarchy restoreSnapshotsFromImage(File watchableHierarchy, SnapshotHierarchy currentRoot) {
+        if (imageContents == null) {
+            return currentRoot;
+        }
+        List<FileSystemLocationSnapshot> upToDateSnapshots = imageContents.takeUpToDateSnapshotsWithin(watchableHierarchy);
+        if (upToDateSnapshots.isEmpty()) {
+            return currentRoot;
+        }
+        LOGGER.debug("Restoring {} snapshots within {} from the virtual file system image", upToDateSnapshots.size(), watchableHierarchy);
+        return updateNotifyingListeners(diffListener -> {
+            SnapshotHierarchy newRoot = currentRoot;
+            for (FileSystemLocationSnapshot snapshot : upToDateSnapshots) {
+                String absolutePath = snapshot.getAbsolutePath();
+                // Prefer anything the current build already knows about the location
+                if (!newRoot.findMetadata(absolutePath).isPresent()) {
+                    newRoot = newRoot.store(absolutePath, snapshot, diffListener);
+                }
+            }
+            return newRoot;
+        });
+    }
+
+    private void discardImage() {
+        imageRead = true;
+        imageContents = null;
+    }
+
     @Override
     public void beforeBuildFinished(
         WatchMode watchMode,
@@ -229,6 +304,8 @@ public void beforeBuildFinished(
             @Override
             public SnapshotHierarchy call(BuildOperationContext context) {
                 watchableHierarchiesRegisteredEarly.clear();
+                // Only the first build benefits from the image, the remaining snapshots have not been used by it
+                discardImage();
                 if (watchMode.isEnabled()) {
                     if (reasonForNotWatchingFiles != null) {
                         // Log exception again so it doesn't get lost.
@@ -315,7 +392,14 @@ private SnapshotHierarchy startWatching(SnapshotHierarchy currentRoot, WatchMode
                     new BroadcastingChangeHandler()
                 )));
             SnapshotHierarchy newRoot = watchRegistry.updateVfsOnBuildStarted(currentRoot.empty(), watchMode, unsupportedFileSystems);
-            watchableHierarchiesRegisteredEarly.forEach(watchableHierarchy -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, newRoot));
+            if (!imageRead) {
+                imageRead = true;
+                imageContents = image.read();
+            }
+            for (File watchableHierarchy : watchableHierarchiesRegisteredEarly) {
+                watchRegistry.registerWatchableHierarchy(watchableHierarchy, newRoot);
+                newRoot = restoreSnapshotsFromImage(watchableHierarchy, newRoot);
+            }
             watchableHierarchiesRegisteredEarly.clear();
             return newRoot;
         } catch (Exception ex) {
@@ -507,6 +591,10 @@ private boolean hasDroppedStateBecauseOfErrorsReceivedWhileWatching(FileWatcherR
     public void close() {
         LOGGER.debug("Closing VFS, dropping state");
         rootReference.update(currentRoot -> {
+            // Only a watched file system is known to be up-to-date
+            if (image != null && watchRegistry != null) {
+                image.write(currentRoot);
+            }
             closeUnderLock();
             return currentRoot.empty();
         });
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl
+
+import org.gradle.internal.file.FileMetadata
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.internal.snapshot.CaseSensitivity
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
+import org.gradle.internal.snapshot.TestSnapshotFixture
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.internal.snapshot.SnapshotVisitorUtil.getAbsolutePaths
+
+class VirtualFileSystemImageTest extends Specification implements TestSnapshotFixture {
+
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def project = temporaryFolder.createDir("project")
+    def image = new VirtualFileSystemImage(temporaryFolder.file("vfs/vfs.bin"), "fileHashes")
+
+    def setup() {
+        project.createFile("src/a.txt") << "a"
+        project.createFile("src/sub/b.txt") << "b"
+        project.createFile("other/c.txt") << "c"
+        makeOld(project)
+    }
+
+    def "restores unchanged snapshots"() {
+        def snapshot = snapshot(project)
+        image.write(buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot]))
+
+        when:
+        def restored = image.read().takeUpToDateSnapshotsWithin(project)
+        then:
+        restored.size() == 1
+        getAbsolutePaths(restored[0]) == getAbsolutePaths(snapshot)
+        restored[0].hash == snapshot.hash
+    }
+
+    def "only keeps the unchanged parts of a hierarchy"() {
+        image.write(buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot(project)]))
+        def contents = image.read()
+
+        when:
+        project.file("src/sub/b.txt") << "changed"
+        project.createFile("other/d.txt") << "d"
+        def restored = contents.takeUpToDateSnapshotsWithin(project)
+        then:
+        restored*.absolutePath as Set == [project.file("src/a.txt").absolutePath, project.file("other/c.txt").absolutePath] as Set
+
+        when:
+        def restoredAgain = contents.takeUpToDateSnapshotsWithin(project)
+        then:
+        restoredAgain.empty
+    }
+
+    def "only restores snapshots within the given hierarchy"() {
+        image.write(buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot(project.file("src")), snapshot(project.file("other"))]))
+
+        when:
+        def restored = image.read().takeUpToDateSnapshotsWithin(project.file("other"))
+        then:
+        restored*.absolutePath == [project.file("other").absolutePath]
+    }
+
+    def "does not persist recently modified locations"() {
+        def recentFile = temporaryFolder.createFile("recent.txt") << "recent"
+        image.write(buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot(project), snapshot(recentFile)]))
+
+        when:
+        def restored = image.read().takeUpToDateSnapshotsWithin(temporaryFolder.testDirectory)
+        then:
+        restored*.absolutePath == [project.absolutePath]
+    }
+
+    def "does not persist locations accessed via symlinks"() {
+        def file = project.file("src/a.txt")
+        def viaSymlink = new RegularFileSnapshot(file.absolutePath, file.name, TestHashCodes.hashCodeFrom(1234), DefaultFileMetadata.file(file.lastModified(), file.length(), FileMetadata.AccessType.VIA_SYMLINK))
+        image.write(buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [viaSymlink]))
+
+        expect:
+        image.read().takeUpToDateSnapshotsWithin(project).empty
+    }
+
+    def "ignores image written with a different content hash"() {
+        image.write(buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot(project)]))
+
+        expect:
+        new VirtualFileSystemImage(temporaryFolder.file("vfs/vfs.bin"), "fileHashes-murmur3-128-v1").read() == null
+    }
+
+    def "ignores missing or corrupt image"() {
+        expect:
+        image.read() == null
+
+        when:
+        temporaryFolder.createFile("vfs/vfs.bin").text = "corrupt"
+        then:
+        image.read() == null
+    }
+
+    private FileSystemLocationSnapshot snapshot(TestFile file) {
+        if (file.directory) {
+            def children = file.listFiles().sort { it.name }.collect { snapshot(it) }
+            return new DirectorySnapshot(file.absolutePath, file.name, FileMetadata.AccessType.DIRECT, TestHashCodes.hashCodeFrom(file.absolutePath.hashCode()), children)
+        }
+        return new RegularFileSnapshot(file.absolutePath, file.name, TestHashCodes.hashCodeFrom(file.text.hashCode()), DefaultFileMetadata.file(file.lastModified(), file.length(), FileMetadata.AccessType.DIRECT))
+    }
+
+    private static void makeOld(TestFile file) {
+        file.listFiles().each { TestFile child -> makeOld(child) }
+        file.setLastModified(System.currentTimeMillis() - 10000)
+    }
+}
@@ -16,6 +16,8 @@
 package org.gradle.internal.hash;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Map;
 
 public interface ChecksumService {
     HashCode md5(File file);
@@ -27,4 +29,10 @@ public interface ChecksumService {
     HashCode sha512(File file);
 
     HashCode hash(File src, String algorithm);
+
+    /**
+     * Returns the checksums of the file for each of the given algorithms, keyed by algorithm.
+     * The file is read at most once, regardless of the number of algorithms.
+     */
+    Map<String, HashCode> hashAll(File src, Collection<String> algorithms);
 }
@@ -19,26 +19,55 @@
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
 
 public class DefaultFileHasher implements FileHasher {
+    /**
+     * Files of at least this size, in bytes, are hashed via {@link StreamHasher#hash(java.nio.channels.FileChannel)} instead of being copied through a stream.
+     */
+    public static final String CHANNEL_HASHING_THRESHOLD_PROPERTY = "org.gradle.internal.hash.channel-hashing-threshold";
+    private static final long DEFAULT_CHANNEL_HASHING_THRESHOLD = 8 * 1024 * 1024;
+    private static final long UNKNOWN_LENGTH = -1;
+
     private final StreamHasher streamHasher;
+    private final long channelHashingThreshold;
 
     public DefaultFileHasher(StreamHasher streamHasher) {
+        this(streamHasher, Long.getLong(CHANNEL_HASHING_THRESHOLD_PROPERTY, DEFAULT_CHANNEL_HASHING_THRESHOLD));
+    }
+
+    public DefaultFileHasher(StreamHasher streamHasher, long channelHashingThreshold) {
         this.streamHasher = streamHasher;
+        this.channelHashingThreshold = channelHashingThreshold;
     }
 
     @Override
     public HashCode hash(File file) {
-        InputStream inputStream;
+        return hash(file, UNKNOWN_LENGTH);
+    }
+
+    @Override
+    public HashCode hash(File file, long length, long lastModified) {
+        return hash(file, length);
+    }
+
+    private HashCode hash(File file, long length) {
+        FileInputStream inputStream;
         try {
             inputStream = new FileInputStream(file);
         } catch (FileNotFoundException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s' as it does not exist.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s' as it does not exist.", streamHasher.getHashFunction().getAlgorithm(), file), e);
         }
         try {
+            if (length == UNKNOWN_LENGTH) {
+                length = inputStream.getChannel().size();
+            }
+            if (length >= channelHashingThreshold) {
+                return streamHasher.hash(inputStream.getChannel());
+            }
             return streamHasher.hash(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to hash file '%s'.", file), e);
         } finally {
             try {
                 inputStream.close();
@@ -47,9 +76,4 @@ public HashCode hash(File file) {
             }
         }
     }
-
-    @Override
-    public HashCode hash(File file, long length, long lastModified) {
-        return hash(file);
-    }
 }
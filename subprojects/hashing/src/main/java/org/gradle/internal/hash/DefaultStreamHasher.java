@@ -21,20 +21,94 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultStreamHasher implements StreamHasher {
-    private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
+    /**
+     * Selects the hash function used for file contents, either {@code md5} (the default) or {@code murmur3}.
+     */
+    public static final String HASH_FUNCTION_PROPERTY = "org.gradle.internal.hash.file-content-hash-function";
+
+    /**
+     * Version of the hashes produced with a non-default hash function.
+     * Bump this whenever the way content is fed into the hash function changes, so hashes cached by older versions are not reused.
+     */
+    private static final int CONTENT_HASH_VERSION = 1;
+
+    /**
+     * Allows {@link #hash(FileChannel)} to memory-map the file instead of reading it into a direct buffer.
+     * Only safe when hashed files are not modified during the build, since reading a mapped file that is being truncated crashes the JVM.
+     * On Windows, a mapped file also cannot be deleted until the mapping is garbage collected.
+     */
+    public static final String MEMORY_MAPPED_HASHING_PROPERTY = "org.gradle.internal.hash.memory-mapped-hashing";
+
+    private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+    private static final long MAPPED_REGION_SIZE = 256 * 1024 * 1024;
 
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(16);
+    private final HashFunction hashFunction;
+    private final HashCode signature;
+    private final boolean memoryMapped;
+
+    public DefaultStreamHasher() {
+        this(Hashing.defaultFunction());
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction) {
+        this(hashFunction, memoryMappedHashingEnabled());
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction, boolean memoryMapped) {
+        this.hashFunction = hashFunction;
+        this.memoryMapped = memoryMapped;
+        this.signature = hashFunction == Hashing.defaultFunction()
+            ? Hashing.signature(DefaultStreamHasher.class)
+            : Hashing.signature(DefaultStreamHasher.class.getName() + ":" + getContentHashIdentifier(hashFunction));
+    }
+
+    /**
+     * Returns the hash function for file contents selected via {@value #HASH_FUNCTION_PROPERTY}.
+     */
+    public static HashFunction configuredHashFunction() {
+        String name = System.getProperty(HASH_FUNCTION_PROPERTY);
+        if (name == null || name.equals("md5")) {
+            return Hashing.defaultFunction();
+        }
+        if (name.equals("murmur3")) {
+            return Hashing.murmur3();
+        }
+        throw new IllegalArgumentException(String.format("Unknown file content hash function '%s' set via '%s', supported values are 'md5' and 'murmur3'.", name, HASH_FUNCTION_PROPERTY));
+    }
+
+    private static boolean memoryMappedHashingEnabled() {
+        return Boolean.getBoolean(MEMORY_MAPPED_HASHING_PROPERTY);
+    }
+
+    /**
+     * Returns an identifier for the hashes produced by a stream hasher using the given function, including the version of the hash format.
+     * Caches that store content hashes should be keyed by this identifier so switching the hash function does not reuse stale hashes.
+     */
+    public static String getContentHashIdentifier(HashFunction hashFunction) {
+        return hashFunction.getAlgorithm().toLowerCase(Locale.ROOT) + "-v" + CONTENT_HASH_VERSION;
+    }
+
+    @Override
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
             return doHash(inputStream, ByteStreams.nullOutputStream());
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file content.", hashFunction.getAlgorithm()), e);
         }
     }
 
@@ -43,11 +117,65 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
         return doHash(inputStream, outputStream);
     }
 
+    @Override
+    public HashCode hash(FileChannel channel) throws IOException {
+        PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+        hasher.putHash(signature);
+        if (memoryMapped) {
+            hashMapped(channel, hasher);
+        } else {
+            hashDirect(channel, hasher);
+        }
+        return hasher.hash();
+    }
+
+    private static void hashMapped(FileChannel channel, PrimitiveHasher hasher) throws IOException {
+        long position = channel.position();
+        long size = channel.size();
+        while (position < size) {
+            long regionSize = Math.min(MAPPED_REGION_SIZE, size - position);
+            hasher.putBytes(channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize));
+            position += regionSize;
+        }
+        channel.position(position);
+    }
+
+    private void hashDirect(FileChannel channel, PrimitiveHasher hasher) throws IOException {
+        ByteBuffer buffer = takeDirectBuffer();
+        try {
+            while (channel.read(buffer) >= 0) {
+                castBuffer(buffer).flip();
+                hasher.putBytes(buffer);
+                castBuffer(buffer).clear();
+            }
+        } finally {
+            castBuffer(buffer).clear();
+            directBuffers.offer(buffer);
+        }
+    }
+
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
+    /**
+     * Without this cast, when the code compiled by Java 9+ is executed on Java 8, it will throw
+     * java.lang.NoSuchMethodError: Method flip()Ljava/nio/ByteBuffer; does not exist in class java.nio.ByteBuffer
+     */
+    @SuppressWarnings("RedundantCast")
+    private static <T extends Buffer> Buffer castBuffer(T byteBuffer) {
+        return (Buffer) byteBuffer;
+    }
+
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
-            hasher.putHash(SIGNATURE);
+            PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+            hasher.putHash(signature);
             while (true) {
                 int nread = inputStream.read(buffer);
                 if (nread < 0) {
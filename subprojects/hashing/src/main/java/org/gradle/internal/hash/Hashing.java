@@ -47,6 +47,8 @@ private Hashing() {
 
     private static final HashFunction SHA512 = MessageDigestHashFunction.of("SHA-512");
 
+    private static final HashFunction MURMUR3 = new Murmur3HashFunction();
+
     private static final HashFunction DEFAULT = MD5;
 
     /**
@@ -143,35 +145,23 @@ public static HashFunction sha512() {
         return SHA512;
     }
 
-    private static abstract class MessageDigestHashFunction implements HashFunction {
+    /**
+     * 128-bit Murmur3 (x64 variant) hashing function.
+     *
+     * Not a cryptographic hash function, but considerably faster than MD5.
+     * Produces the same hashes as Guava's {@code Hashing.murmur3_128()}.
+     */
+    public static HashFunction murmur3() {
+        return MURMUR3;
+    }
+
+    private static abstract class AbstractHashFunction implements HashFunction {
         private final int hexDigits;
 
-        public MessageDigestHashFunction(int hashBits) {
+        public AbstractHashFunction(int hashBits) {
             this.hexDigits = hashBits / 4;
         }
 
-        public static MessageDigestHashFunction of(String algorithm) {
-            MessageDigest prototype;
-            try {
-                prototype = MessageDigest.getInstance(algorithm);
-            } catch (NoSuchAlgorithmException e) {
-                throw new IllegalArgumentException("Cannot instantiate digest algorithm: " + algorithm);
-            }
-            int hashBits = prototype.getDigestLength() * 8;
-            try {
-                prototype.clone();
-                return new CloningMessageDigestHashFunction(prototype, hashBits);
-            } catch (CloneNotSupportedException e) {
-                return new RegularMessageDigestHashFunction(algorithm, hashBits);
-            }
-        }
-
-        @Override
-        public PrimitiveHasher newPrimitiveHasher() {
-            MessageDigest digest = createDigest();
-            return new MessageDigestHasher(digest);
-        }
-
         @Override
         public Hasher newHasher() {
             return new DefaultHasher(newPrimitiveHasher());
@@ -209,8 +199,6 @@ private HashingOutputStream primitiveStreamHasher() {
             return new HashingOutputStream(this, ByteStreams.nullOutputStream());
         }
 
-        protected abstract MessageDigest createDigest();
-
         @Override
         public int getHexDigits() {
             return hexDigits;
@@ -222,6 +210,36 @@ public String toString() {
         }
     }
 
+    private static abstract class MessageDigestHashFunction extends AbstractHashFunction {
+        public MessageDigestHashFunction(int hashBits) {
+            super(hashBits);
+        }
+
+        public static MessageDigestHashFunction of(String algorithm) {
+            MessageDigest prototype;
+            try {
+                prototype = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Cannot instantiate digest algorithm: " + algorithm);
+            }
+            int hashBits = prototype.getDigestLength() * 8;
+            try {
+                prototype.clone();
+                return new CloningMessageDigestHashFunction(prototype, hashBits);
+            } catch (CloneNotSupportedException e) {
+                return new RegularMessageDigestHashFunction(algorithm, hashBits);
+            }
+        }
+
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            MessageDigest digest = createDigest();
+            return new MessageDigestHasher(digest);
+        }
+
+        protected abstract MessageDigest createDigest();
+    }
+
     private static class CloningMessageDigestHashFunction extends MessageDigestHashFunction {
         private final MessageDigest prototype;
 
@@ -298,6 +316,11 @@ public void putBytes(byte[] bytes, int off, int len) {
             getDigest().update(bytes, off, len);
         }
 
+        @Override
+        public void putBytes(ByteBuffer bytes) {
+            getDigest().update(bytes);
+        }
+
         private void update(int length) {
             getDigest().update(buffer.array(), 0, length);
             castBuffer(buffer).clear();
@@ -353,6 +376,228 @@ public HashCode hash() {
         }
     }
 
+    private static class Murmur3HashFunction extends AbstractHashFunction {
+        public Murmur3HashFunction() {
+            super(128);
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return "MURMUR3-128";
+        }
+
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            return new Murmur3Hasher();
+        }
+    }
+
+    /**
+     * Streaming implementation of the x64 128-bit variant of MurmurHash3 with a seed of 0.
+     *
+     * Input is consumed in 16 byte blocks. Primitive values are fed in little-endian byte order, like {@link MessageDigestHasher} does.
+     */
+    private static class Murmur3Hasher implements PrimitiveHasher {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long h1;
+        private long h2;
+        private long length;
+        private boolean done;
+
+        @Override
+        public void putByte(byte value) {
+            checkNotDone();
+            buffer.put(value);
+            length++;
+            processBufferIfFull();
+        }
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            length += len;
+            int end = off + len;
+            int pos = off;
+            if (buffer.position() > 0) {
+                int toCopy = Math.min(buffer.remaining(), len);
+                buffer.put(bytes, pos, toCopy);
+                pos += toCopy;
+                processBufferIfFull();
+            }
+            if (end - pos >= BLOCK_SIZE) {
+                ByteBuffer input = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                while (end - pos >= BLOCK_SIZE) {
+                    processBlock(input.getLong(pos), input.getLong(pos + 8));
+                    pos += BLOCK_SIZE;
+                }
+            }
+            if (pos < end) {
+                buffer.put(bytes, pos, end - pos);
+            }
+        }
+
+        @Override
+        public void putBytes(ByteBuffer bytes) {
+            if (bytes.hasArray()) {
+                int start = bytes.position();
+                int end = bytes.limit();
+                putBytes(bytes.array(), bytes.arrayOffset() + start, end - start);
+                MessageDigestHasher.castBuffer(bytes).position(end);
+                return;
+            }
+            checkNotDone();
+            // Read blocks straight from the buffer, so direct and memory-mapped buffers are not copied to the heap
+            ByteBuffer input = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int pos = input.position();
+            int end = input.limit();
+            length += end - pos;
+            while (buffer.position() > 0 && pos < end) {
+                buffer.put(input.get(pos++));
+                processBufferIfFull();
+            }
+            while (end - pos >= BLOCK_SIZE) {
+                processBlock(input.getLong(pos), input.getLong(pos + 8));
+                pos += BLOCK_SIZE;
+            }
+            while (pos < end) {
+                buffer.put(input.get(pos++));
+            }
+            MessageDigestHasher.castBuffer(bytes).position(end);
+        }
+
+        @Override
+        public void putInt(int value) {
+            if (buffer.remaining() < 4) {
+                putBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array());
+                return;
+            }
+            checkNotDone();
+            buffer.putInt(value);
+            length += 4;
+            processBufferIfFull();
+        }
+
+        @Override
+        public void putLong(long value) {
+            if (buffer.remaining() < 8) {
+                putBytes(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array());
+                return;
+            }
+            checkNotDone();
+            buffer.putLong(value);
+            length += 8;
+            processBufferIfFull();
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            hashCode.appendToHasher(this);
+        }
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher!");
+            }
+        }
+
+        private void processBufferIfFull() {
+            if (!buffer.hasRemaining()) {
+                processBlock(buffer.getLong(0), buffer.getLong(8));
+                MessageDigestHasher.castBuffer(buffer).clear();
+            }
+        }
+
+        private void processBlock(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            int remaining = buffer.position();
+            if (remaining > 0) {
+                long k1 = 0;
+                long k2 = 0;
+                for (int i = remaining - 1; i >= 8; i--) {
+                    k2 = (k2 << 8) | (buffer.get(i) & 0xFFL);
+                }
+                for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+                    k1 = (k1 << 8) | (buffer.get(i) & 0xFFL);
+                }
+                h1 ^= mixK1(k1);
+                h2 ^= mixK2(k2);
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            byte[] bytes = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+            return HashCode.fromBytes(bytes, SAFE_TO_REUSE_BYTES);
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+
     private static class DefaultHasher implements Hasher {
         private final PrimitiveHasher hasher;
 
@@ -18,6 +18,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 public interface StreamHasher {
     /**
@@ -30,4 +31,16 @@ public interface StreamHasher {
      * The method will not close either stream.
      */
     HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the hash of the contents of the given channel, from its current position up to its size.
+     * The hash is the same as the one returned by {@link #hash(InputStream)} for the same content.
+     * The channel will not be closed by the method.
+     */
+    HashCode hash(FileChannel channel) throws IOException;
+
+    /**
+     * Returns the hash function the contents are hashed with.
+     */
+    HashFunction getHashFunction();
 }
@@ -17,8 +17,14 @@
 package org.gradle.internal.hash
 
 import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
 
 class DefaultStreamHasherTest extends Specification {
+    @TempDir
+    File tempDir
     def "can hash input"() {
         def input = new ByteArrayInputStream("hello".bytes)
         when:
@@ -36,4 +42,72 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    def "hashes with another hash function are distinct from the default and from the plain content hash"() {
+        def streamHasher = new DefaultStreamHasher(Hashing.murmur3())
+
+        when:
+        def hash = streamHasher.hash(new ByteArrayInputStream("hello".bytes))
+        def copyHash = streamHasher.hashCopy(new ByteArrayInputStream("hello".bytes), new ByteArrayOutputStream())
+
+        then:
+        hash == copyHash
+        hash.length() == 16
+        hash != new DefaultStreamHasher().hash(new ByteArrayInputStream("hello".bytes))
+        hash != Hashing.murmur3().hashBytes("hello".bytes)
+    }
+
+    def "content hash identifier includes the algorithm and format version"() {
+        expect:
+        DefaultStreamHasher.getContentHashIdentifier(Hashing.murmur3()) == "murmur3-128-v1"
+    }
+
+    def "hashing a file channel produces the same hash as hashing a stream (memory mapped: #memoryMapped, #hashFunction)"() {
+        def content = new byte[length]
+        new Random(length).nextBytes(content)
+        def file = new File(tempDir, "content.bin")
+        file.bytes = content
+        def streamHasher = new DefaultStreamHasher(hashFunction, memoryMapped)
+
+        when:
+        def channelHash = FileChannel.open(file.toPath(), StandardOpenOption.READ).withCloseable { streamHasher.hash(it) }
+
+        then:
+        channelHash == streamHasher.hash(new ByteArrayInputStream(content))
+
+        where:
+        [memoryMapped, hashFunction, length] << [[true, false], [Hashing.md5(), Hashing.murmur3()], [0, 17, 65536, 200_003]].combinations()
+    }
+
+    def "file hasher hashes large files via a channel"() {
+        def file = new File(tempDir, "large.bin")
+        file.bytes = new byte[1024]
+        def streamHasher = Spy(DefaultStreamHasher)
+
+        when:
+        def hash = new DefaultFileHasher(streamHasher, 1024).hash(file)
+
+        then:
+        1 * streamHasher.hash(_ as FileChannel)
+        0 * streamHasher.hash(_ as InputStream)
+        hash == new DefaultStreamHasher().hash(new ByteArrayInputStream(new byte[1024]))
+
+        when:
+        new DefaultFileHasher(streamHasher, 1025).hash(file, 1024, 0)
+
+        then:
+        0 * streamHasher.hash(_ as FileChannel)
+        1 * streamHasher.hash(_ as InputStream)
+    }
+
+    def "file hasher reports the hash function when the file does not exist"() {
+        def file = new File(tempDir, "missing.bin")
+
+        when:
+        new DefaultFileHasher(new DefaultStreamHasher(Hashing.murmur3())).hash(file)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.message == "Failed to create MURMUR3-128 hash for file '${file}' as it does not exist."
+    }
 }
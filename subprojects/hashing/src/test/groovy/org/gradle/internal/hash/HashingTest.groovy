@@ -126,4 +126,62 @@ class HashingTest extends Specification {
         }
         hasher.hash()
     }
+
+    def 'murmur3 produces the same hashes as Guava for #length bytes'() {
+        given:
+        def bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+        def expected = com.google.common.hash.Hashing.murmur3_128().hashBytes(bytes).asBytes()
+
+        when:
+        def chunked = Hashing.murmur3().newPrimitiveHasher()
+        int offset = 0
+        int chunk = 1
+        while (offset < length) {
+            int len = Math.min(chunk, length - offset)
+            chunked.putBytes(bytes, offset, len)
+            offset += len
+            chunk = chunk * 2 + 1
+        }
+
+        then:
+        Hashing.murmur3().hashBytes(bytes).toByteArray() == expected
+        chunked.hash().toByteArray() == expected
+
+        where:
+        length << [0, 1, 7, 8, 15, 16, 17, 31, 32, 33, 100, 1024, 65537]
+    }
+
+    def 'murmur3 hashes primitives in little-endian byte order'() {
+        when:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        hasher.putByte((byte) 1)
+        hasher.putInt(42)
+        hasher.putLong(7L)
+        hasher.putBoolean(true)
+        hasher.putString("text")
+
+        then:
+        hasher.hash().toByteArray() == com.google.common.hash.Hashing.murmur3_128().newHasher()
+            .putByte((byte) 1)
+            .putInt(42)
+            .putLong(7L)
+            .putBoolean(true)
+            .putBytes("text".getBytes("UTF-8"))
+            .hash()
+            .asBytes()
+    }
+
+    def 'cannot reuse murmur3 hasher'() {
+        given:
+        def hasher = Hashing.murmur3().newPrimitiveHasher()
+        hasher.putInt(1)
+        hasher.hash()
+
+        when:
+        hasher.putInt(2)
+
+        then:
+        thrown(IllegalStateException)
+    }
 }
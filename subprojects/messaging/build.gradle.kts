@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 description = "Implementation of messaging between Gradle processes"
@@ -20,4 +21,6 @@ dependencies {
     testFixturesImplementation(libs.slf4jApi)
 
     integTestDistributionRuntimeOnly(project(":distributions-core"))
+
+    jmhImplementation(platform(project(":distributions-dependencies")))
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.internal.remote.internal.KryoBackedMessageSerializer;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency and throughput of messages sent over a {@link SocketConnection}, as used between the daemon and its workers.
+ *
+ * <p>For the round trip, the peer echoes each message it receives, flushing after each message like the message hub does when its queue is drained.
+ * For the pipelined throughput, the peer only receives, on its own thread, so that the sender never waits for socket buffers that nobody drains.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class SocketConnectionBenchmark {
+    private static final int PIPELINED_MESSAGES = 100;
+
+    @Param({"16", "1024", "65536"})
+    int payloadSize;
+
+    SocketConnection<byte[]> client;
+    SocketConnection<byte[]> server;
+    Thread echoThread;
+    SocketConnection<byte[]> sender;
+    SocketConnection<byte[]> receiver;
+    Thread receiveThread;
+    Semaphore received;
+    byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        SocketConnection<byte[]>[] echoPair = connectionPair();
+        client = echoPair[0];
+        server = echoPair[1];
+        echoThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] message;
+                while ((message = server.receive()) != null) {
+                    server.dispatch(message);
+                    server.flush();
+                }
+            }
+        }, "echo");
+        echoThread.start();
+
+        SocketConnection<byte[]>[] pipelinePair = connectionPair();
+        sender = pipelinePair[0];
+        receiver = pipelinePair[1];
+        received = new Semaphore(0);
+        receiveThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (receiver.receive() != null) {
+                    received.release();
+                }
+            }
+        }, "receive");
+        receiveThread.start();
+
+        payload = new byte[payloadSize];
+        new Random(1234L).nextBytes(payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketConnection<byte[]>[] connectionPair() throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            SocketChannel clientChannel = SocketChannel.open(serverChannel.socket().getLocalSocketAddress());
+            SocketChannel serverSideChannel = serverChannel.accept();
+            return new SocketConnection[]{connection(clientChannel), connection(serverSideChannel)};
+        } finally {
+            serverChannel.close();
+        }
+    }
+
+    private static SocketConnection<byte[]> connection(SocketChannel channel) {
+        return new SocketConnection<byte[]>(channel, new KryoBackedMessageSerializer(), Serializers.stateful(BaseSerializerFactory.BYTE_ARRAY_SERIALIZER));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws InterruptedException {
+        client.stop();
+        echoThread.join();
+        server.stop();
+        sender.stop();
+        receiveThread.join();
+        receiver.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] roundTrip() {
+        client.dispatch(payload);
+        client.flush();
+        return client.receive();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(PIPELINED_MESSAGES)
+    public void pipelined() throws InterruptedException {
+        for (int i = 0; i < PIPELINED_MESSAGES; i++) {
+            sender.dispatch(payload);
+        }
+        sender.flush();
+        received.acquire(PIPELINED_MESSAGES);
+    }
+}
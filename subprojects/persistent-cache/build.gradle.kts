@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 description = """Persistent caches on disk and cross process locking.
@@ -27,4 +28,7 @@ dependencies {
         because("DefaultPersistentDirectoryCacheTest instantiates DefaultClassLoaderRegistry which requires a 'gradle-plugins.properties' through DefaultPluginModuleRegistry")
     }
     integTestDistributionRuntimeOnly(project(":distributions-core"))
+
+    jmhImplementation(project(":messaging"))
+    jmhImplementation(libs.commonsIo)
 }
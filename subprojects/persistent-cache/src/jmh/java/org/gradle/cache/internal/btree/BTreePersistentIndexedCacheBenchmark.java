@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal.btree;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class BTreePersistentIndexedCacheBenchmark {
+    private static final int VALUE_SIZE = 64;
+
+    @Param({"100000", "1000000", "10000000"})
+    int entries;
+
+    @Param({"true", "false"})
+    boolean memoryMappedReads;
+
+    File tempDir;
+    BTreePersistentIndexedCache<Long, byte[]> cache;
+    Random random;
+    byte[] value;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        tempDir = Files.createTempDirectory("btree-benchmark").toFile();
+        System.setProperty(FileBackedBlockStore.MEMORY_MAPPED_READS_PROPERTY, String.valueOf(memoryMappedReads));
+        cache = new BTreePersistentIndexedCache<>(new File(tempDir, "cache.bin"), BaseSerializerFactory.LONG_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+        random = new Random(1234L);
+        value = new byte[VALUE_SIZE];
+        random.nextBytes(value);
+        for (long key = 0; key < entries; key++) {
+            cache.put(key, value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        cache.close();
+        System.clearProperty(FileBackedBlockStore.MEMORY_MAPPED_READS_PROPERTY);
+        FileUtils.forceDelete(tempDir);
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return cache.get(nextKey());
+    }
+
+    @Benchmark
+    public void put() {
+        cache.put(nextKey(), value);
+    }
+
+    @Benchmark
+    public byte[] mixed() {
+        long key = nextKey();
+        if (random.nextInt(10) == 0) {
+            cache.put(key, value);
+            return value;
+        }
+        return cache.get(key);
+    }
+
+    private long nextKey() {
+        return random.nextInt(entries);
+    }
+}
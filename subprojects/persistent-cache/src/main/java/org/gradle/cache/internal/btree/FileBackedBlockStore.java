@@ -16,6 +16,7 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.os.OperatingSystem;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -23,18 +24,31 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.function.LongSupplier;
 
 public class FileBackedBlockStore implements BlockStore {
+    /**
+     * Allows disabling memory-mapped reads, which are used by default on all platforms but Windows, where a mapped cache file cannot be truncated by {@link #clear()}.
+     */
+    public static final String MEMORY_MAPPED_READS_PROPERTY = "org.gradle.internal.btree.memory-mapped-reads";
+
     private final File cacheFile;
+    private final boolean memoryMappedReads;
     private RandomAccessFile file;
     private ByteOutput output;
     private ByteInput input;
+    private MappedByteInput mappedInput;
     private long nextBlock;
     private Factory factory;
     private long currentFileSize;
 
     public FileBackedBlockStore(File cacheFile) {
+        this(cacheFile, Boolean.parseBoolean(System.getProperty(MEMORY_MAPPED_READS_PROPERTY, String.valueOf(!OperatingSystem.current().isWindows()))));
+    }
+
+    public FileBackedBlockStore(File cacheFile, boolean memoryMappedReads) {
         this.cacheFile = cacheFile;
+        this.memoryMappedReads = memoryMappedReads;
     }
 
     @Override
@@ -50,6 +64,7 @@ public void open(Runnable runnable, Factory factory) {
             file = openRandomAccessFile();
             output = new ByteOutput(file);
             input = new ByteInput(file);
+            mappedInput = memoryMappedReads ? new MappedByteInput(file.getChannel()) : null;
             currentFileSize = file.length();
             nextBlock = currentFileSize;
             if (currentFileSize == 0) {
@@ -74,6 +89,8 @@ private RandomAccessFile randomAccessFile(String mode) throws FileNotFoundExcept
 
     @Override
     public void close() {
+        // The mapping is released once it is garbage collected
+        mappedInput = null;
         try {
             file.close();
         } catch (IOException e) {
@@ -84,6 +101,9 @@ public void close() {
     @Override
     public void clear() {
         try {
+            if (mappedInput != null) {
+                mappedInput.reset();
+            }
             file.setLength(0);
             currentFileSize = 0;
         } catch (IOException e) {
@@ -236,8 +256,18 @@ public void read() throws Exception {
                 throw blockCorruptedException();
             }
 
-            DataInputStream inputStream = input.start(pos);
+            if (mappedInput != null
+                && mappedInput.isMapped(pos, HEADER_SIZE, currentFileSize)
+                && mappedInput.isMapped(pos, HEADER_SIZE + TAIL_SIZE + mappedInput.readInt(pos + 1), currentFileSize)) {
+                read(pos, mappedInput.start(pos), mappedInput::getBytesRead);
+                mappedInput.done();
+            } else {
+                read(pos, input.start(pos), input::getBytesRead);
+                input.done();
+            }
+        }
 
+        private void read(long pos, DataInputStream inputStream, LongSupplier bytesRead) throws Exception {
             BlockPayload payload = getPayload();
 
             // Read header
@@ -254,12 +284,11 @@ public void read() throws Exception {
             payload.read(inputStream);
 
             // Read and verify count
-            long actualCount = input.getBytesRead();
+            long actualCount = bytesRead.getAsLong();
             long count = inputStream.readInt();
             if (actualCount != count) {
                 throw blockCorruptedException();
             }
-            input.done();
         }
 
         @Override
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal.btree;
+
+import com.google.common.io.CountingInputStream;
+import org.gradle.internal.io.ByteBufferInputStream;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Allows a stream of bytes to be read from a particular location of a memory-mapped file.
+ *
+ * The mapping covers the file as it was when it was last mapped. The file is only remapped once it has grown substantially,
+ * so bytes near the end of a growing file may not be mapped and have to be read with {@link ByteInput} instead.
+ */
+class MappedByteInput {
+    private static final long MIN_REMAP_GROWTH = 1024 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private CountingInputStream countingInputStream;
+
+    public MappedByteInput(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Returns whether the given region of the file is mapped, mapping the file again if it has grown enough to make that worthwhile.
+     */
+    public boolean isMapped(long offset, long length, long fileSize) throws IOException {
+        long end = offset + length;
+        if (length < 0 || end > fileSize) {
+            return false;
+        }
+        long mappedSize = buffer == null ? 0 : buffer.capacity();
+        if (end <= mappedSize) {
+            return true;
+        }
+        if (fileSize > Integer.MAX_VALUE || fileSize - mappedSize < Math.max(MIN_REMAP_GROWTH, mappedSize / 8)) {
+            return false;
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        return true;
+    }
+
+    /**
+     * Reads an int at the given offset, which must be mapped.
+     */
+    public int readInt(long offset) {
+        return buffer.getInt((int) offset);
+    }
+
+    /**
+     * Starts reading from the given offset, which must be mapped.
+     */
+    public DataInputStream start(long offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) offset);
+        countingInputStream = new CountingInputStream(new ByteBufferInputStream(view));
+        return new DataInputStream(countingInputStream);
+    }
+
+    /**
+     * Returns the number of bytes read since {@link #start(long)} was called.
+     */
+    public long getBytesRead() {
+        return countingInputStream.getCount();
+    }
+
+    /**
+     * Finishes reading.
+     */
+    public void done() {
+        countingInputStream = null;
+    }
+
+    /**
+     * Discards the current mapping, for example because the file was truncated.
+     */
+    public void reset() {
+        buffer = null;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedByteInputTest extends Specification {
+    static final int MB = 1024 * 1024
+
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    RandomAccessFile file
+    MappedByteInput input
+
+    def setup() {
+        file = new RandomAccessFile(tmpDir.file("test.bin"), "rw")
+        input = new MappedByteInput(file.channel)
+    }
+
+    def cleanup() {
+        input.reset()
+        file.close()
+    }
+
+    def "does not map small files"() {
+        given:
+        file.writeInt(123)
+
+        expect:
+        !input.isMapped(0, 4, file.length())
+    }
+
+    def "can read from multiple locations in mapped file"() {
+        given:
+        file.setLength(2 * MB)
+        file.seek(0)
+        file.writeInt(123)
+        file.writeInt(321)
+        file.seek(MB)
+        file.writeInt(456)
+
+        expect:
+        input.isMapped(0, 8, file.length())
+        input.readInt(4) == 321
+
+        def stream = input.start(0)
+        stream.readInt() == 123
+        stream.readInt() == 321
+        input.getBytesRead() == 8
+        input.done()
+
+        input.isMapped(MB, 4, file.length())
+        def stream2 = input.start(MB)
+        stream2.readInt() == 456
+        input.done()
+    }
+
+    def "sees writes to already mapped region"() {
+        given:
+        file.setLength(2 * MB)
+
+        expect:
+        input.isMapped(0, 4, file.length())
+
+        when:
+        file.seek(0)
+        file.writeInt(789)
+
+        then:
+        input.start(0).readInt() == 789
+    }
+
+    def "does not map regions beyond the end of the file"() {
+        given:
+        file.setLength(2 * MB)
+
+        expect:
+        !input.isMapped(2 * MB - 2, 4, file.length())
+        !input.isMapped(0, -1, file.length())
+    }
+
+    def "only remaps once the file has grown enough"() {
+        given:
+        file.setLength(2 * MB)
+        input.isMapped(0, 4, file.length())
+
+        when:
+        file.setLength(2 * MB + 16)
+
+        then:
+        !input.isMapped(2 * MB, 4, file.length())
+
+        when:
+        file.setLength(4 * MB)
+
+        then:
+        input.isMapped(2 * MB, 4, file.length())
+    }
+}
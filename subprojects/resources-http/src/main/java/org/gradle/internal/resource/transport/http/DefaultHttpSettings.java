@@ -34,11 +34,14 @@
 import java.util.Collection;
 
 public class DefaultHttpSettings implements HttpSettings {
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
     private final Collection<Authentication> authenticationSettings;
     private final SslContextFactory sslContextFactory;
     private final HostnameVerifier hostnameVerifier;
     private final HttpRedirectVerifier redirectVerifier;
     private final int maxRedirects;
+    private final int maxConnections;
     private final RedirectMethodHandlingStrategy redirectMethodHandlingStrategy;
 
     private HttpProxySettings proxySettings;
@@ -54,9 +57,11 @@ private DefaultHttpSettings(
         SslContextFactory sslContextFactory,
         HostnameVerifier hostnameVerifier,
         HttpRedirectVerifier redirectVerifier,
-        RedirectMethodHandlingStrategy redirectMethodHandlingStrategy, int maxRedirects
+        RedirectMethodHandlingStrategy redirectMethodHandlingStrategy, int maxRedirects,
+        int maxConnections
     ) {
         Preconditions.checkArgument(maxRedirects >= 0, "maxRedirects must be positive");
+        Preconditions.checkArgument(maxConnections > 0, "maxConnections must be positive");
         Preconditions.checkNotNull(authenticationSettings, "authenticationSettings");
         Preconditions.checkNotNull(sslContextFactory, "sslContextFactory");
         Preconditions.checkNotNull(hostnameVerifier, "hostnameVerifier");
@@ -64,6 +69,7 @@ private DefaultHttpSettings(
         Preconditions.checkNotNull(redirectMethodHandlingStrategy, "redirectMethodHandlingStrategy");
 
         this.maxRedirects = maxRedirects;
+        this.maxConnections = maxConnections;
         this.authenticationSettings = authenticationSettings;
         this.sslContextFactory = sslContextFactory;
         this.hostnameVerifier = hostnameVerifier;
@@ -100,6 +106,11 @@ public int getMaxRedirects() {
         return maxRedirects;
     }
 
+    @Override
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
     @Override
     public HttpRedirectVerifier getRedirectVerifier() {
         return redirectVerifier;
@@ -131,6 +142,7 @@ public static class Builder {
         private HostnameVerifier hostnameVerifier;
         private HttpRedirectVerifier redirectVerifier;
         private int maxRedirects = 10;
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
         private RedirectMethodHandlingStrategy redirectMethodHandlingStrategy = RedirectMethodHandlingStrategy.ALWAYS_FOLLOW_AND_PRESERVE;
 
         public Builder withAuthenticationSettings(Collection<Authentication> authenticationSettings) {
@@ -161,13 +173,19 @@ public Builder maxRedirects(int maxRedirects) {
             return this;
         }
 
+        public Builder maxConnections(int maxConnections) {
+            Preconditions.checkArgument(maxConnections > 0, "maxConnections must be positive, but was %s", maxConnections);
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
         public Builder withRedirectMethodHandlingStrategy(RedirectMethodHandlingStrategy redirectMethodHandlingStrategy) {
             this.redirectMethodHandlingStrategy = redirectMethodHandlingStrategy;
             return this;
         }
 
         public HttpSettings build() {
-            return new DefaultHttpSettings(authenticationSettings, sslContextFactory, hostnameVerifier, redirectVerifier, redirectMethodHandlingStrategy, maxRedirects);
+            return new DefaultHttpSettings(authenticationSettings, sslContextFactory, hostnameVerifier, redirectVerifier, redirectMethodHandlingStrategy, maxRedirects, maxConnections);
         }
     }
 
@@ -20,6 +20,7 @@
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScheme;
 import org.apache.http.auth.AuthSchemeProvider;
 import org.apache.http.auth.AuthScope;
@@ -38,6 +39,7 @@
 import org.apache.http.client.utils.DateUtils;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.util.PublicSuffixMatcher;
 import org.apache.http.conn.util.PublicSuffixMatcherLoader;
@@ -47,6 +49,7 @@
 import org.apache.http.impl.auth.DigestSchemeFactory;
 import org.apache.http.impl.auth.KerberosSchemeFactory;
 import org.apache.http.impl.auth.SPNegoSchemeFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.SystemDefaultCredentialsProvider;
 import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
@@ -82,12 +85,10 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.TimeUnit;
 
 public class HttpClientConfigurer {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientConfigurer.class);
     private static final String HTTPS_PROTOCOLS = "https.protocols";
-    private static final int MAX_HTTP_CONNECTIONS = 20;
 
     /**
      * Determines the HTTPS protocols to support for the client.
@@ -147,9 +148,9 @@ public void configure(HttpClientBuilder builder) {
         configureSocketConfig(builder);
         configureRedirectStrategy(builder);
         builder.setDefaultCredentialsProvider(credentialsProvider);
-        builder.setMaxConnTotal(MAX_HTTP_CONNECTIONS);
-        builder.setMaxConnPerRoute(MAX_HTTP_CONNECTIONS);
-        builder.setConnectionTimeToLive(httpSettings.getTimeoutSettings().getIdleConnectionTimeoutMs(), TimeUnit.MILLISECONDS);
+        builder.setMaxConnTotal(httpSettings.getMaxConnections());
+        builder.setMaxConnPerRoute(httpSettings.getMaxConnections());
+        builder.setKeepAliveStrategy(new IdleConnectionKeepAliveStrategy(httpSettings.getTimeoutSettings().getIdleConnectionTimeoutMs()));
     }
 
     private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
@@ -332,6 +333,25 @@ private String getAuthScheme(Authentication authentication) {
         }
     }
 
+    /**
+     * Keeps a pooled connection open for as long as the server allows, but does not reuse it once it has been idle for longer than the idle connection timeout.
+     *
+     * Unlike a time to live, this does not close connections that are busy, which would cost the next request a new TCP and TLS handshake.
+     */
+    static class IdleConnectionKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        private final long idleConnectionTimeoutMs;
+
+        IdleConnectionKeepAliveStrategy(long idleConnectionTimeoutMs) {
+            this.idleConnectionTimeoutMs = idleConnectionTimeoutMs;
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, idleConnectionTimeoutMs) : idleConnectionTimeoutMs;
+        }
+    }
+
     static class PreemptiveAuth implements HttpRequestInterceptor {
         private final AuthScheme authScheme;
         private final boolean alwaysSendAuth;
@@ -29,11 +29,19 @@
 
 public class HttpResourceAccessor extends AbstractExternalResourceAccessor implements ExternalResourceAccessor {
 
+    /**
+     * The number of times a download is resumed from where it failed, using a range request. Defaults to {@value #DEFAULT_DOWNLOAD_RESUME_ATTEMPTS}, and 0 disables resuming downloads.
+     */
+    public static final String DOWNLOAD_RESUME_ATTEMPTS_SYSTEM_PROPERTY = "org.gradle.internal.http.downloadResumeAttempts";
+    public static final int DEFAULT_DOWNLOAD_RESUME_ATTEMPTS = 3;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpResourceAccessor.class);
     private final HttpClientHelper http;
+    private final int maxResumeAttempts;
 
     public HttpResourceAccessor(HttpClientHelper http) {
         this.http = http;
+        this.maxResumeAttempts = Integer.getInteger(DOWNLOAD_RESUME_ATTEMPTS_SYSTEM_PROPERTY, DEFAULT_DOWNLOAD_RESUME_ATTEMPTS);
     }
 
     @Override
@@ -44,7 +52,7 @@ public HttpResponseResource openResource(final ExternalResourceName location, bo
 
         HttpClientResponse response = http.performGet(uri, revalidate);
         if (response != null) {
-            return wrapResponse(location.getUri(), response);
+            return new HttpResponseResource("GET", location.getUri(), response, http, maxResumeAttempts);
         }
 
         return null;
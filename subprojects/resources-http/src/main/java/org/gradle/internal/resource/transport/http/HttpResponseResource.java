@@ -16,6 +16,7 @@
 package org.gradle.internal.resource.transport.http;
 
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.utils.DateUtils;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.resource.metadata.DefaultExternalResourceMetaData;
@@ -24,6 +25,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -35,12 +37,23 @@ public class HttpResponseResource implements ExternalResourceReadResponse {
     private final URI source;
     private final HttpClientResponse response;
     private final ExternalResourceMetaData metaData;
+    private final HttpClientHelper http;
+    private final int maxResumeAttempts;
     private boolean wasOpened;
 
     public HttpResponseResource(String method, URI source, HttpClientResponse response) {
+        this(method, source, response, null, 0);
+    }
+
+    /**
+     * Creates a resource whose content is resumed with range requests when reading fails, up to the given number of times.
+     */
+    HttpResponseResource(String method, URI source, HttpClientResponse response, @Nullable HttpClientHelper http, int maxResumeAttempts) {
         this.method = method;
         this.source = source;
         this.response = response;
+        this.http = http;
+        this.maxResumeAttempts = maxResumeAttempts;
 
         String etag = getEtag(response);
         this.metaData = new DefaultExternalResourceMetaData(source, getLastModified(), getContentLength(), getContentType(), etag, getSha1(response, etag));
@@ -108,7 +121,31 @@ public InputStream openStream() throws IOException {
         }
         LOGGER.debug("Attempting to download resource {}.", source);
         this.wasOpened = true;
-        return response.getContent();
+        InputStream content = response.getContent();
+        String resumeValidator = getResumeValidator();
+        if (http != null && maxResumeAttempts > 0 && resumeValidator != null) {
+            return new ResumingHttpInputStream(http, response.getEffectiveUri(), content, resumeValidator, getContentLength(), maxResumeAttempts);
+        }
+        return content;
+    }
+
+    /**
+     * Returns the validator to resume reading the content with, or null when the content cannot be resumed safely.
+     */
+    @Nullable
+    private String getResumeValidator() {
+        if (getStatusCode() != HttpStatus.SC_OK
+            || !"bytes".equalsIgnoreCase(response.getHeader(HttpHeaders.ACCEPT_RANGES))
+            || response.getHeader(HttpHeaders.CONTENT_ENCODING) != null
+            || getContentLength() <= 0) {
+            return null;
+        }
+        // Weak entity tags cannot be used for range requests
+        String etag = getEtag(response);
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.getHeader(HttpHeaders.LAST_MODIFIED);
     }
 
     @Override
@@ -31,6 +31,11 @@ public interface HttpSettings {
 
     int getMaxRedirects();
 
+    /**
+     * The maximum number of connections that are kept open to a single host.
+     */
+    int getMaxConnections();
+
     HttpRedirectVerifier getRedirectVerifier();
 
     RedirectMethodHandlingStrategy getRedirectMethodHandlingStrategy();
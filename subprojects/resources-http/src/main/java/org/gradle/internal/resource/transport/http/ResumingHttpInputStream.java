@@ -0,0 +1,164 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionReleaseTrigger;
+import org.gradle.internal.IoActions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Reads the content of an HTTP response, and continues from the current position with a range request when the connection fails while reading.
+ *
+ * <p>The range request is conditional on the validator of the original response, so the server only returns the remaining content
+ * when the resource has not changed in the meantime. Otherwise, the original failure is rethrown.</p>
+ */
+class ResumingHttpInputStream extends InputStream {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResumingHttpInputStream.class);
+
+    private final HttpClientHelper http;
+    private final URI source;
+    private final String validator;
+    private final long contentLength;
+    private int remainingAttempts;
+    private InputStream content;
+    private HttpClientResponse resumedResponse;
+    private long position;
+
+    ResumingHttpInputStream(HttpClientHelper http, URI source, InputStream content, String validator, long contentLength, int maxAttempts) {
+        this.http = http;
+        this.source = source;
+        this.content = content;
+        this.validator = validator;
+        this.contentLength = contentLength;
+        this.remainingAttempts = maxAttempts;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            try {
+                int next = content.read();
+                if (next >= 0) {
+                    position++;
+                } else if (position < contentLength) {
+                    throw prematureEnd();
+                }
+                return next;
+            } catch (IOException e) {
+                resume(e);
+            }
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        while (true) {
+            try {
+                int count = content.read(buffer, offset, length);
+                if (count > 0) {
+                    position += count;
+                } else if (count < 0 && position < contentLength) {
+                    throw prematureEnd();
+                }
+                return count;
+            } catch (IOException e) {
+                resume(e);
+            }
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return content.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            content.close();
+        } finally {
+            closeResumedResponse();
+        }
+    }
+
+    private EOFException prematureEnd() {
+        return new EOFException(String.format("Premature end of content after %d of %d bytes.", position, contentLength));
+    }
+
+    private void resume(IOException failure) throws IOException {
+        if (remainingAttempts <= 0) {
+            throw failure;
+        }
+        remainingAttempts--;
+        LOGGER.info("Resuming download of {} at byte {} of {} after failure: {}", HttpClientHelper.stripUserCredentials(source), position, contentLength, failure.getMessage());
+
+        HttpGet request = new HttpGet(source);
+        request.addHeader(HttpHeaders.RANGE, "bytes=" + position + "-");
+        request.addHeader(HttpHeaders.IF_RANGE, validator);
+        HttpClientResponse response;
+        try {
+            response = http.performRequest(request, false);
+        } catch (HttpRequestException e) {
+            failure.addSuppressed(e);
+            throw failure;
+        }
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT || !startsAtPosition(response.getHeader(HttpHeaders.CONTENT_RANGE))) {
+            // The server does not support the range, or the resource has changed since the download started
+            response.close();
+            throw failure;
+        }
+
+        discardContent();
+        resumedResponse = response;
+        content = response.getContent();
+    }
+
+    private void discardContent() {
+        if (content instanceof ConnectionReleaseTrigger) {
+            // Closing would try to read the rest of the content from the failed connection
+            try {
+                ((ConnectionReleaseTrigger) content).abortConnection();
+            } catch (IOException e) {
+                LOGGER.debug("Could not abort connection to {}", HttpClientHelper.stripUserCredentials(source), e);
+            }
+        } else {
+            IoActions.closeQuietly(content);
+        }
+        closeResumedResponse();
+    }
+
+    private boolean startsAtPosition(@Nullable String contentRange) {
+        return contentRange != null && contentRange.startsWith("bytes " + position + "-");
+    }
+
+    private void closeResumedResponse() {
+        if (resumedResponse != null) {
+            resumedResponse.close();
+            resumedResponse = null;
+        }
+    }
+}
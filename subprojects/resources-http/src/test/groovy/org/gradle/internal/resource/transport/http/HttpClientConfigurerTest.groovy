@@ -15,8 +15,11 @@
  */
 package org.gradle.internal.resource.transport.http
 
+import org.apache.http.HttpVersion
 import org.apache.http.auth.AuthScope
 import org.apache.http.impl.client.HttpClientBuilder
+import org.apache.http.message.BasicHttpResponse
+import org.apache.http.protocol.BasicHttpContext
 import org.apache.http.ssl.SSLContexts
 import org.gradle.api.credentials.PasswordCredentials
 import org.gradle.internal.authentication.AllSchemesAuthentication
@@ -157,4 +160,37 @@ class HttpClientConfigurerTest extends Specification {
         httpClientBuilder.defaultRequestConfig.socketTimeout == 30000
         httpClientBuilder.defaultSocketConfig.soKeepAlive
     }
+
+    def "configures http client connection pool size"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        httpSettings.maxConnections >> 64
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.maxConnTotal == 64
+        httpClientBuilder.maxConnPerRoute == 64
+    }
+
+    def "keeps pooled connections until they have been idle for too long"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        timeoutSettings.idleConnectionTimeoutMs >> 180000
+        def response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK")
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.connTimeToLive == -1
+        httpClientBuilder.keepAliveStrategy.getKeepAliveDuration(response, new BasicHttpContext()) == 180000
+
+        when:
+        response.setHeader("Keep-Alive", "timeout=5")
+
+        then:
+        httpClientBuilder.keepAliveStrategy.getKeepAliveDuration(response, new BasicHttpContext()) == 5000
+    }
 }
@@ -16,13 +16,26 @@
 
 package org.gradle.internal.resource.transport.http
 
+import org.apache.http.HttpVersion
 import org.apache.http.client.methods.CloseableHttpResponse
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.entity.InputStreamEntity
+import org.apache.http.message.BasicHeader
+import org.apache.http.message.BasicStatusLine
+import org.gradle.api.resources.ResourceException
 import org.gradle.internal.resource.ExternalResourceName
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 import spock.lang.Specification
 
+import static org.gradle.internal.resource.transport.http.HttpResourceAccessor.DEFAULT_DOWNLOAD_RESUME_ATTEMPTS
+import static org.gradle.internal.resource.transport.http.HttpResourceAccessor.DOWNLOAD_RESUME_ATTEMPTS_SYSTEM_PROPERTY
+
 class HttpResourceAccessorTest extends Specification {
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
     def uri = new URI("http://somewhere")
     def name = new ExternalResourceName(uri)
+    def http = Mock(HttpClientHelper)
 
     def "should call close() on CloseableHttpResource when getMetaData is called"() {
         def response = Mock(CloseableHttpResponse)
@@ -36,4 +49,104 @@ class HttpResourceAccessorTest extends Specification {
         then:
         1 * response.close()
     }
+
+    def "resumes download with range request when reading the content fails"() {
+        def failedContent = failingAfter("0123")
+        def failedContentClosed = false
+
+        when:
+        def content = new HttpResourceAccessor(http).withContent(name, false) { inputStream, metaData ->
+            def text = inputStream.text
+            // Closed when resuming, before the original response is closed
+            failedContentClosed = failedContent.closed
+            text
+        }
+
+        then:
+        content == "0123456789"
+        failedContentClosed
+
+        and:
+        1 * http.performGet(uri.toString(), false) >> response(200, ["Accept-Ranges": "bytes", "Content-Length": "10", "ETag": '"abc"'], failedContent)
+        1 * http.performRequest({ HttpGet request ->
+            request.getFirstHeader("Range").value == "bytes=4-" && request.getFirstHeader("If-Range").value == '"abc"'
+        }, false) >> response(206, ["Content-Range": "bytes 4-9/10"], new ByteArrayInputStream("456789".bytes))
+    }
+
+    def "resumes download until the number of attempts is exhausted"() {
+        when:
+        new HttpResourceAccessor(http).withContent(name, false) { inputStream, metaData -> inputStream.text }
+
+        then:
+        def e = thrown(ResourceException)
+        e.cause.message == "broken"
+
+        and:
+        1 * http.performGet(uri.toString(), false) >> response(200, ["Accept-Ranges": "bytes", "Content-Length": "10", "ETag": '"abc"'], failingAfter("0"))
+        DEFAULT_DOWNLOAD_RESUME_ATTEMPTS * http.performRequest(_, false) >> { response(206, ["Content-Range": "bytes 1-9/10"], failingAfter("")) }
+    }
+
+    def "does not resume download when resource has changed"() {
+        when:
+        new HttpResourceAccessor(http).withContent(name, false) { inputStream, metaData -> inputStream.text }
+
+        then:
+        def e = thrown(ResourceException)
+        e.cause.message == "broken"
+
+        and:
+        1 * http.performGet(uri.toString(), false) >> response(200, ["Accept-Ranges": "bytes", "Content-Length": "10", "ETag": '"abc"'], failingAfter("0123"))
+        1 * http.performRequest(_, false) >> response(200, [:], new ByteArrayInputStream("changed".bytes))
+    }
+
+    def "does not resume download when disabled"() {
+        System.setProperty(DOWNLOAD_RESUME_ATTEMPTS_SYSTEM_PROPERTY, "0")
+
+        when:
+        new HttpResourceAccessor(http).withContent(name, false) { inputStream, metaData -> inputStream.text }
+
+        then:
+        def e = thrown(ResourceException)
+        e.cause.message == "broken"
+
+        and:
+        1 * http.performGet(uri.toString(), false) >> response(200, ["Accept-Ranges": "bytes", "Content-Length": "10", "ETag": '"abc"'], failingAfter("0123"))
+        0 * http.performRequest(_, _)
+    }
+
+    private HttpClientResponse response(int statusCode, Map<String, String> headers, InputStream content) {
+        def response = Stub(CloseableHttpResponse) {
+            getStatusLine() >> new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, "")
+            getFirstHeader(_) >> { String header -> headers.containsKey(header) ? new BasicHeader(header, headers[header]) : null }
+            getEntity() >> new InputStreamEntity(content)
+        }
+        return new HttpClientResponse("GET", uri, response)
+    }
+
+    private static FailingInputStream failingAfter(String content) {
+        return new FailingInputStream(content)
+    }
+
+    private static class FailingInputStream extends InputStream {
+        private final InputStream content
+        boolean closed
+
+        FailingInputStream(String content) {
+            this.content = new ByteArrayInputStream(content.bytes)
+        }
+
+        @Override
+        int read() throws IOException {
+            int next = content.read()
+            if (next < 0) {
+                throw new IOException("broken")
+            }
+            return next
+        }
+
+        @Override
+        void close() {
+            closed = true
+        }
+    }
 }
@@ -22,6 +22,13 @@
  * File store that accepts the target path as the key for the entry.
  */
 public interface PathKeyFileStore extends FileStore<String>, FileStoreSearcher<String> {
+    /*
+        When writing a file into the filestore a marker file with this suffix is written alongside,
+        then removed after the write. This is used to detect partially written files (due to a serious crash)
+        and to silently clean them.
+     */
+    String IN_PROGRESS_MARKER_FILE_SUFFIX = ".fslck";
+
     @Nullable
     LocallyAvailableResource get(String... path);
 }
@@ -48,12 +48,16 @@
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -64,6 +68,15 @@
  * For creating {@link DirectorySnapshot}s of directories.
  */
 public class DirectorySnapshotter {
+    /**
+     * When enabled, directories near the root of a snapshotted hierarchy are walked and hashed in parallel using fork-join tasks.
+     */
+    public static final String PARALLEL_SNAPSHOTTING_PROPERTY = "org.gradle.internal.snapshot.parallel-directory-snapshotting";
+    /**
+     * Directories up to this depth below the snapshotted root are snapshotted by their own fork-join task.
+     * Deeper directories are walked by the task of their ancestor, which keeps the number of tasks bounded for deep hierarchies.
+     */
+    private static final int MAX_FORK_DEPTH = 3;
     private static final EnumSet<FileVisitOption> DONT_FOLLOW_SYMLINKS = EnumSet.noneOf(FileVisitOption.class);
     private static final SymbolicLinkMapping EMPTY_SYMBOLIC_LINK_MAPPING = new SymbolicLinkMapping() {
 
@@ -87,12 +100,18 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    private final boolean parallel;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, Boolean.getBoolean(PARALLEL_SNAPSHOTTING_PROPERTY));
+    }
+
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector, boolean parallel) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.parallel = parallel;
     }
 
     /**
@@ -110,16 +129,50 @@ public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner,
      *                                   For example, if an element of a directory is filtered out, the consumer will receive all the non-filtered out
      *                                   file snapshots and all the non-filtered directory snapshots in the directory.
      *
+     * When parallel snapshotting is enabled, the {@code unfilteredSnapshotConsumer} may be called concurrently and in a different order,
+     * though with the same snapshots as when snapshotting sequentially.
+     *
      * @return The (possible filtered) snapshot of the directory.
      */
     public FileSystemLocationSnapshot snapshot(String absolutePath, @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, final AtomicBoolean hasBeenFiltered, Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer) {
+        long startTime = System.nanoTime();
+        Path rootPath = Paths.get(absolutePath);
+        PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, unfilteredSnapshotConsumer, parallel);
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(new SubtreeSnapshotTask(rootPath, visitor));
+        } else {
+            walkFileTree(rootPath, visitor);
+        }
+        FileSystemLocationSnapshot result = visitor.getResult();
+        collector.recordSnapshotHierarchyTime(absolutePath, System.nanoTime() - startTime);
+        return result;
+    }
+
+    private static void walkFileTree(Path rootPath, PathVisitor visitor) {
         try {
-            Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, unfilteredSnapshotConsumer);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
-            return visitor.getResult();
         } catch (IOException e) {
-            throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", absolutePath), e);
+            throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", rootPath), e);
+        }
+    }
+
+    /**
+     * Walks a directory with the given visitor.
+     * Visitors in parallel mode fork further tasks for the subdirectories they encounter, and join them before leaving the parent directory.
+     */
+    private static class SubtreeSnapshotTask extends RecursiveTask<PathVisitor> {
+        private final Path directory;
+        private final PathVisitor visitor;
+
+        public SubtreeSnapshotTask(Path directory, PathVisitor visitor) {
+            this.directory = directory;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected PathVisitor compute() {
+            walkFileTree(directory, visitor);
+            return visitor;
         }
     }
 
@@ -242,6 +295,9 @@ public boolean test(String element) {
 
     private static class PathVisitor extends DirectorySnapshotterStatistics.CollectingFileVisitor {
         private final RelativePathTracker pathTracker = new RelativePathTracker();
+        private final int rootDepth;
+        private final boolean parallel;
+        private final Deque<List<SubtreeSnapshotTask>> forkedSubtrees = new ArrayDeque<>();
         private final FilteredTrackingMerkleDirectorySnapshotBuilder builder;
         private final SnapshottingFilter.DirectoryWalkerPredicate predicate;
         private final AtomicBoolean hasBeenFiltered;
@@ -261,9 +317,12 @@ public PathVisitor(
             DefaultExcludes defaultExcludes,
             DirectorySnapshotterStatistics.Collector statisticsCollector,
             SymbolicLinkMapping symbolicLinkMapping,
-            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer
+            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer,
+            boolean parallel
         ) {
             super(statisticsCollector);
+            this.rootDepth = 0;
+            this.parallel = parallel;
             this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::consumeUnfilteredSnapshot);
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
@@ -274,6 +333,31 @@ public PathVisitor(
             this.unfilteredSnapshotConsumer = unfilteredSnapshotConsumer;
         }
 
+        /**
+         * Creates a visitor for a subdirectory of the directory currently visited by {@code parent}.
+         *
+         * The visitor continues the walk of the parent, so it shares its relative path, cycle detection and symlink mapping.
+         */
+        private PathVisitor(PathVisitor parent) {
+            super(parent.collector, false);
+            this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::consumeUnfilteredSnapshot);
+            this.predicate = parent.predicate;
+            this.hasBeenFiltered = parent.hasBeenFiltered;
+            this.hasher = parent.hasher;
+            this.stringInterner = parent.stringInterner;
+            this.defaultExcludes = parent.defaultExcludes;
+            this.symbolicLinkMapping = parent.symbolicLinkMapping;
+            this.unfilteredSnapshotConsumer = parent.unfilteredSnapshotConsumer;
+            this.parallel = true;
+            // The parent has already entered the subdirectory, which this visitor enters again when starting its walk.
+            // The root name of the tracker is not part of the relative path, so any name will do.
+            Collection<String> parentSegments = parent.pathTracker.getSegments();
+            this.pathTracker.enter("");
+            Iterables.limit(parentSegments, parentSegments.size() - 1).forEach(pathTracker::enter);
+            this.rootDepth = parentSegments.size();
+            this.parentDirectories.addAll(parent.parentDirectories);
+        }
+
         private void consumeUnfilteredSnapshot(FileSystemLocationSnapshot snapshot) {
             if (snapshot.getType() == FileType.Directory) {
                 if (!filteredDirectorySnapshots.contains(snapshot)) {
@@ -289,8 +373,16 @@ protected FileVisitResult doPreVisitDirectory(Path dir, BasicFileAttributes attr
             String fileName = getInternedFileName(dir);
             pathTracker.enter(fileName);
             if (shouldVisitDirectory(dir, fileName)) {
+                if (shouldFork()) {
+                    SubtreeSnapshotTask subtreeTask = new SubtreeSnapshotTask(dir, new PathVisitor(this));
+                    subtreeTask.fork();
+                    forkedSubtrees.getFirst().add(subtreeTask);
+                    pathTracker.leave();
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
                 builder.enterDirectory(AccessType.DIRECT, intern(symbolicLinkMapping.remapAbsolutePath(dir)), fileName, INCLUDE_EMPTY_DIRS);
                 parentDirectories.addFirst(dir.toString());
+                forkedSubtrees.addFirst(parallel ? new ArrayList<>() : Collections.emptyList());
                 return FileVisitResult.CONTINUE;
             } else {
                 pathTracker.leave();
@@ -307,6 +399,9 @@ protected FileVisitResult doPostVisitDirectory(Path dir, IOException exc) {
             if (isNotFileSystemLoopException(exc)) {
                 throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), exc);
             }
+            for (SubtreeSnapshotTask subtreeTask : forkedSubtrees.removeFirst()) {
+                visitForkedSubtree(subtreeTask.join());
+            }
             boolean currentLevelComplete = builder.isCurrentLevelUnfiltered();
             FileSystemLocationSnapshot currentLevel = builder.leaveDirectory();
             if (!currentLevelComplete) {
@@ -354,6 +449,19 @@ protected FileVisitResult doVisitFile(Path file, BasicFileAttributes attrs) {
             }
         }
 
+        private boolean shouldFork() {
+            return parallel && !isWalkRoot() && pathTracker.getSegments().size() <= MAX_FORK_DEPTH;
+        }
+
+        private void visitForkedSubtree(PathVisitor subtreeVisitor) {
+            DirectorySnapshot subtreeSnapshot = (DirectorySnapshot) subtreeVisitor.getResult();
+            builder.visitDirectory(subtreeSnapshot);
+            if (!subtreeVisitor.builder.isCurrentLevelUnfiltered()) {
+                filteredDirectorySnapshots.add(subtreeSnapshot);
+                builder.markCurrentLevelAsFiltered();
+            }
+        }
+
         @Nullable
         private DirectorySnapshot followSymlink(Path file, String internedFileName, AtomicBoolean symlinkHasBeenFiltered) {
             try {
@@ -368,7 +476,8 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
                         defaultExcludes,
                         collector,
                         symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker),
-                        unfilteredSnapshotConsumer);
+                        unfilteredSnapshotConsumer,
+                        parallel);
                     Files.walkFileTree(targetDir, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, subtreeVisitor);
                     return (DirectorySnapshot) subtreeVisitor.getResult();
                 } else {
@@ -391,7 +500,14 @@ private void visitResolvedFile(Path file, BasicFileAttributes targetAttributes,
         }
 
         private boolean shouldVisitDirectory(Path dir, String internedName) {
-            return pathTracker.isRoot() || shouldVisit(dir, internedName, true);
+            return isWalkRoot() || shouldVisit(dir, internedName, true);
+        }
+
+        /**
+         * Whether the walk is at its starting directory, which has already been accepted by the caller.
+         */
+        private boolean isWalkRoot() {
+            return pathTracker.getSegments().size() == rootDepth;
         }
 
         private boolean shouldVisitFile(Path file, String internedName) {
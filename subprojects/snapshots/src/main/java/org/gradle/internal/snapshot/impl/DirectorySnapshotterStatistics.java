@@ -16,12 +16,14 @@
 
 package org.gradle.internal.snapshot.impl;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 public interface DirectorySnapshotterStatistics {
@@ -45,11 +47,30 @@ public interface DirectorySnapshotterStatistics {
      */
     long getFailedFiles();
 
+    /**
+     * The total time spent snapshotting directory hierarchies, in milliseconds.
+     */
+    long getSnapshotTime();
+
+    /**
+     * The root of the directory hierarchy which took the longest to snapshot, or {@code null} if no hierarchy has been snapshotted.
+     */
+    @Nullable
+    String getSlowestHierarchy();
+
+    /**
+     * The time spent snapshotting {@link #getSlowestHierarchy()}, in milliseconds.
+     */
+    long getSlowestHierarchySnapshotTime();
+
     class Collector {
         private final AtomicLong hierarchyCount = new AtomicLong();
         private final AtomicLong directoryCount = new AtomicLong();
         private final AtomicLong fileCount = new AtomicLong();
         private final AtomicLong failedFileCount = new AtomicLong();
+        private final AtomicLong snapshotTime = new AtomicLong();
+        private String slowestHierarchy;
+        private long slowestHierarchySnapshotTime;
 
         public void recordVisitHierarchy() {
             hierarchyCount.incrementAndGet();
@@ -67,11 +88,30 @@ public void recordVisitFileFailed() {
             failedFileCount.incrementAndGet();
         }
 
+        public void recordSnapshotHierarchyTime(String absolutePath, long nanos) {
+            snapshotTime.addAndGet(nanos);
+            synchronized (this) {
+                if (nanos > slowestHierarchySnapshotTime) {
+                    slowestHierarchy = absolutePath;
+                    slowestHierarchySnapshotTime = nanos;
+                }
+            }
+        }
+
         public DirectorySnapshotterStatistics collect() {
             long hierarchyCount = this.hierarchyCount.getAndSet(0);
             long directoryCount = this.directoryCount.getAndSet(0);
             long fileCount = this.fileCount.getAndSet(0);
             long failedFileCount = this.failedFileCount.getAndSet(0);
+            long snapshotTime = TimeUnit.NANOSECONDS.toMillis(this.snapshotTime.getAndSet(0));
+            String slowestHierarchy;
+            long slowestHierarchySnapshotTime;
+            synchronized (this) {
+                slowestHierarchy = this.slowestHierarchy;
+                slowestHierarchySnapshotTime = TimeUnit.NANOSECONDS.toMillis(this.slowestHierarchySnapshotTime);
+                this.slowestHierarchy = null;
+                this.slowestHierarchySnapshotTime = 0;
+            }
 
             return new DirectorySnapshotterStatistics() {
                 @Override
@@ -94,10 +134,30 @@ public long getFailedFiles() {
                     return failedFileCount;
                 }
 
+                @Override
+                public long getSnapshotTime() {
+                    return snapshotTime;
+                }
+
+                @Nullable
+                @Override
+                public String getSlowestHierarchy() {
+                    return slowestHierarchy;
+                }
+
+                @Override
+                public long getSlowestHierarchySnapshotTime() {
+                    return slowestHierarchySnapshotTime;
+                }
+
                 @Override
                 public String toString() {
-                    return MessageFormat.format("Snapshot {0,number,integer} directory hierarchies (visited {1,number,integer} directories, {2,number,integer} files and {3,number,integer} failed files)",
-                        hierarchyCount, directoryCount, fileCount, failedFileCount);
+                    String summary = MessageFormat.format("Snapshot {0,number,integer} directory hierarchies in {4,number,integer} ms (visited {1,number,integer} directories, {2,number,integer} files and {3,number,integer} failed files)",
+                        hierarchyCount, directoryCount, fileCount, failedFileCount, snapshotTime);
+                    if (slowestHierarchy == null) {
+                        return summary;
+                    }
+                    return summary + MessageFormat.format(", slowest was {0} with {1,number,integer} ms", slowestHierarchy, slowestHierarchySnapshotTime);
                 }
             };
         }
@@ -105,15 +165,31 @@ public String toString() {
 
     abstract class CollectingFileVisitor implements FileVisitor<Path> {
         protected final Collector collector;
+        private boolean rootDirectoryAlreadyRecorded;
 
         public CollectingFileVisitor(Collector collector) {
+            this(collector, true);
+        }
+
+        /**
+         * @param newHierarchy {@code false} when the visitor continues the walk of another visitor,
+         * which has already recorded the hierarchy and the directory this visitor starts from.
+         */
+        protected CollectingFileVisitor(Collector collector, boolean newHierarchy) {
             this.collector = collector;
-            collector.recordVisitHierarchy();
+            this.rootDirectoryAlreadyRecorded = !newHierarchy;
+            if (newHierarchy) {
+                collector.recordVisitHierarchy();
+            }
         }
 
         @Override
         public final FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-            collector.recordVisitDirectory();
+            if (rootDirectoryAlreadyRecorded) {
+                rootDirectoryAlreadyRecorded = false;
+            } else {
+                collector.recordVisitDirectory();
+            }
             return doPreVisitDirectory(dir, attrs);
         }
 
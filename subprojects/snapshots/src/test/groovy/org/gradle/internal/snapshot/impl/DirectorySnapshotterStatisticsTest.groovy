@@ -62,6 +62,7 @@ class DirectorySnapshotterStatisticsTest extends Specification {
 
         then:
         1 * statisticsCollector.recordVisitFile()
+        1 * statisticsCollector.recordSnapshotHierarchyTime(_, _)
         0 * _
     }
 
@@ -74,6 +75,7 @@ class DirectorySnapshotterStatisticsTest extends Specification {
 
         then:
         1 * statisticsCollector.recordVisitDirectory()
+        1 * statisticsCollector.recordSnapshotHierarchyTime(_, _)
         0 * _
     }
 
@@ -94,6 +96,7 @@ class DirectorySnapshotterStatisticsTest extends Specification {
         then:
         3 * statisticsCollector.recordVisitDirectory()
         2 * statisticsCollector.recordVisitFile()
+        1 * statisticsCollector.recordSnapshotHierarchyTime(_, _)
         0 * _
     }
 
@@ -113,6 +116,7 @@ class DirectorySnapshotterStatisticsTest extends Specification {
         then:
         1 * statisticsCollector.recordVisitDirectory()
         1 * statisticsCollector.recordVisitFile()
+        1 * statisticsCollector.recordSnapshotHierarchyTime(_, _)
         0 * _
     }
 
@@ -134,6 +138,7 @@ class DirectorySnapshotterStatisticsTest extends Specification {
         1 * statisticsCollector.recordVisitHierarchy()
         3 * statisticsCollector.recordVisitDirectory()
         3 * statisticsCollector.recordVisitFile()
+        1 * statisticsCollector.recordSnapshotHierarchyTime(_, _)
         0 * _
     }
 
@@ -168,6 +173,28 @@ class DirectorySnapshotterStatisticsTest extends Specification {
         "file" | "java.io.FileNotFoundException: %s (Permission denied)"
     }
 
+    def "reports time spent snapshotting hierarchies"() {
+        def collector = new DirectorySnapshotterStatistics.Collector()
+        def root = tmpDir.createDir("root")
+        root.createFile("file.txt")
+
+        when:
+        new DirectorySnapshotter(fileHasher, new StringInterner(), [], collector).snapshot(root.absolutePath, null, new AtomicBoolean()) {}
+        def statistics = collector.collect()
+
+        then:
+        statistics.visitedHierarchyCount == 1
+        statistics.slowestHierarchy == root.absolutePath
+        statistics.snapshotTime >= statistics.slowestHierarchySnapshotTime
+
+        when:
+        statistics = collector.collect()
+
+        then:
+        statistics.snapshotTime == 0
+        statistics.slowestHierarchy == null
+    }
+
     private snapshot(File root) {
         directorySnapshotter.snapshot(root.absolutePath, null, new AtomicBoolean()) {}
     }
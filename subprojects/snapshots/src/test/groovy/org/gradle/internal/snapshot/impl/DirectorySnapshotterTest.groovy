@@ -464,6 +464,40 @@ class DirectorySnapshotterTest extends Specification {
         pipe.delete()
     }
 
+    def "parallel snapshotting produces the same snapshot as sequential snapshotting"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (1..3).each { i ->
+            (1..3).each { j ->
+                (1..3).each { k ->
+                    rootDir.file("dir$i/sub$j/nested$k/deep/file.txt").text = "text $i $j $k"
+                    rootDir.file("dir$i/sub$j/nested$k/file.html").text = "html $i $j $k"
+                }
+                rootDir.file("dir$i/sub$j/file.txt").text = "text $i $j"
+            }
+            rootDir.createDir("dir$i/empty")
+        }
+        rootDir.file("file.txt").text = "root"
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, true)
+
+        when:
+        def sequentialSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, predicate, actuallyFiltered, unfilteredSubSnapshotsCollector)
+        def sequentialFiltered = actuallyFiltered.get()
+        def sequentialUnfiltered = unfilteredSubsnapshots.collect { [it.absolutePath, it.hash] } as Set
+        actuallyFiltered.set(false)
+        unfilteredSubsnapshots.clear()
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, predicate, actuallyFiltered, { synchronized (unfilteredSubsnapshots) { unfilteredSubsnapshots.add(it) } })
+
+        then:
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        SnapshotVisitorUtil.getAbsolutePaths(parallelSnapshot, true) == SnapshotVisitorUtil.getAbsolutePaths(sequentialSnapshot, true)
+        actuallyFiltered.get() == sequentialFiltered
+        unfilteredSubsnapshots.collect { [it.absolutePath, it.hash] } as Set == sequentialUnfiltered
+
+        where:
+        predicate << [null, directoryWalkerPredicate(new PatternSet().include("**/*.txt").exclude("dir2/sub1/**"))]
+    }
+
     def "default excludes are correctly parsed"() {
         def defaultExcludes = new DirectorySnapshotter.DefaultExcludes(DirectoryScanner.getDefaultExcludes() as List)
 
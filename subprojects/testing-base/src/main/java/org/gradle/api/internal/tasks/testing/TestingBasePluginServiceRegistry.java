@@ -17,14 +17,25 @@
 package org.gradle.api.internal.tasks.testing;
 
 import org.gradle.api.internal.tasks.testing.operations.TestExecutionBuildOperationBuildSessionScopeServices;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
 
 public class TestingBasePluginServiceRegistry extends AbstractPluginServiceRegistry {
 
+    @Override
+    public void registerGradleUserHomeServices(ServiceRegistration registration) {
+        registration.addProvider(new GradleUserHomeServices());
+    }
+
     @Override
     public void registerBuildSessionServices(ServiceRegistration registration) {
         registration.addProvider(new TestExecutionBuildOperationBuildSessionScopeServices());
     }
 
+    private static class GradleUserHomeServices {
+        TestWorkerPool createTestWorkerPool() {
+            return new TestWorkerPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.Action;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups the report files of test classes into batches, so that the files of small test classes are generated by a single build operation.
+ */
+public abstract class BatchingTestClassVisitor<T> implements Action<TestClassResult> {
+
+    /**
+     * The number of test cases for which report files are generated by a single build operation.
+     * Generating the file of a small test class is cheap compared to running a build operation.
+     */
+    public static final int TESTS_PER_OPERATION = 500;
+
+    private List<T> batch = new ArrayList<T>();
+    private int testsInBatch;
+
+    @Override
+    public void execute(TestClassResult result) {
+        batch.add(transform(result));
+        testsInBatch += result.getTestsCount();
+        if (testsInBatch >= TESTS_PER_OPERATION) {
+            flush();
+        }
+    }
+
+    /**
+     * Submits the remaining batch, if any.
+     */
+    public void flush() {
+        if (!batch.isEmpty()) {
+            List<T> completed = batch;
+            batch = new ArrayList<T>();
+            testsInBatch = 0;
+            submit(completed);
+        }
+    }
+
+    protected abstract T transform(TestClassResult result);
+
+    protected abstract void submit(List<T> batch);
+}
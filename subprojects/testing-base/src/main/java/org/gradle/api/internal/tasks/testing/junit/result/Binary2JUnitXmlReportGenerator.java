@@ -35,6 +35,7 @@
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.util.List;
 
 public class Binary2JUnitXmlReportGenerator {
 
@@ -81,41 +82,64 @@ public BuildOperationDescriptor.Builder description() {
         buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
             @Override
             public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
-                testResultsProvider.visitClasses(new Action<TestClassResult>() {
-                    @Override
-                    public void execute(final TestClassResult result) {
-                        final File reportFile = new File(testResultsDir, getReportFileName(result));
-                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
-                    }
-                });
+                BatchingVisitor visitor = new BatchingVisitor(queue);
+                testResultsProvider.visitClasses(visitor);
+                visitor.flush();
             }
         });
 
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
     }
 
-    private String getReportFileName(TestClassResult result) {
+    private static String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
 
+    private class BatchingVisitor extends BatchingTestClassVisitor<TestClassResult> {
+        private final BuildOperationQueue<JUnitXmlReportFileGenerator> queue;
+
+        BatchingVisitor(BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        protected TestClassResult transform(TestClassResult result) {
+            return result;
+        }
+
+        @Override
+        protected void submit(List<TestClassResult> batch) {
+            queue.add(new JUnitXmlReportFileGenerator(batch, testResultsDir, xmlWriter));
+        }
+    }
+
     private static class JUnitXmlReportFileGenerator implements RunnableBuildOperation {
-        private final TestClassResult result;
-        private final File reportFile;
+        private final List<TestClassResult> results;
+        private final File testResultsDir;
         private final JUnitXmlResultWriter xmlWriter;
 
-        public JUnitXmlReportFileGenerator(TestClassResult result, File reportFile, JUnitXmlResultWriter xmlWriter) {
-            this.result = result;
-            this.reportFile = reportFile;
+        public JUnitXmlReportFileGenerator(List<TestClassResult> results, File testResultsDir, JUnitXmlResultWriter xmlWriter) {
+            this.results = results;
+            this.testResultsDir = testResultsDir;
             this.xmlWriter = xmlWriter;
         }
 
         @Override
         public BuildOperationDescriptor.Builder description() {
-            return BuildOperationDescriptor.displayName("Generate junit XML test report for ".concat(result.getClassName()));
+            if (results.size() == 1) {
+                return BuildOperationDescriptor.displayName("Generate junit XML test report for ".concat(results.get(0).getClassName()));
+            }
+            return BuildOperationDescriptor.displayName("Generate junit XML test reports for " + results.size() + " test classes");
         }
 
         @Override
         public void run(BuildOperationContext context) {
+            for (TestClassResult result : results) {
+                write(result, new File(testResultsDir, getReportFileName(result)));
+            }
+        }
+
+        private void write(TestClassResult result, File reportFile) {
             FileOutputStream output = null;
             try {
                 output = new FileOutputStream(reportFile);
@@ -43,6 +43,7 @@ public class TestOutputStore {
 
     private final File resultsDir;
     private final Charset messageStorageCharset;
+    private Index index;
 
     public TestOutputStore(File resultsDir) {
         this.resultsDir = resultsDir;
@@ -83,6 +84,7 @@ public class Writer implements Closeable {
         private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
 
         public Writer() {
+            discardIndex();
             try {
                 output = new KryoBackedEncoder(new FileOutputStream(getOutputsFile()));
             } catch (FileNotFoundException e) {
@@ -225,6 +227,53 @@ Index build() {
         }
     }
 
+    /**
+     * Returns the index of the outputs file, which is read once and then shared by the readers of all threads.
+     */
+    private synchronized Index loadIndex() {
+        if (index == null) {
+            index = readIndex();
+        }
+        return index;
+    }
+
+    private synchronized void discardIndex() {
+        index = null;
+    }
+
+    private Index readIndex() {
+        Input input;
+        try {
+            input = new Input(new FileInputStream(getIndexFile()));
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        IndexBuilder rootBuilder = new IndexBuilder();
+        try {
+            int numClasses = input.readInt(true);
+
+            for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
+                long classId = input.readLong(true);
+                IndexBuilder classBuilder = new IndexBuilder();
+
+                int numEntries = input.readInt(true);
+                for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
+                    long testId = input.readLong(true);
+                    Region stdOut = new Region(input.readLong(), input.readLong());
+                    Region stdErr = new Region(input.readLong(), input.readLong());
+                    classBuilder.add(testId, new Index(stdOut, stdErr));
+                }
+
+                rootBuilder.add(classId, classBuilder.build());
+            }
+        } finally {
+            input.close();
+        }
+
+        return rootBuilder.build();
+    }
+
     public class Reader implements Closeable {
         private final Index index;
         private final RandomAccessFile dataFile;
@@ -238,37 +287,7 @@ public Reader() {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' exists but the index file '%s' does not", outputsFile, indexFile));
                 }
 
-                Input input;
-                try {
-                    input = new Input(new FileInputStream(indexFile));
-                } catch (FileNotFoundException e) {
-                    throw new UncheckedIOException(e);
-                }
-
-                IndexBuilder rootBuilder = null;
-                try {
-                    int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
-
-                    for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
-                        long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
-                        }
-
-                        rootBuilder.add(classId, classBuilder.build());
-                    }
-                } finally {
-                    input.close();
-                }
-
-                index = rootBuilder.build();
+                index = loadIndex();
 
                 try {
                     dataFile = new RandomAccessFile(getOutputsFile(), "r");
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+import java.util.List;
+
+/**
+ * Distributes the test classes of a test run which are left once all of them are known across the test processors, based on the durations
+ * of the test classes in the previous run. The result covers all test classes of the test run, including those passed on before.
+ *
+ * @see MaxNParallelTestClassProcessor
+ */
+public interface DistributeTestClassesBuildOperationType extends BuildOperationType<DistributeTestClassesBuildOperationType.Details, DistributeTestClassesBuildOperationType.Result> {
+
+    interface Details {
+        /**
+         * The maximum number of test processors the test classes are distributed across.
+         */
+        int getMaxProcessors();
+    }
+
+    interface Result {
+        /**
+         * The number of distributed test classes.
+         */
+        int getTestClassCount();
+
+        /**
+         * The number of distributed test classes which did not run in the previous run, and were assumed to take the average duration.
+         */
+        int getTestClassWithoutDurationCount();
+
+        /**
+         * The sum of the previous durations of the test classes assigned to each test processor.
+         */
+        List<Long> getEstimatedProcessorDurationsMillis();
+    }
+}
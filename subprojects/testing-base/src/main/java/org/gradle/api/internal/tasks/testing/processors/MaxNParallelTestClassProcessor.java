@@ -25,18 +25,44 @@
 import org.gradle.internal.actor.ActorFactory;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.dispatch.DispatchException;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
  * processors.
+ *
+ * <p>When the durations of the test classes in the previous run are given, each test class is instead assigned to the
+ * processor with the least estimated work. Test classes are passed on in the order of the previous run: previously
+ * failed test classes first, then longest first. A test class is passed on as soon as all test classes ahead of it in
+ * this order have been received, and the remaining test classes once all of them are known. Test classes which did not
+ * run before are assumed to take the average duration of the previous run.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Set<String> previousFailedTestClasses;
+    private final Map<String, Long> previousTestClassDurations;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final List<String> expectedTestClasses = new ArrayList<String>();
+    private final Map<String, TestClassRunInfo> receivedTestClasses = new HashMap<String, TestClassRunInfo>();
+    private final List<TestClassRunInfo> newTestClasses = new ArrayList<TestClassRunInfo>();
+    private final List<Long> estimatedDurations = new ArrayList<Long>();
+    private long averageDuration;
+    private int nextExpected;
+    private int testClassCount;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
@@ -46,9 +72,34 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private volatile boolean stoppedNow;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String>emptySet(), null, null);
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, final Set<String> previousFailedTestClasses, @Nullable final Map<String, Long> previousTestClassDurations, @Nullable BuildOperationExecutor buildOperationExecutor) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousFailedTestClasses = previousFailedTestClasses;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.buildOperationExecutor = buildOperationExecutor;
+        if (isDistributingByDuration()) {
+            expectedTestClasses.addAll(previousTestClassDurations.keySet());
+            Collections.sort(expectedTestClasses, new Comparator<String>() {
+                @Override
+                public int compare(String left, String right) {
+                    int result = Boolean.compare(previousFailedTestClasses.contains(right), previousFailedTestClasses.contains(left));
+                    if (result == 0) {
+                        result = Long.compare(previousTestClassDurations.get(right), previousTestClassDurations.get(left));
+                    }
+                    return result == 0 ? left.compareTo(right) : result;
+                }
+            });
+            long totalDuration = 0;
+            for (Long duration : previousTestClassDurations.values()) {
+                totalDuration += duration;
+            }
+            averageDuration = expectedTestClasses.isEmpty() ? 0 : totalDuration / expectedTestClasses.size();
+        }
     }
 
     @Override
@@ -63,16 +114,14 @@ public void processTestClass(TestClassRunInfo testClass) {
         if (stoppedNow) {
             return;
         }
+        if (isDistributingByDuration()) {
+            receiveTestClass(testClass);
+            return;
+        }
 
         TestClassProcessor processor;
         if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            rawProcessors.add(processor);
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
+            processor = startProcessor();
         } else {
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
@@ -80,8 +129,119 @@ public void processTestClass(TestClassRunInfo testClass) {
         processor.processTestClass(testClass);
     }
 
+    private boolean isDistributingByDuration() {
+        return previousTestClassDurations != null && buildOperationExecutor != null;
+    }
+
+    private TestClassProcessor startProcessor() {
+        TestClassProcessor processor = factory.create();
+        rawProcessors.add(processor);
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+        return processor;
+    }
+
+    private void receiveTestClass(TestClassRunInfo testClass) {
+        testClassCount++;
+        String className = testClass.getTestClassName();
+        if (!previousTestClassDurations.containsKey(className)) {
+            newTestClasses.add(testClass);
+            return;
+        }
+        receivedTestClasses.put(className, testClass);
+        while (nextExpected < expectedTestClasses.size()) {
+            TestClassRunInfo next = receivedTestClasses.remove(expectedTestClasses.get(nextExpected));
+            if (next == null) {
+                break;
+            }
+            nextExpected++;
+            assignTestClass(next, previousTestClassDurations.get(next.getTestClassName()));
+        }
+    }
+
+    private void assignTestClass(TestClassRunInfo testClass, long duration) {
+        int index;
+        if (processors.size() < maxProcessors) {
+            startProcessor();
+            estimatedDurations.add(0L);
+            index = processors.size() - 1;
+        } else {
+            index = indexOfLeastBusy(estimatedDurations);
+        }
+        estimatedDurations.set(index, estimatedDurations.get(index) + duration);
+        processors.get(index).processTestClass(testClass);
+    }
+
+    private void assignRemainingTestClasses() {
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                // Test classes ahead of these in the previous order were not received, so pass these on in that order
+                for (int i = nextExpected; i < expectedTestClasses.size() && !receivedTestClasses.isEmpty() && !stoppedNow; i++) {
+                    TestClassRunInfo testClass = receivedTestClasses.remove(expectedTestClasses.get(i));
+                    if (testClass != null) {
+                        assignTestClass(testClass, previousTestClassDurations.get(testClass.getTestClassName()));
+                    }
+                }
+                for (TestClassRunInfo testClass : newTestClasses) {
+                    if (stoppedNow) {
+                        break;
+                    }
+                    assignTestClass(testClass, averageDuration);
+                }
+
+                final int testClassCount = MaxNParallelTestClassProcessor.this.testClassCount;
+                final int testClassWithoutDurationCount = newTestClasses.size();
+                final List<Long> estimatedDurations = new ArrayList<Long>(MaxNParallelTestClassProcessor.this.estimatedDurations);
+                context.setResult(new DistributeTestClassesBuildOperationType.Result() {
+                    @Override
+                    public int getTestClassCount() {
+                        return testClassCount;
+                    }
+
+                    @Override
+                    public int getTestClassWithoutDurationCount() {
+                        return testClassWithoutDurationCount;
+                    }
+
+                    @Override
+                    public List<Long> getEstimatedProcessorDurationsMillis() {
+                        return estimatedDurations;
+                    }
+                });
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Distribute test classes")
+                    .details(new DistributeTestClassesBuildOperationType.Details() {
+                        @Override
+                        public int getMaxProcessors() {
+                            return maxProcessors;
+                        }
+                    });
+            }
+        });
+    }
+
+    private static int indexOfLeastBusy(List<Long> estimatedDurations) {
+        int index = 0;
+        for (int i = 1; i < estimatedDurations.size(); i++) {
+            if (estimatedDurations.get(i) < estimatedDurations.get(index)) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
     @Override
     public void stop() {
+        if (isDistributingByDuration() && testClassCount > 0 && !stoppedNow) {
+            assignRemainingTestClasses();
+        }
         try {
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
@@ -28,13 +28,16 @@
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 class ClassPageRenderer extends PageRenderer<ClassTestResults> {
     private final CodePanelRenderer codePanelRenderer = new CodePanelRenderer();
     private final TestResultsProvider resultsProvider;
+    private final Map<TestResult, List<TestFailure>> failures;
 
-    public ClassPageRenderer(TestResultsProvider provider) {
+    public ClassPageRenderer(TestResultsProvider provider, Map<TestResult, List<TestFailure>> failures) {
         this.resultsProvider = provider;
+        this.failures = failures;
     }
 
     @Override
@@ -100,7 +103,7 @@ protected void renderFailures(SimpleHtmlWriter htmlWriter) throws IOException {
             htmlWriter.startElement("div").attribute("class", "test")
                 .startElement("a").attribute("name", test.getId().toString()).characters("").endElement() //browsers dont understand <a name="..."/>
                 .startElement("h3").attribute("class", test.getStatusClass()).characters(test.getDisplayName()).endElement();
-            for (TestFailure failure : test.getFailures()) {
+            for (TestFailure failure : failures.get(test)) {
                 String message;
                 if (GUtil.isTrue(failure.getMessage()) && !failure.getStackTrace().contains(failure.getMessage())) {
                     message = failure.getMessage() + SystemProperties.getInstance().getLineSeparator() + SystemProperties.getInstance().getLineSeparator() + failure.getStackTrace();
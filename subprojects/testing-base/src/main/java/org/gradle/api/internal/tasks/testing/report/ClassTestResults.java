@@ -91,6 +91,14 @@ public Collection<TestResult> getTestResults() {
         return results;
     }
 
+    /**
+     * Discards the results of the tests of this class, once its page has been rendered.
+     * The counts and duration of the class are kept, as are its failed and ignored tests, which are listed by the package and overview pages.
+     */
+    public void discardTestResults() {
+        results.clear();
+    }
+
     public TestResult addTest(String testName, String testDisplayName, long duration) {
         TestResult test = new TestResult(testName, testDisplayName, duration, this);
         results.add(test);
@@ -17,6 +17,7 @@
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.junit.result.BatchingTestClassVisitor;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
@@ -37,7 +38,9 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
@@ -54,35 +57,30 @@ public void generateReport(TestResultsProvider resultsProvider, File reportDir)
         LOG.info("Generating HTML test report...");
 
         Timer clock = Time.startTimer();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        generateFiles(resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getElapsed(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            @Override
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == SKIPPED) {
-                        testResult.setIgnored();
-                    } else {
-                        List<TestFailure> failures = collectedResult.getFailures();
-                        for (TestFailure failure : failures) {
-                            testResult.addFailure(failure);
-                        }
-                    }
-                }
+    /**
+     * Adds the tests of the given test class to the model, and returns the failures of each failed test.
+     * The model only keeps the outcome of each test, so that the failures can be discarded once the page of the class has been rendered.
+     */
+    private static Map<TestResult, List<TestFailure>> addTests(AllTestResults model, TestClassResult classResult) {
+        Map<TestResult, List<TestFailure>> failures = new IdentityHashMap<TestResult, List<TestFailure>>();
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == SKIPPED) {
+                testResult.setIgnored();
+            } else if (!collectedResult.getFailures().isEmpty()) {
+                testResult.setFailed();
+                failures.put(testResult, collectedResult.getFailures());
             }
-        });
-        return model;
+        }
+        return failures;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, final File reportDir) {
+    private void generateFiles(final TestResultsProvider resultsProvider, final File reportDir) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
             buildOperationExecutor.run(new RunnableBuildOperation() {
@@ -99,18 +97,19 @@ public BuildOperationDescriptor.Builder description() {
                 }
             });
 
-            htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
+            htmlRenderer.render(new AllTestResults(), new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(final AllTestResults model, final HtmlReportBuilder output) throws IOException {
-                    buildOperationExecutor.runAll(new Action<BuildOperationQueue<HtmlReportFileGenerator<? extends CompositeTestResults>>>() {
+                    buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
                         @Override
-                        public void execute(BuildOperationQueue<HtmlReportFileGenerator<? extends CompositeTestResults>> queue) {
+                        public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                            // The visitor queues the class pages in batches of BatchingTestClassVisitor.TESTS_PER_OPERATION tests, which are rendered while the remaining classes are visited
+                            ClassPagesVisitor visitor = new ClassPagesVisitor(model, resultsProvider, output, queue);
+                            resultsProvider.visitClasses(visitor);
+                            visitor.flush();
                             queue.add(generator("index.html", model, new OverviewPageRenderer(), output));
                             for (PackageTestResults packageResults : model.getPackages()) {
                                 queue.add(generator(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer(), output));
-                                for (ClassTestResults classResults : packageResults.getClasses()) {
-                                    queue.add(generator(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider), output));
-                                }
                             }
                         }
                     });
@@ -121,6 +120,72 @@ public void execute(BuildOperationQueue<HtmlReportFileGenerator<? extends Compos
         }
     }
 
+    private static class ClassPagesVisitor extends BatchingTestClassVisitor<HtmlReportFileGenerator<ClassTestResults>> {
+        private final AllTestResults model;
+        private final TestResultsProvider resultsProvider;
+        private final HtmlReportBuilder output;
+        private final BuildOperationQueue<RunnableBuildOperation> queue;
+
+        ClassPagesVisitor(AllTestResults model, TestResultsProvider resultsProvider, HtmlReportBuilder output, BuildOperationQueue<RunnableBuildOperation> queue) {
+            this.model = model;
+            this.resultsProvider = resultsProvider;
+            this.output = output;
+            this.queue = queue;
+        }
+
+        @Override
+        protected HtmlReportFileGenerator<ClassTestResults> transform(TestClassResult classResult) {
+            ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
+            Map<TestResult, List<TestFailure>> failures = addTests(model, classResult);
+            return new ClassPageGenerator(classResults, new ClassPageRenderer(resultsProvider, failures), output);
+        }
+
+        @Override
+        protected void submit(List<HtmlReportFileGenerator<ClassTestResults>> batch) {
+            if (batch.size() == 1) {
+                queue.add(batch.get(0));
+            } else {
+                queue.add(new ClassPagesGenerator(batch));
+            }
+        }
+    }
+
+    private static class ClassPagesGenerator implements RunnableBuildOperation {
+        private final List<HtmlReportFileGenerator<ClassTestResults>> generators;
+
+        ClassPagesGenerator(List<HtmlReportFileGenerator<ClassTestResults>> generators) {
+            this.generators = generators;
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Generate HTML test reports for " + generators.size() + " test classes");
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            for (HtmlReportFileGenerator<ClassTestResults> generator : generators) {
+                generator.run(context);
+            }
+        }
+    }
+
+    private static class ClassPageGenerator extends HtmlReportFileGenerator<ClassTestResults> {
+        private final ClassTestResults classResults;
+
+        ClassPageGenerator(ClassTestResults classResults, ClassPageRenderer renderer, HtmlReportBuilder output) {
+            super(classResults.getBaseUrl(), classResults, renderer, output);
+            this.classResults = classResults;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            super.run(context);
+            // Only the failed and ignored tests are needed for the package and overview pages, so the model does not grow with the number of passed tests
+            classResults.discardTestResults();
+        }
+    }
+
     public static <T extends CompositeTestResults> HtmlReportFileGenerator<T> generator(String fileUrl, T results, PageRenderer<T> renderer, HtmlReportBuilder output) {
         return new HtmlReportFileGenerator<T>(fileUrl, results, renderer, output);
     }
@@ -15,19 +15,14 @@
  */
 package org.gradle.api.internal.tasks.testing.report;
 
-import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
-
-import java.util.ArrayList;
-import java.util.List;
-
 import static org.gradle.api.tasks.testing.TestResult.ResultType;
 
 public class TestResult extends TestResultModel implements Comparable<TestResult> {
     private final long duration;
     final ClassTestResults classResults;
-    final List<TestFailure> failures = new ArrayList<TestFailure>();
     final String name;
     final String displayName;
+    boolean failed;
     boolean ignored;
 
     public TestResult(String name, long duration, ClassTestResults classResults) {
@@ -63,7 +58,7 @@ public ResultType getResultType() {
         if (ignored) {
             return ResultType.SKIPPED;
         }
-        return failures.isEmpty() ? ResultType.SUCCESS : ResultType.FAILURE;
+        return failed ? ResultType.FAILURE : ResultType.SUCCESS;
     }
 
     @Override
@@ -80,17 +75,13 @@ public ClassTestResults getClassResults() {
         return classResults;
     }
 
-    public List<TestFailure> getFailures() {
-        return failures;
-    }
-
     public boolean isIgnored() {
         return ignored;
     }
 
-    public void addFailure(TestFailure failure) {
+    public void setFailed() {
         classResults.failed(this);
-        failures.add(failure);
+        failed = true;
     }
 
     public void setIgnored() {
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the events of a test worker into batches, so that many small tests do not cost a message each.
+ *
+ * <p>A batch is sent when it holds {@link #MAX_BATCH_SIZE} events, when {@link #MAX_DELAY_MILLIS} have passed since its first event,
+ * or when {@link #flush()} is called. Tests may report events from several threads, so the events are collected in the order they are received.</p>
+ *
+ * <p>Started and failure events are sent right away, together with the events collected before them. This way the build process still knows
+ * which test was running and how it failed when the worker dies before the next batch is sent.</p>
+ */
+class BatchingTestResultProcessor implements TestResultProcessor {
+    static final int MAX_BATCH_SIZE = 512;
+    static final long MAX_DELAY_MILLIS = 100;
+
+    private final TestEventBatchProcessor target;
+    private final ScheduledExecutorService executor;
+    private final Runnable scheduledFlush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (BatchingTestResultProcessor.this) {
+                flushScheduled = false;
+                flush();
+            }
+        }
+    };
+    private List<TestEventBatch.Event> events = new ArrayList<TestEventBatch.Event>();
+    private boolean flushScheduled;
+
+    BatchingTestResultProcessor(TestEventBatchProcessor target, ScheduledExecutorService executor) {
+        this.target = target;
+        this.executor = executor;
+    }
+
+    @Override
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        addAndFlush(new TestEventBatch.Started(test, event));
+    }
+
+    @Override
+    public void completed(Object testId, TestCompleteEvent event) {
+        add(new TestEventBatch.Completed(testId, event));
+    }
+
+    @Override
+    public void output(Object testId, TestOutputEvent event) {
+        add(new TestEventBatch.Output(testId, event));
+    }
+
+    @Override
+    public void failure(Object testId, Throwable result) {
+        addAndFlush(new TestEventBatch.Failure(testId, result));
+    }
+
+    private synchronized void add(TestEventBatch.Event event) {
+        events.add(event);
+        if (events.size() >= MAX_BATCH_SIZE) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(scheduledFlush, MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void addAndFlush(TestEventBatch.Event event) {
+        events.add(event);
+        flush();
+    }
+
+    /**
+     * Sends the events collected so far, if any.
+     */
+    public synchronized void flush() {
+        if (events.isEmpty()) {
+            return;
+        }
+        // The batch is handed over to the connection, so it is not modified afterwards
+        TestEventBatch batch = new TestEventBatch(events);
+        events = new ArrayList<TestEventBatch.Event>();
+        target.processBatch(batch);
+    }
+}
@@ -33,9 +33,11 @@
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 import org.gradle.util.internal.CollectionUtils;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -51,8 +53,10 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final ModuleRegistry moduleRegistry;
     private final Lock lock = new ReentrantLock();
     private final WorkerThreadRegistry workerThreadRegistry;
+    private final TestWorkerPool workerPool;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
+    private PooledTestWorkerClient pooledWorker;
     private TestResultProcessor resultProcessor;
     private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
     private final DocumentationRegistry documentationRegistry;
@@ -62,6 +66,17 @@ public ForkingTestClassProcessor(
         WorkerThreadRegistry workerThreadRegistry, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
         Iterable<File> classPath, Iterable<File> modulePath, List<String> testWorkerImplementationModules,
         Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry
+    ) {
+        this(workerThreadRegistry, workerFactory, processorFactory, options, classPath, modulePath, testWorkerImplementationModules, buildConfigAction, moduleRegistry, documentationRegistry, null);
+    }
+
+    /**
+     * Creates a processor which runs the tests in a worker reserved from the given pool, if any, instead of a new worker process.
+     */
+    public ForkingTestClassProcessor(
+        WorkerThreadRegistry workerThreadRegistry, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options,
+        Iterable<File> classPath, Iterable<File> modulePath, List<String> testWorkerImplementationModules,
+        Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, DocumentationRegistry documentationRegistry, @Nullable TestWorkerPool workerPool
     ) {
         this.workerThreadRegistry = workerThreadRegistry;
         this.workerFactory = workerFactory;
@@ -73,6 +88,7 @@ public ForkingTestClassProcessor(
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.documentationRegistry = documentationRegistry;
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -106,6 +122,9 @@ public void processTestClass(TestClassRunInfo testClass) {
     }
 
     RemoteTestClassProcessor forkProcess() {
+        if (workerPool != null) {
+            return startPooledSession();
+        }
         WorkerProcessBuilder builder = workerFactory.create(new TestWorker(processorFactory));
         builder.setBaseName("Gradle Test Executor");
         builder.setImplementationClasspath(getTestWorkerImplementationClasspath());
@@ -121,13 +140,36 @@ RemoteTestClassProcessor forkProcess() {
 
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializers(TestEventSerializer.create());
-        connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        final TestResultProcessor resultProcessor = this.resultProcessor;
+        connection.addIncoming(TestEventBatchProcessor.class, new TestEventBatchProcessor() {
+            @Override
+            public void processBatch(TestEventBatch batch) {
+                batch.dispatchTo(resultProcessor);
+            }
+        });
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
         return remoteProcessor;
     }
 
+    private RemoteTestClassProcessor startPooledSession() {
+        // The application classes and the test framework implementation are loaded per session instead
+        WorkerProcessBuilder builder = workerFactory.create(new TestWorker());
+        builder.setBaseName("Gradle Test Executor");
+        List<URL> implementationClasspath = getPooledTestWorkerImplementationClasspath();
+        builder.setImplementationClasspath(implementationClasspath);
+        builder.setImplementationModulePath(Collections.<URL>emptyList());
+        options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().jvmArgs("-Dorg.gradle.native=false");
+        buildConfigAction.execute(builder);
+
+        pooledWorker = workerPool.reserveWorker(options, builder, implementationClasspath);
+        workerProcess = pooledWorker.getWorkerProcess();
+        TestWorkerSession session = TestWorkerSession.of(processorFactory, classPath, getTestFrameworkImplementationClasspath(), builder.getSharedPackages());
+        return pooledWorker.startSession(session, resultProcessor);
+    }
+
     List<URL> getTestWorkerImplementationClasspath() {
         return CollectionUtils.flattenCollections(URL.class,
             moduleRegistry.getModule("gradle-core-api").getImplementationClasspath().getAsURLs(),
@@ -159,6 +201,25 @@ List<URL> getTestWorkerImplementationClasspath() {
         );
     }
 
+    private List<URL> getPooledTestWorkerImplementationClasspath() {
+        List<URL> testFrameworkImplementationClasspath = getTestFrameworkImplementationClasspath();
+        List<URL> classpath = new ArrayList<URL>();
+        for (URL url : getTestWorkerImplementationClasspath()) {
+            if (!testFrameworkImplementationClasspath.contains(url)) {
+                classpath.add(url);
+            }
+        }
+        return classpath;
+    }
+
+    private List<URL> getTestFrameworkImplementationClasspath() {
+        return CollectionUtils.flattenCollections(URL.class,
+            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-testing-junit-platform").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("junit").getImplementationClasspath().getAsURLs()
+        );
+    }
+
     List<URL> getTestWorkerImplementationModulePath() {
         List<URL> modules = new ArrayList<URL>();
         for (String moduleName : testWorkerImplementationModules) {
@@ -179,7 +240,11 @@ public void stop() {
                 } finally {
                     lock.unlock();
                 }
-                workerProcess.waitForStop();
+                if (pooledWorker != null) {
+                    pooledWorker.waitForSessionCompletion();
+                } else {
+                    workerProcess.waitForStop();
+                }
             }
         } catch (ExecException e) {
             if (!stoppedNow) {
@@ -189,6 +254,9 @@ public void stop() {
                     + documentationRegistry.getDocumentationFor("java_testing", "sec:test_execution"), e.getCause());
             }
         } finally {
+            if (pooledWorker != null) {
+                workerPool.release(pooledWorker);
+            }
             if (completion != null) {
                 completion.leaseFinish();
             }
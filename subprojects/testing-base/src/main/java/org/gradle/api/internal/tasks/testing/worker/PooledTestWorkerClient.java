@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.dispatch.StreamCompletion;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.ExecException;
+import org.gradle.process.internal.worker.WorkerProcess;
+
+/**
+ * A test worker process kept alive by the {@link TestWorkerPool}, which runs one session after another.
+ */
+class PooledTestWorkerClient implements PooledTestResultProcessor, StreamCompletion, Stoppable {
+    private final Object key;
+    private final WorkerProcess workerProcess;
+    private PooledRemoteTestClassProcessor remoteProcessor;
+    private TestResultProcessor resultProcessor;
+    private boolean sessionRunning;
+    private boolean disconnected;
+    private int uses;
+
+    PooledTestWorkerClient(Object key, WorkerProcess workerProcess) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+    }
+
+    void connect() {
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(PooledTestResultProcessor.class, this);
+        remoteProcessor = connection.addOutgoing(PooledRemoteTestClassProcessor.class);
+        connection.connect();
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    WorkerProcess getWorkerProcess() {
+        return workerProcess;
+    }
+
+    int getUses() {
+        return uses;
+    }
+
+    /**
+     * Starts a session, which sends its results to the given processor until it has completed.
+     */
+    RemoteTestClassProcessor startSession(TestWorkerSession session, TestResultProcessor resultProcessor) {
+        synchronized (this) {
+            this.resultProcessor = resultProcessor;
+            sessionRunning = true;
+            uses++;
+        }
+        remoteProcessor.startSession(session);
+        remoteProcessor.startProcessing();
+        return remoteProcessor;
+    }
+
+    /**
+     * Waits until the worker has completed the session after it has been requested to stop.
+     *
+     * @throws ExecException when the worker process has failed instead.
+     */
+    void waitForSessionCompletion() {
+        synchronized (this) {
+            while (sessionRunning && !disconnected) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            if (!sessionRunning) {
+                return;
+            }
+        }
+        workerProcess.waitForStop();
+        throw new ExecException("Test worker process stopped before completing the tests.");
+    }
+
+    synchronized boolean isReusable() {
+        return !sessionRunning && !disconnected;
+    }
+
+    private synchronized TestResultProcessor getResultProcessor() {
+        if (resultProcessor == null) {
+            throw new IllegalStateException("No session is running.");
+        }
+        return resultProcessor;
+    }
+
+    @Override
+    public void processBatch(TestEventBatch batch) {
+        batch.dispatchTo(getResultProcessor());
+    }
+
+    @Override
+    public synchronized void sessionCompleted() {
+        sessionRunning = false;
+        resultProcessor = null;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void endStream() {
+        disconnected = true;
+        notifyAll();
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (!disconnected) {
+                remoteProcessor.stopWorker();
+            }
+        }
+        workerProcess.waitForStop();
+    }
+}
@@ -22,6 +22,11 @@
 import org.gradle.internal.id.CompositeIdGenerator;
 import org.gradle.internal.serialize.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class TestEventSerializer {
     public static SerializerRegistry create() {
         BaseSerializerFactory factory = new BaseSerializerFactory();
@@ -38,6 +43,7 @@ public static SerializerRegistry create() {
         registry.register(TestCompleteEvent.class, new TestCompleteEventSerializer());
         registry.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventSerializer());
         registry.register(Throwable.class, factory.getSerializerFor(Throwable.class));
+        registry.register(TestEventBatch.class, new TestEventBatchSerializer(registry.build(TestDescriptorInternal.class), factory.getSerializerFor(Throwable.class)));
         return registry;
     }
 
@@ -256,4 +262,157 @@ public void write(Encoder encoder, DefaultTestMethodDescriptor value) throws Exc
             encoder.writeString(value.getName());
         }
     }
+
+    /**
+     * Writes the events of a batch without the overhead of a method invocation per event.
+     * The names of the tests are written once per batch, as the tests of a class or a parameterized method share most of them.
+     */
+    private static class TestEventBatchSerializer implements Serializer<TestEventBatch> {
+        private static final int TEST_STARTED = 0;
+        private static final int TEST_CLASS_STARTED = 1;
+        private static final int STARTED = 2;
+        private static final int COMPLETED = 3;
+        private static final int OUTPUT = 4;
+        private static final int FAILURE = 5;
+
+        private final Serializer<TestDescriptorInternal> descriptorSerializer;
+        private final Serializer<Throwable> throwableSerializer;
+        private final Serializer<CompositeIdGenerator.CompositeId> idSerializer = new CompactIdSerializer();
+        private final Serializer<TestStartEvent> startEventSerializer = new TestStartEventSerializer();
+        private final Serializer<TestCompleteEvent> completeEventSerializer = new TestCompleteEventSerializer();
+        private final Serializer<DefaultTestOutputEvent> outputEventSerializer = new DefaultTestOutputEventSerializer();
+
+        private TestEventBatchSerializer(Serializer<TestDescriptorInternal> descriptorSerializer, Serializer<Throwable> throwableSerializer) {
+            this.descriptorSerializer = descriptorSerializer;
+            this.throwableSerializer = throwableSerializer;
+        }
+
+        @Override
+        public TestEventBatch read(Decoder decoder) throws Exception {
+            int size = decoder.readSmallInt();
+            List<TestEventBatch.Event> events = new ArrayList<TestEventBatch.Event>(size);
+            List<String> strings = new ArrayList<String>();
+            for (int i = 0; i < size; i++) {
+                events.add(readEvent(decoder, strings));
+            }
+            return new TestEventBatch(events);
+        }
+
+        private TestEventBatch.Event readEvent(Decoder decoder, List<String> strings) throws Exception {
+            int kind = decoder.readSmallInt();
+            switch (kind) {
+                case TEST_STARTED: {
+                    Object id = idSerializer.read(decoder);
+                    String className = readString(decoder, strings);
+                    String classDisplayName = readString(decoder, strings);
+                    String name = readString(decoder, strings);
+                    String displayName = readString(decoder, strings);
+                    DefaultTestDescriptor test = new DefaultTestDescriptor(id, className, name, classDisplayName, displayName);
+                    return new TestEventBatch.Started(test, startEventSerializer.read(decoder));
+                }
+                case TEST_CLASS_STARTED: {
+                    Object id = idSerializer.read(decoder);
+                    String className = readString(decoder, strings);
+                    String classDisplayName = readString(decoder, strings);
+                    DefaultTestClassDescriptor test = new DefaultTestClassDescriptor(id, className, classDisplayName);
+                    return new TestEventBatch.Started(test, startEventSerializer.read(decoder));
+                }
+                case STARTED:
+                    return new TestEventBatch.Started(descriptorSerializer.read(decoder), startEventSerializer.read(decoder));
+                case COMPLETED:
+                    return new TestEventBatch.Completed(idSerializer.read(decoder), completeEventSerializer.read(decoder));
+                case OUTPUT:
+                    return new TestEventBatch.Output(idSerializer.read(decoder), outputEventSerializer.read(decoder));
+                case FAILURE:
+                    return new TestEventBatch.Failure(idSerializer.read(decoder), throwableSerializer.read(decoder));
+                default:
+                    throw new IllegalArgumentException(String.format("Unexpected test event kind %d found.", kind));
+            }
+        }
+
+        private static String readString(Decoder decoder, List<String> strings) throws Exception {
+            int index = decoder.readSmallInt();
+            if (index == 0) {
+                String value = decoder.readString();
+                strings.add(value);
+                return value;
+            }
+            return strings.get(index - 1);
+        }
+
+        @Override
+        public void write(Encoder encoder, TestEventBatch value) throws Exception {
+            encoder.writeSmallInt(value.size());
+            Map<String, Integer> strings = new HashMap<String, Integer>();
+            for (TestEventBatch.Event event : value.getEvents()) {
+                writeEvent(encoder, event, strings);
+            }
+        }
+
+        private void writeEvent(Encoder encoder, TestEventBatch.Event event, Map<String, Integer> strings) throws Exception {
+            if (event instanceof TestEventBatch.Started) {
+                TestEventBatch.Started started = (TestEventBatch.Started) event;
+                // Subclasses may carry more state, so only the exact types are written field by field
+                if (started.test.getClass() == DefaultTestDescriptor.class) {
+                    encoder.writeSmallInt(TEST_STARTED);
+                    idSerializer.write(encoder, (CompositeIdGenerator.CompositeId) started.test.getId());
+                    writeString(encoder, started.test.getClassName(), strings);
+                    writeString(encoder, started.test.getClassDisplayName(), strings);
+                    writeString(encoder, started.test.getName(), strings);
+                    writeString(encoder, started.test.getDisplayName(), strings);
+                } else if (started.test.getClass() == DefaultTestClassDescriptor.class) {
+                    encoder.writeSmallInt(TEST_CLASS_STARTED);
+                    idSerializer.write(encoder, (CompositeIdGenerator.CompositeId) started.test.getId());
+                    writeString(encoder, started.test.getClassName(), strings);
+                    writeString(encoder, started.test.getClassDisplayName(), strings);
+                } else {
+                    encoder.writeSmallInt(STARTED);
+                    descriptorSerializer.write(encoder, started.test);
+                }
+                startEventSerializer.write(encoder, started.event);
+            } else if (event instanceof TestEventBatch.Completed) {
+                TestEventBatch.Completed completed = (TestEventBatch.Completed) event;
+                encoder.writeSmallInt(COMPLETED);
+                idSerializer.write(encoder, (CompositeIdGenerator.CompositeId) completed.testId);
+                completeEventSerializer.write(encoder, completed.event);
+            } else if (event instanceof TestEventBatch.Output) {
+                TestEventBatch.Output output = (TestEventBatch.Output) event;
+                encoder.writeSmallInt(OUTPUT);
+                idSerializer.write(encoder, (CompositeIdGenerator.CompositeId) output.testId);
+                outputEventSerializer.write(encoder, (DefaultTestOutputEvent) output.event);
+            } else {
+                TestEventBatch.Failure failure = (TestEventBatch.Failure) event;
+                encoder.writeSmallInt(FAILURE);
+                idSerializer.write(encoder, (CompositeIdGenerator.CompositeId) failure.testId);
+                throwableSerializer.write(encoder, failure.failure);
+            }
+        }
+
+        private static void writeString(Encoder encoder, String value, Map<String, Integer> strings) throws Exception {
+            Integer index = strings.get(value);
+            if (index != null) {
+                encoder.writeSmallInt(index);
+                return;
+            }
+            strings.put(value, strings.size() + 1);
+            encoder.writeSmallInt(0);
+            encoder.writeString(value);
+        }
+    }
+
+    /**
+     * Writes the parts of an id as variable length values, as they are small in practice.
+     */
+    private static class CompactIdSerializer implements Serializer<CompositeIdGenerator.CompositeId> {
+        @Override
+        public CompositeIdGenerator.CompositeId read(Decoder decoder) throws Exception {
+            return new CompositeIdGenerator.CompositeId(decoder.readSmallLong(), decoder.readSmallLong());
+        }
+
+        @Override
+        public void write(Encoder encoder, CompositeIdGenerator.CompositeId value) throws Exception {
+            encoder.writeSmallLong((Long) value.getScope());
+            encoder.writeSmallLong((Long) value.getId());
+        }
+    }
 }
@@ -19,16 +19,17 @@
 import org.gradle.api.Action;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.Cast;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.actor.ActorFactory;
 import org.gradle.internal.actor.internal.DefaultActorFactory;
+import org.gradle.internal.classloader.ClassLoaderUtils;
 import org.gradle.internal.concurrent.DefaultExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.dispatch.StreamCompletion;
 import org.gradle.internal.id.CompositeIdGenerator;
 import org.gradle.internal.id.IdGenerator;
 import org.gradle.internal.id.LongIdGenerator;
@@ -40,8 +41,10 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.security.AccessControlException;
+import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
@@ -56,8 +59,12 @@
  * Commands are received on communication threads and then processed sequentially on the main thread.  Although concurrent calls to
  * any of the methods from {@link RemoteTestClassProcessor} are supported, the commands will still be executed sequentially in the
  * main thread in order of arrival.
+ *
+ * A pooled worker, created without a {@link WorkerTestClassProcessorFactory}, instead receives a {@link TestWorkerSession} before each
+ * sequence of commands, and keeps running after the stop command until {@link PooledRemoteTestClassProcessor#stopWorker()} is received.
+ * After each session, the system properties and the security manager are reset and the ClassLoaders of the session are discarded.
  */
-public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable, Stoppable {
+public class TestWorker implements Action<WorkerProcessContext>, PooledRemoteTestClassProcessor, Serializable, Stoppable, StreamCompletion {
     private enum State { INITIALIZING, STARTED, STOPPED }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
@@ -65,10 +72,18 @@ private enum State { INITIALIZING, STARTED, STOPPED }
     public static final String WORKER_TMPDIR_SYS_PROPERTY = "org.gradle.internal.worker.tmpdir";
     private static final String WORK_THREAD_NAME = "Test worker";
 
+    @Nullable
     private final WorkerTestClassProcessorFactory factory;
     private final BlockingQueue<Runnable> runQueue = new ArrayBlockingQueue<Runnable>(1);
     private TestClassProcessor processor;
-    private TestResultProcessor resultProcessor;
+    private BatchingTestResultProcessor resultProcessor;
+    private PooledTestResultProcessor sessionResultProcessor;
+    private WorkerProcessContext workerProcessContext;
+    private DefaultServiceRegistry testServices;
+    private SecurityManager securityManager;
+    private Properties systemProperties;
+    private ClassLoader sessionApplicationClassLoader;
+    private ClassLoader sessionFrameworkClassLoader;
 
     /**
      * Note that the state object is not synchronized and not thread-safe.  Any modifications to the
@@ -81,18 +96,44 @@ public TestWorker(WorkerTestClassProcessorFactory factory) {
         this.factory = factory;
     }
 
+    /**
+     * Creates a pooled worker, which receives the test framework and the classpath with each session.
+     */
+    public TestWorker() {
+        this.factory = null;
+    }
+
+    private boolean isPooled() {
+        return factory == null;
+    }
+
     @Override
     public void execute(final WorkerProcessContext workerProcessContext) {
         Thread.currentThread().setName(WORK_THREAD_NAME);
 
         LOGGER.info("{} started executing tests.", workerProcessContext.getDisplayName());
 
-        SecurityManager securityManager = System.getSecurityManager();
+        securityManager = System.getSecurityManager();
 
         System.setProperty(WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
 
-        DefaultServiceRegistry testServices = new TestFrameworkServiceRegistry(workerProcessContext);
-        startReceivingTests(workerProcessContext, testServices);
+        testServices = new TestFrameworkServiceRegistry(workerProcessContext);
+        if (isPooled()) {
+            this.workerProcessContext = workerProcessContext;
+            systemProperties = copyOf(System.getProperties());
+            startReceivingSessions(workerProcessContext);
+        } else {
+            startReceivingTests(workerProcessContext, testServices);
+        }
+
+        // Tests may call System.exit(), so also send the events still waiting in the current batch when the JVM shuts down
+        Thread flushOnShutdown = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                resultProcessor.flush();
+            }
+        }, "Test event flush");
+        Runtime.getRuntime().addShutdownHook(flushOnShutdown);
 
         try {
             try {
@@ -105,6 +146,9 @@ public void execute(final WorkerProcessContext workerProcessContext) {
         } finally {
             LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
 
+            resultProcessor.flush();
+            removeShutdownHook(flushOnShutdown);
+
             // In the event that the main thread exits with an uncaught exception, stop processing
             // and clear out the run queue to unblock any running communication threads
             synchronized(this) {
@@ -112,18 +156,37 @@ public void execute(final WorkerProcessContext workerProcessContext) {
                 runQueue.clear();
             }
 
-            if (System.getSecurityManager() != securityManager) {
-                try {
-                    // Reset security manager the tests seem to have installed
-                    System.setSecurityManager(securityManager);
-                } catch (SecurityException e) {
-                    LOGGER.warn("Unable to reset SecurityManager. Continuing anyway...", e);
-                }
-            }
+            resetSecurityManager();
+            closeSessionClassLoaders();
             testServices.close();
         }
     }
 
+    private static void removeShutdownHook(Thread hook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down, and the hook has flushed the events
+        }
+    }
+
+    private void resetSecurityManager() {
+        if (System.getSecurityManager() != securityManager) {
+            try {
+                // Reset security manager the tests seem to have installed
+                System.setSecurityManager(securityManager);
+            } catch (SecurityException e) {
+                LOGGER.warn("Unable to reset SecurityManager. Continuing anyway...", e);
+            }
+        }
+    }
+
+    private static Properties copyOf(Properties properties) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
     private static void executeAndMaintainThreadName(Runnable action) {
         try {
             action.run();
@@ -134,20 +197,73 @@ private static void executeAndMaintainThreadName(Runnable action) {
     }
 
     private void startReceivingTests(WorkerProcessContext workerProcessContext, ServiceRegistry testServices) {
+        processor = createProcessor(factory, workerProcessContext, testServices, workerProcessContext.getApplicationClassLoader());
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        this.resultProcessor = createResultProcessor(serverConnection.addOutgoing(TestEventBatchProcessor.class), testServices);
+        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
+        serverConnection.connect();
+    }
+
+    private void startReceivingSessions(WorkerProcessContext workerProcessContext) {
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        this.sessionResultProcessor = serverConnection.addOutgoing(PooledTestResultProcessor.class);
+        this.resultProcessor = createResultProcessor(sessionResultProcessor, testServices);
+        serverConnection.addIncoming(PooledRemoteTestClassProcessor.class, this);
+        serverConnection.connect();
+    }
+
+    private static BatchingTestResultProcessor createResultProcessor(TestEventBatchProcessor target, ServiceRegistry testServices) {
+        ExecutorFactory executorFactory = testServices.get(ExecutorFactory.class);
+        return new BatchingTestResultProcessor(target, executorFactory.createScheduled("Test event batching", 1));
+    }
+
+    private static TestClassProcessor createProcessor(WorkerTestClassProcessorFactory factory, WorkerProcessContext workerProcessContext, ServiceRegistry testServices, ClassLoader applicationClassLoader) {
         TestClassProcessor targetProcessor = factory.create(testServices);
         IdGenerator<Object> idGenerator = Cast.uncheckedNonnullCast(testServices.get(IdGenerator.class));
 
         targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
                 workerProcessContext.getDisplayName(), testServices.get(Clock.class));
         ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
-                TestClassProcessor.class, targetProcessor, workerProcessContext.getApplicationClassLoader());
-        processor = proxy.getSource();
+                TestClassProcessor.class, targetProcessor, applicationClassLoader);
+        return proxy.getSource();
+    }
 
-        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
-        serverConnection.useParameterSerializers(TestEventSerializer.create());
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
-        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
-        serverConnection.connect();
+    @Override
+    public void startSession(final TestWorkerSession session) {
+        submitToRun(new Runnable() {
+            @Override
+            public void run() {
+                if (!isPooled()) {
+                    throw new IllegalStateException("Sessions can only be started by a pooled test worker");
+                }
+                if (state != State.INITIALIZING || processor != null) {
+                    throw new IllegalStateException("A session has already been started");
+                }
+                sessionApplicationClassLoader = session.createApplicationClassLoader(workerProcessContext.getApplicationClassLoader());
+                sessionFrameworkClassLoader = session.createFrameworkClassLoader(TestWorker.class.getClassLoader(), sessionApplicationClassLoader);
+                WorkerTestClassProcessorFactory sessionFactory = session.createProcessorFactory(sessionFrameworkClassLoader);
+                processor = createProcessor(sessionFactory, workerProcessContext, testServices, sessionApplicationClassLoader);
+            }
+        });
+    }
+
+    private void completeSession() {
+        processor = null;
+        state = State.INITIALIZING;
+        System.setProperties(copyOf(systemProperties));
+        resetSecurityManager();
+        closeSessionClassLoaders();
+        sessionResultProcessor.sessionCompleted();
+    }
+
+    private void closeSessionClassLoaders() {
+        ClassLoaderUtils.tryClose(sessionFrameworkClassLoader);
+        ClassLoaderUtils.tryClose(sessionApplicationClassLoader);
+        sessionFrameworkClassLoader = null;
+        sessionApplicationClassLoader = null;
     }
 
     @Override
@@ -158,6 +274,9 @@ public void run() {
                 if (state != State.INITIALIZING) {
                     throw new IllegalStateException("A command to start processing has already been received");
                 }
+                if (processor == null) {
+                    throw new IllegalStateException("Test classes cannot be processed until a session has been started");
+                }
                 processor.startProcessing(resultProcessor);
                 state = State.STARTED;
             }
@@ -192,15 +311,41 @@ public void run() {
                 try {
                     processor.stop();
                 } finally {
-                    state = State.STOPPED;
+                    // Send the remaining results before the build process is told that the tests have completed
+                    resultProcessor.flush();
+                    if (!isPooled()) {
+                        state = State.STOPPED;
+                    }
                     // Clean the interrupted status
                     // because some test class processors do work here, e.g. JUnitPlatform
                     Thread.interrupted();
                 }
+                if (isPooled()) {
+                    // A failed session stops the worker instead, as the failure propagates
+                    completeSession();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void stopWorker() {
+        submitToRun(new Runnable() {
+            @Override
+            public void run() {
+                state = State.STOPPED;
             }
         });
     }
 
+    @Override
+    public void endStream() {
+        // The build process has closed the connection, possibly because it has stopped
+        if (isPooled()) {
+            stopWorker();
+        }
+    }
+
     private synchronized void submitToRun(Runnable command) {
         if (state != State.STOPPED) {
             try {
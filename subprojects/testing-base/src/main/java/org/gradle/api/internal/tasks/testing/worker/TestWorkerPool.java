@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.service.scopes.Scopes;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.worker.WorkerProcess;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps test worker processes alive after their test task has completed, so later test tasks and builds reuse them instead of starting new processes.
+ *
+ * <p>A worker is only reused with exactly the same fork options, test framework configuration and log level as it was started with.
+ * Each test task runs its tests in a new {@link TestWorkerSession} of the worker. The least recently used idle workers are stopped
+ * when there are more idle workers than the pool keeps.</p>
+ */
+@ServiceScope(Scopes.UserHome.class)
+public class TestWorkerPool implements Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerPool.class);
+
+    private final Object lock = new Object();
+    private final List<PooledTestWorkerClient> allWorkers = new ArrayList<PooledTestWorkerClient>();
+    private final List<PooledTestWorkerClient> idleWorkers = new ArrayList<PooledTestWorkerClient>();
+    private final int maxIdleWorkers;
+
+    public TestWorkerPool(int maxIdleWorkers) {
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    /**
+     * Reserves an idle worker started with the same options as the given builder, or starts a new worker using the builder.
+     */
+    PooledTestWorkerClient reserveWorker(JavaForkOptions forkOptions, WorkerProcessBuilder builder, List<URL> implementationClasspath) {
+        WorkerKey key = new WorkerKey(forkOptions, builder, implementationClasspath);
+        synchronized (lock) {
+            Iterator<PooledTestWorkerClient> it = idleWorkers.iterator();
+            while (it.hasNext()) {
+                PooledTestWorkerClient candidate = it.next();
+                if (candidate.getKey().equals(key)) {
+                    it.remove();
+                    if (candidate.isReusable()) {
+                        return candidate;
+                    }
+                    allWorkers.remove(candidate);
+                }
+            }
+        }
+
+        // allow workers to be started concurrently
+        WorkerProcess workerProcess = builder.build();
+        workerProcess.start();
+        PooledTestWorkerClient worker = new PooledTestWorkerClient(key, workerProcess);
+        worker.connect();
+        synchronized (lock) {
+            allWorkers.add(worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Returns a reserved worker to the pool, once its session has completed. Failed workers are discarded.
+     */
+    void release(PooledTestWorkerClient worker) {
+        boolean reusable = worker.isReusable();
+        PooledTestWorkerClient leastRecentlyUsed = null;
+        synchronized (lock) {
+            if (!reusable) {
+                allWorkers.remove(worker);
+            } else {
+                idleWorkers.add(worker);
+                if (idleWorkers.size() > maxIdleWorkers) {
+                    leastRecentlyUsed = idleWorkers.remove(0);
+                    allWorkers.remove(leastRecentlyUsed);
+                }
+            }
+        }
+        if (!reusable) {
+            worker.getWorkerProcess().stopNow();
+        }
+        if (leastRecentlyUsed != null) {
+            LOGGER.debug("Stopping idle test worker after {} use(s).", leastRecentlyUsed.getUses());
+            leastRecentlyUsed.stop();
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<PooledTestWorkerClient> workers;
+        synchronized (lock) {
+            workers = new ArrayList<PooledTestWorkerClient>(allWorkers);
+            allWorkers.clear();
+            idleWorkers.clear();
+        }
+        if (!workers.isEmpty()) {
+            LOGGER.debug("Stopping {} pooled test worker(s).", workers.size());
+            CompositeStoppable.stoppable(workers).stop();
+        }
+    }
+
+    private static class WorkerKey {
+        private final List<Object> values;
+
+        WorkerKey(JavaForkOptions forkOptions, WorkerProcessBuilder builder, List<URL> implementationClasspath) {
+            Map<String, String> environment = new TreeMap<String, String>();
+            for (Map.Entry<String, Object> entry : forkOptions.getEnvironment().entrySet()) {
+                environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+            List<String> classpath = new ArrayList<String>();
+            for (URL url : implementationClasspath) {
+                classpath.add(url.toString());
+            }
+            this.values = Arrays.<Object>asList(
+                forkOptions.getExecutable(),
+                forkOptions.getWorkingDir(),
+                forkOptions.getAllJvmArgs(),
+                environment,
+                new TreeSet<String>(builder.getSharedPackages()),
+                builder.getLogLevel(),
+                classpath
+            );
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            return values.equals(((WorkerKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return values.hashCode();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The test framework and the application classpath of a test task, run by a pooled test worker.
+ *
+ * <p>The worker loads the application classes and the test framework implementation into fresh ClassLoaders for each session:</p>
+ *
+ * <pre>
+ *       worker implementation               application
+ *   (Gradle infrastructure)           (test classes and libraries)
+ *                  \                           |
+ *                   \                        filter
+ *                    \                  (shared packages)
+ *                     \                       /
+ *                      \                     /
+ *                         test framework
+ *            (test framework implementation of Gradle)
+ * </pre>
+ */
+public class TestWorkerSession implements Serializable {
+    private final List<URL> applicationClasspath;
+    private final List<URL> frameworkClasspath;
+    private final List<String> sharedPackages;
+    private final byte[] serializedProcessorFactory;
+
+    private TestWorkerSession(List<URL> applicationClasspath, List<URL> frameworkClasspath, List<String> sharedPackages, byte[] serializedProcessorFactory) {
+        this.applicationClasspath = applicationClasspath;
+        this.frameworkClasspath = frameworkClasspath;
+        this.sharedPackages = sharedPackages;
+        this.serializedProcessorFactory = serializedProcessorFactory;
+    }
+
+    public static TestWorkerSession of(WorkerTestClassProcessorFactory processorFactory, Iterable<File> applicationClasspath, List<URL> frameworkClasspath, Collection<String> sharedPackages) {
+        List<URL> applicationUrls = new ArrayList<URL>();
+        try {
+            for (File file : applicationClasspath) {
+                applicationUrls.add(file.toURI().toURL());
+            }
+        } catch (MalformedURLException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        // The processor factory can only be deserialized once the test framework ClassLoader has been created in the worker
+        return new TestWorkerSession(applicationUrls, new ArrayList<URL>(frameworkClasspath), new ArrayList<String>(sharedPackages), serialize(processorFactory));
+    }
+
+    private static byte[] serialize(WorkerTestClassProcessorFactory processorFactory) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream outstr = new ObjectOutputStream(bytes);
+            outstr.writeObject(processorFactory);
+            outstr.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    ClassLoader createApplicationClassLoader(ClassLoader parent) {
+        return new VisitableURLClassLoader("test-application", parent, applicationClasspath);
+    }
+
+    ClassLoader createFrameworkClassLoader(ClassLoader implementationClassLoader, ClassLoader applicationClassLoader) {
+        FilteringClassLoader.Spec spec = new FilteringClassLoader.Spec();
+        for (String sharedPackage : sharedPackages) {
+            spec.allowPackage(sharedPackage);
+        }
+        ClassLoader parent = new MultiParentClassLoader(implementationClassLoader, new FilteringClassLoader(applicationClassLoader, spec));
+        return new VisitableURLClassLoader("test-framework", parent, frameworkClasspath);
+    }
+
+    WorkerTestClassProcessorFactory createProcessorFactory(ClassLoader frameworkClassLoader) {
+        try {
+            ObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(serializedProcessorFactory), frameworkClassLoader);
+            return (WorkerTestClassProcessorFactory) instr.readObject();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
@@ -79,6 +79,31 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         numThreads << [1, 4]
     }
 
+    def "writes results of many test classes - #numThreads parallel thread(s)"() {
+        generator = generatorWithMaxThreads(numThreads)
+
+        def testClasses = (1..1200).collect {
+            new TestClassResult(it, "FooTest${it}", 100).add(new TestMethodResult(it, "foo"))
+        }
+
+        def written = Collections.synchronizedList([])
+
+        resultsProvider.visitClasses(_) >> { Action action ->
+            testClasses.each { action.execute(it) }
+        }
+
+        when:
+        generator.generate()
+
+        then:
+        1200 * generator.xmlWriter.write(_, _) >> { TestClassResult result, OutputStream output -> written << result }
+        0 * generator.xmlWriter._
+        written as Set == testClasses as Set
+
+        where:
+        numThreads << [1, 4]
+    }
+
     def "adds context information to the failure if something goes wrong"() {
         generator = generatorWithMaxThreads(1)
 
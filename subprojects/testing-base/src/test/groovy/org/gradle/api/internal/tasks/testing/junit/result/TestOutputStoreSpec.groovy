@@ -98,6 +98,44 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "readers share the index of the outputs file"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "[out-1]"))
+        writer.onOutput(2, 1, output(StdErr, "[out-2]"))
+        writer.close()
+        def reader1 = output.reader()
+        output.indexFile.bytes = new byte[0]
+        def reader2 = output.reader()
+
+        then:
+        collectAllOutput(reader1, 1, StdOut) == "[out-1]"
+        collectAllOutput(reader2, 2, StdErr) == "[out-2]"
+
+        cleanup:
+        reader1.close()
+        reader2.close()
+    }
+
+    def "readers see the index of the last written outputs file"() {
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "[out-1]"))
+        writer.close()
+        output.reader().close()
+        writer = output.writer()
+        writer.onOutput(2, output(StdOut, "[out-2]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == ""
+        collectAllOutput(reader, 2, StdOut) == "[out-2]"
+
+        cleanup:
+        reader.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }
@@ -21,6 +21,7 @@ import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.internal.actor.Actor
 import org.gradle.internal.actor.ActorFactory
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import spock.lang.Specification
 import org.gradle.internal.Factory
 
@@ -202,4 +203,114 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * processor1.stopNow()
         1 * processor2.stopNow()
     }
+
+    def "passes test classes to the processor with the least estimated work longest first as soon as the order is known"() {
+        def buildOperationExecutor = new TestBuildOperationExecutor()
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [] as Set, [A: 100L, B: 60L, C: 50L, D: 40L], buildOperationExecutor)
+        def tests = testClasses("D", "C", "E", "B", "A")
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["D", "C", "E", "B"].each { processor.processTestClass(tests[it]) }
+
+        then:
+        0 * factory.create()
+
+        when:
+        processor.processTestClass(tests.A)
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.processTestClass(tests.A)
+
+        then:
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor2.processTestClass(tests.B)
+
+        then:
+        1 * asyncProcessor2.processTestClass(tests.C)
+
+        then:
+        1 * asyncProcessor1.processTestClass(tests.D)
+        0 * asyncProcessor1.processTestClass(tests.E)
+        0 * asyncProcessor2.processTestClass(tests.E)
+
+        when:
+        processor.stop()
+
+        then:
+        // Assumed to take the average duration of the previous run
+        1 * asyncProcessor2.processTestClass(tests.E)
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+
+        and:
+        with(buildOperationExecutor.log.mostRecent(DistributeTestClassesBuildOperationType)) {
+            details.maxProcessors == 2
+            result.testClassCount == 5
+            result.testClassWithoutDurationCount == 1
+            result.estimatedProcessorDurationsMillis == [140L, 172L]
+        }
+    }
+
+    def "passes previously failed test classes first"() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, ["C"] as Set, [A: 100L, B: 60L, C: 50L], new TestBuildOperationExecutor())
+        def tests = testClasses("C", "A", "B")
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(tests.C)
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.processTestClass(tests.C)
+
+        when:
+        processor.processTestClass(tests.A)
+        processor.processTestClass(tests.B)
+
+        then:
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor2.processTestClass(tests.A)
+
+        then:
+        1 * asyncProcessor1.processTestClass(tests.B)
+    }
+
+    private Map<String, TestClassRunInfo> testClasses(String... names) {
+        names.collectEntries { name ->
+            TestClassRunInfo test = Mock() {
+                getTestClassName() >> name
+            }
+            [name, test]
+        }
+    }
 }
@@ -25,4 +25,26 @@ class ClassTestResultsTest extends Specification {
         new ClassTestResults(1, 'org.gradle.Test', 'TestDisplay', null).reportName == 'TestDisplay'
         new ClassTestResults(2, 'Test', 'TestDisplay', null).reportName == 'TestDisplay'
     }
+
+    def keepsCountsAndFailuresWhenTestResultsAreDiscarded() {
+        def model = new AllTestResults()
+        def classResults = model.addTestClass(1, 'org.gradle.Test')
+        model.addTest(1, 'org.gradle.Test', 'passed', 10)
+        def failed = model.addTest(1, 'org.gradle.Test', 'failed', 20)
+        failed.setFailed()
+        def ignored = model.addTest(1, 'org.gradle.Test', 'ignored', 0)
+        ignored.setIgnored()
+
+        when:
+        classResults.discardTestResults()
+
+        then:
+        classResults.testResults.empty
+        classResults.testCount == 3
+        classResults.duration == 30
+        classResults.failures as List == [failed]
+        classResults.ignored as List == [ignored]
+        model.failures as List == [failed]
+        model.ignored as List == [ignored]
+    }
 }
@@ -378,6 +378,41 @@ class DefaultTestReportTest extends Specification {
         numThreads << [1, 4]
     }
 
+    def "generates report with class pages rendered in batches - #numThreads parallel thread(s)"() {
+        given:
+        report = reportWithMaxThreads(numThreads)
+        def testTestResults = buildResults {
+            (1..1200).each { i ->
+                testClassResult("org.gradle.many.Test${i}") {
+                    testcase("test${i}") {
+                        duration = 1000;
+                        if (i % 100 == 0) {
+                            failure("failure of test ${i}", "failure of test ${i}\nat someClass")
+                        }
+                    }
+                }
+            }
+        }
+
+        when:
+        report.generateReport(testTestResults, reportDir)
+
+        then:
+        def index = results(indexFile)
+        index.assertHasTests(1200)
+        index.assertHasFailures(12)
+
+        (1..1200).each {
+            def classFile = results(reportDir.file("classes/org.gradle.many.Test${it}.html"))
+            classFile.assertHasTests(1)
+            classFile.assertHasFailures(it % 100 == 0 ? 1 : 0)
+        }
+        results(reportDir.file('classes/org.gradle.many.Test600.html')).assertHasFailure('test600', 'failure of test 600\nat someClass')
+
+        where:
+        numThreads << [1, 4]
+    }
+
     def "aggregate same tests run with different results - #numThreads parallel thread(s)"() {
         given:
         report = reportWithMaxThreads(numThreads)
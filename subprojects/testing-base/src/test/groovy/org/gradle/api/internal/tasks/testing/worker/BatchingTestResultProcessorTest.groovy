@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestOutputEvent
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+class BatchingTestResultProcessorTest extends Specification {
+    def target = Mock(TestEventBatchProcessor)
+    def executor = Mock(ScheduledExecutorService)
+    def processor = new BatchingTestResultProcessor(target, executor)
+
+    def "sends events in order when flushed"() {
+        def outputEvent = new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "output")
+        def completeEvent = new TestCompleteEvent(200L)
+        def results = Mock(TestResultProcessor)
+        TestEventBatch batch = null
+
+        when:
+        processor.output("id", outputEvent)
+        processor.completed("id", completeEvent)
+
+        then:
+        0 * target._
+
+        when:
+        processor.flush()
+
+        then:
+        1 * target.processBatch(_) >> { TestEventBatch b -> batch = b }
+
+        when:
+        batch.dispatchTo(results)
+
+        then:
+        1 * results.output("id", outputEvent)
+
+        then:
+        1 * results.completed("id", completeEvent)
+        0 * results._
+    }
+
+    def "sends started and failure events right away together with the events before them"() {
+        def test = new DefaultTestDescriptor("id", "SomeTest", "someMethod")
+        def startEvent = new TestStartEvent(100L)
+        def outputEvent = new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "output")
+        def failure = new RuntimeException()
+        def results = Mock(TestResultProcessor)
+        List<TestEventBatch> batches = []
+
+        when:
+        processor.started(test, startEvent)
+
+        then:
+        1 * target.processBatch(_) >> { TestEventBatch b -> batches << b }
+
+        when:
+        processor.output("id", outputEvent)
+
+        then:
+        0 * target._
+
+        when:
+        processor.failure("id", failure)
+
+        then:
+        1 * target.processBatch(_) >> { TestEventBatch b -> batches << b }
+
+        when:
+        batches*.dispatchTo(results)
+
+        then:
+        1 * results.started(test, startEvent)
+
+        then:
+        1 * results.output("id", outputEvent)
+
+        then:
+        1 * results.failure("id", failure)
+        0 * results._
+    }
+
+    def "sends full batches"() {
+        when:
+        (BatchingTestResultProcessor.MAX_BATCH_SIZE * 2 + 1).times {
+            processor.completed("id", new TestCompleteEvent(100L))
+        }
+
+        then:
+        2 * target.processBatch({ it.size() == BatchingTestResultProcessor.MAX_BATCH_SIZE })
+        0 * target._
+
+        when:
+        processor.flush()
+
+        then:
+        1 * target.processBatch({ it.size() == 1 })
+    }
+
+    def "sends batch after delay"() {
+        Runnable scheduledFlush = null
+
+        when:
+        processor.completed("id-1", new TestCompleteEvent(100L))
+        processor.completed("id-2", new TestCompleteEvent(200L))
+
+        then:
+        1 * executor.schedule(_, BatchingTestResultProcessor.MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS) >> { Runnable action, long delay, TimeUnit unit -> scheduledFlush = action; null }
+        0 * target._
+
+        when:
+        scheduledFlush.run()
+
+        then:
+        1 * target.processBatch({ it.size() == 2 })
+
+        when:
+        processor.completed("id-3", new TestCompleteEvent(300L))
+
+        then:
+        1 * executor.schedule(_, BatchingTestResultProcessor.MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+    }
+
+    def "does not send empty batches"() {
+        when:
+        processor.flush()
+
+        then:
+        0 * target._
+    }
+}
@@ -175,6 +175,73 @@ class TestEventSerializerTest extends SerializerSpec {
         result.cause.message == "cause"
     }
 
+    def "serializes TestEventBatch"() {
+        def classId = new CompositeIdGenerator.CompositeId(1L, 1L)
+        def testId1 = new CompositeIdGenerator.CompositeId(1L, 2L)
+        def testId2 = new CompositeIdGenerator.CompositeId(1L, 3L)
+        def suiteId = new CompositeIdGenerator.CompositeId(1L, 4L)
+        def batch = new TestEventBatch([
+            new TestEventBatch.Started(new DefaultTestSuiteDescriptor(suiteId, "some-suite"), new TestStartEvent(100L)),
+            new TestEventBatch.Started(new DefaultTestClassDescriptor(classId, "some-class", "Some class"), new TestStartEvent(110L, suiteId)),
+            new TestEventBatch.Started(new DefaultTestDescriptor(testId1, "some-class", "some-test[1]", "Some class", "some-test"), new TestStartEvent(120L, classId)),
+            new TestEventBatch.Output(testId1, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "hi")),
+            new TestEventBatch.Failure(testId1, new GradleException("broken")),
+            new TestEventBatch.Completed(testId1, new TestCompleteEvent(130L, TestResult.ResultType.FAILURE)),
+            new TestEventBatch.Started(new DefaultTestDescriptor(testId2, "some-class", "some-test[2]", "Some class", "some-test"), new TestStartEvent(140L, classId)),
+            new TestEventBatch.Completed(testId2, new TestCompleteEvent(150L))
+        ])
+
+        when:
+        def result = serialize(batch)
+
+        then:
+        result instanceof TestEventBatch
+        result.size() == 8
+        def events = result.events
+
+        events[0].test instanceof DefaultTestSuiteDescriptor
+        events[0].test.id == suiteId
+        events[0].test.name == "some-suite"
+        events[0].event.startTime == 100L
+
+        events[1].test instanceof DefaultTestClassDescriptor
+        events[1].test.id == classId
+        events[1].test.className == "some-class"
+        events[1].test.classDisplayName == "Some class"
+        events[1].event.parentId == suiteId
+
+        events[2].test instanceof DefaultTestDescriptor
+        events[2].test.id == testId1
+        events[2].test.className == "some-class"
+        events[2].test.classDisplayName == "Some class"
+        events[2].test.name == "some-test[1]"
+        events[2].test.displayName == "some-test"
+        events[2].event.startTime == 120L
+        events[2].event.parentId == classId
+
+        events[3].testId == testId1
+        events[3].event.destination == TestOutputEvent.Destination.StdOut
+        events[3].event.message == "hi"
+
+        events[4].testId == testId1
+        events[4].failure.class == GradleException
+        events[4].failure.message == "broken"
+
+        events[5].testId == testId1
+        events[5].event.endTime == 130L
+        events[5].event.resultType == TestResult.ResultType.FAILURE
+
+        events[6].test.id == testId2
+        events[6].test.className == "some-class"
+        events[6].test.classDisplayName == "Some class"
+        events[6].test.name == "some-test[2]"
+        events[6].test.displayName == "some-test"
+
+        events[7].testId == testId2
+        events[7].event.endTime == 150L
+        events[7].event.resultType == null
+    }
+
     Object serialize(Object source, Class type = source.getClass()) {
         return super.serialize(source, serializer.build(type))
     }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.logging.LogLevel
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.worker.WorkerProcess
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import spock.lang.Specification
+
+class TestWorkerPoolTest extends Specification {
+    def pool = new TestWorkerPool(1)
+    def implementationClasspath = [new URL("file:/gradle-testing-base.jar")]
+
+    def "reuses idle worker started with the same options"() {
+        def builder = processBuilder()
+
+        when:
+        def worker = pool.reserveWorker(forkOptions(), builder, implementationClasspath)
+        pool.release(worker)
+        def reused = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+
+        then:
+        reused.is(worker)
+        1 * builder.build() >> workerProcess()
+    }
+
+    def "starts new worker when options differ"() {
+        when:
+        def worker = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+        pool.release(worker)
+        def other = pool.reserveWorker(forkOptions(["-Xmx1g"]), processBuilder(), implementationClasspath)
+
+        then:
+        !other.is(worker)
+    }
+
+    def "starts new worker when log level differs"() {
+        when:
+        def worker = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+        pool.release(worker)
+        def other = pool.reserveWorker(forkOptions(), processBuilder(LogLevel.DEBUG), implementationClasspath)
+
+        then:
+        !other.is(worker)
+    }
+
+    def "does not reuse worker whose session has not completed"() {
+        def process = workerProcess()
+        def builder = processBuilder(LogLevel.LIFECYCLE, process)
+
+        when:
+        def worker = pool.reserveWorker(forkOptions(), builder, implementationClasspath)
+        worker.startSession(Stub(TestWorkerSession), Stub(TestResultProcessor))
+        pool.release(worker)
+        def other = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+
+        then:
+        !other.is(worker)
+        1 * process.stopNow()
+    }
+
+    def "does not reuse worker which has disconnected"() {
+        when:
+        def worker = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+        worker.endStream()
+        pool.release(worker)
+        def other = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+
+        then:
+        !other.is(worker)
+    }
+
+    def "stops least recently used idle worker when pool is full"() {
+        def process = workerProcess()
+        def builder = processBuilder(LogLevel.LIFECYCLE, process)
+
+        when:
+        def first = pool.reserveWorker(forkOptions(), builder, implementationClasspath)
+        def second = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+        pool.release(first)
+        pool.release(second)
+
+        then:
+        1 * process.waitForStop()
+
+        when:
+        def reused = pool.reserveWorker(forkOptions(), processBuilder(), implementationClasspath)
+
+        then:
+        reused.is(second)
+    }
+
+    def "stops all workers"() {
+        def idleProcess = workerProcess()
+        def busyProcess = workerProcess()
+
+        given:
+        def idle = pool.reserveWorker(forkOptions(), Stub(WorkerProcessBuilder) { build() >> idleProcess }, implementationClasspath)
+        pool.reserveWorker(forkOptions(), Stub(WorkerProcessBuilder) { build() >> busyProcess }, implementationClasspath)
+        pool.release(idle)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * idleProcess.waitForStop()
+        1 * busyProcess.waitForStop()
+    }
+
+    private JavaForkOptions forkOptions(List<String> jvmArgs = []) {
+        return Stub(JavaForkOptions) {
+            getExecutable() >> "java"
+            getWorkingDir() >> new File("project")
+            getAllJvmArgs() >> jvmArgs
+            getEnvironment() >> [PATH: "/bin"]
+        }
+    }
+
+    private WorkerProcessBuilder processBuilder(LogLevel logLevel = LogLevel.LIFECYCLE, WorkerProcess process = null) {
+        def builder = Mock(WorkerProcessBuilder)
+        _ * builder.build() >> { process ?: workerProcess() }
+        _ * builder.getSharedPackages() >> (["org.junit"] as Set)
+        _ * builder.getLogLevel() >> logLevel
+        return builder
+    }
+
+    private WorkerProcess workerProcess() {
+        def process = Mock(WorkerProcess)
+        _ * process.getConnection() >> Stub(ObjectConnection) {
+            addOutgoing(PooledRemoteTestClassProcessor) >> Stub(PooledRemoteTestClassProcessor)
+        }
+        return process
+    }
+}
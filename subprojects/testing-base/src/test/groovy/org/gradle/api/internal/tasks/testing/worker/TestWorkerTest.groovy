@@ -19,10 +19,12 @@ package org.gradle.api.internal.tasks.testing.worker
 
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.remote.ObjectConnection
 import org.gradle.internal.service.DefaultServiceRegistry
+import org.gradle.internal.service.ServiceRegistry
 import org.gradle.internal.time.Clock
 import org.gradle.internal.time.Time
 import org.gradle.process.internal.worker.WorkerProcessContext
@@ -37,7 +39,7 @@ public class TestWorkerTest extends ConcurrentSpec {
     def factory = Mock(WorkerTestClassProcessorFactory)
     def processor = Mock(TestClassProcessor)
     def test = Mock(TestClassRunInfo)
-    def resultProcessor = Mock(TestResultProcessor)
+    def batchProcessor = Mock(TestEventBatchProcessor)
     def worker = new TestWorker(factory)
     def serviceRegistry = new DefaultServiceRegistry().add(Clock, Time.clock())
 
@@ -60,7 +62,7 @@ public class TestWorkerTest extends ConcurrentSpec {
 
         and:
         1 * factory.create(_) >> processor
-        1 * connection.addOutgoing(TestResultProcessor) >> resultProcessor
+        1 * connection.addOutgoing(TestEventBatchProcessor) >> batchProcessor
         1 * connection.addIncoming(RemoteTestClassProcessor, worker)
         1 * connection.useParameterSerializers(_)
         1 * connection.connect() >> {
@@ -76,4 +78,79 @@ public class TestWorkerTest extends ConcurrentSpec {
         1 * processor.processTestClass(test)
         1 * processor.stop()
     }
+
+    def sendsRemainingResultsWhenProcessingStops() {
+        TestResultProcessor resultProcessor = null
+
+        when:
+        worker.execute(workerContext)
+
+        then:
+        1 * factory.create(_) >> processor
+        1 * connection.addOutgoing(TestEventBatchProcessor) >> batchProcessor
+        1 * connection.connect() >> {
+            start {
+                worker.startProcessing()
+                worker.stop()
+            }
+        }
+        1 * processor.startProcessing(_) >> { TestResultProcessor p -> resultProcessor = p }
+        1 * processor.stop() >> {
+            resultProcessor.completed("test-1", new TestCompleteEvent(100L))
+            resultProcessor.completed("test-2", new TestCompleteEvent(200L))
+        }
+
+        then:
+        1 * batchProcessor.processBatch({ it.size() == 2 })
+        0 * batchProcessor._
+    }
+
+    def pooledWorkerRunsSessionsUntilStopped() {
+        def pooledWorker = new TestWorker()
+        def sessionResultProcessor = Mock(PooledTestResultProcessor)
+        SessionProcessorFactory.processor = processor
+        workerContext.applicationClassLoader >> getClass().classLoader
+
+        when:
+        async {
+            pooledWorker.execute(workerContext)
+            instant.completed
+        }
+
+        then:
+        instant.completed > instant.stopped
+        System.getProperty("session.property") == null
+
+        and:
+        1 * connection.addOutgoing(PooledTestResultProcessor) >> sessionResultProcessor
+        1 * connection.addIncoming(PooledRemoteTestClassProcessor, pooledWorker)
+        1 * connection.useParameterSerializers(_)
+        1 * connection.connect() >> {
+            start {
+                2.times {
+                    pooledWorker.startSession(TestWorkerSession.of(new SessionProcessorFactory(), [], [], []))
+                    pooledWorker.startProcessing()
+                    pooledWorker.processTestClass(test)
+                    pooledWorker.stop()
+                }
+                thread.block()
+                instant.stopped
+                pooledWorker.stopWorker()
+            }
+        }
+        0 * factory._
+        2 * processor.startProcessing(_)
+        2 * processor.processTestClass(test) >> { System.setProperty("session.property", "value") }
+        2 * processor.stop()
+        2 * sessionResultProcessor.sessionCompleted()
+    }
+
+    static class SessionProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        static TestClassProcessor processor
+
+        @Override
+        TestClassProcessor create(ServiceRegistry serviceRegistry) {
+            return processor
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.testing
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.integtests.fixtures.DefaultTestExecutionResult
+
+class TestWorkerReuseIntegrationTest extends AbstractIntegrationSpec {
+    private static final String REUSE_TEST_WORKERS_PROPERTY = "org.gradle.internal.testing.reuse-test-workers"
+
+    def setup() {
+        buildFile << """
+            apply plugin: 'java'
+            ${mavenCentralRepository()}
+            dependencies { testImplementation 'junit:junit:4.13' }
+
+            test {
+                filter.includeTestsMatching 'FirstTest'
+            }
+            tasks.register('otherTest', Test) {
+                testClassesDirs = test.testClassesDirs
+                classpath = test.classpath
+                filter.includeTestsMatching 'SecondTest'
+            }
+            tasks.withType(Test).configureEach {
+                systemProperty 'worker.dir', file("build").absolutePath
+            }
+        """
+        file("src/test/java/Runs.java") << """
+            import java.io.FileWriter;
+            import java.lang.management.ManagementFactory;
+            import static org.junit.Assert.assertEquals;
+
+            public class Runs {
+                private static int count;
+
+                // Fails when the class has been loaded by an earlier test task
+                static void record(String testName) throws Exception {
+                    assertEquals(1, ++count);
+                    FileWriter writer = new FileWriter(System.getProperty("worker.dir") + "/" + testName + "-worker.txt");
+                    writer.write(ManagementFactory.getRuntimeMXBean().getName());
+                    writer.close();
+                }
+            }
+        """
+        ["FirstTest", "SecondTest"].each { name ->
+            file("src/test/java/${name}.java") << """
+                import org.junit.Test;
+
+                public class ${name} {
+                    @Test
+                    public void runsInFreshClassLoader() throws Exception {
+                        Runs.record("${name}");
+                    }
+                }
+            """
+        }
+    }
+
+    def "reuses test worker across test tasks with the same fork options"() {
+        when:
+        succeeds "test", "otherTest", "-D${REUSE_TEST_WORKERS_PROPERTY}=true"
+
+        then:
+        testPassed("test", "FirstTest")
+        testPassed("otherTest", "SecondTest")
+        file("build/FirstTest-worker.txt").text == file("build/SecondTest-worker.txt").text
+    }
+
+    def "does not reuse test worker when test tasks use different fork options"() {
+        buildFile << """
+            otherTest {
+                maxHeapSize = "256m"
+            }
+        """
+
+        when:
+        succeeds "test", "otherTest", "-D${REUSE_TEST_WORKERS_PROPERTY}=true"
+
+        then:
+        testPassed("test", "FirstTest")
+        testPassed("otherTest", "SecondTest")
+        file("build/FirstTest-worker.txt").text != file("build/SecondTest-worker.txt").text
+    }
+
+    def "does not reuse test workers by default"() {
+        when:
+        succeeds "test", "otherTest"
+
+        then:
+        file("build/FirstTest-worker.txt").text != file("build/SecondTest-worker.txt").text
+    }
+
+    private void testPassed(String taskName, String testClass) {
+        new DefaultTestExecutionResult(testDirectory, "build", "", "", taskName)
+            .testClass(testClass).assertTestPassed("runsInFreshClassLoader")
+    }
+}
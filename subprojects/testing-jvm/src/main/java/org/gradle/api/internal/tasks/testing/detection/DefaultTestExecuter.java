@@ -33,14 +33,18 @@
 import org.gradle.api.internal.tasks.testing.processors.RunPreviousFailedFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.work.WorkerLeaseService;
+import org.gradle.process.JavaForkOptions;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 import java.util.Set;
@@ -52,6 +56,16 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
 
     private static final Logger LOGGER = Logging.getLogger(DefaultTestExecuter.class);
 
+    /**
+     * Distributes test classes across forks based on their durations in the previous run, see {@link MaxNParallelTestClassProcessor}.
+     */
+    public static final String BALANCE_FORKS_BY_DURATION_PROPERTY = "org.gradle.internal.testing.balance-forks-by-duration";
+
+    /**
+     * Runs the tests in workers reserved from the {@link TestWorkerPool}, which are kept alive for later test tasks and builds.
+     */
+    public static final String REUSE_TEST_WORKERS_PROPERTY = "org.gradle.internal.testing.reuse-test-workers";
+
     private final WorkerProcessFactory workerFactory;
     private final ActorFactory actorFactory;
     private final ModuleRegistry moduleRegistry;
@@ -60,12 +74,15 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
     private final Clock clock;
     private final DocumentationRegistry documentationRegistry;
     private final DefaultTestFilter testFilter;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final TestWorkerPool testWorkerPool;
     private TestClassProcessor processor;
 
     public DefaultTestExecuter(
         WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
         WorkerLeaseService workerLeaseService, int maxWorkerCount,
-        Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter
+        Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter,
+        BuildOperationExecutor buildOperationExecutor, TestWorkerPool testWorkerPool
     ) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
@@ -75,6 +92,8 @@ public DefaultTestExecuter(
         this.clock = clock;
         this.documentationRegistry = documentationRegistry;
         this.testFilter = testFilter;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.testWorkerPool = testWorkerPool;
     }
 
     @Override
@@ -84,11 +103,12 @@ public void execute(final JvmTestExecutionSpec testExecutionSpec, TestResultProc
         final Set<File> classpath = ImmutableSet.copyOf(testExecutionSpec.getClasspath());
         final Set<File> modulePath = ImmutableSet.copyOf(testExecutionSpec.getModulePath());
         final List<String> testWorkerImplementationModules = testFramework.getTestWorkerImplementationModules();
+        final TestWorkerPool workerPool = getWorkerPool(testExecutionSpec, modulePath);
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             @Override
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerLeaseService, workerFactory, testInstanceFactory, testExecutionSpec.getJavaForkOptions(),
-                    classpath, modulePath, testWorkerImplementationModules, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry);
+                    classpath, modulePath, testWorkerImplementationModules, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry, workerPool);
             }
         };
         final Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
@@ -99,8 +119,7 @@ public TestClassProcessor create() {
         };
         processor =
             new PatternMatchTestClassProcessor(testFilter,
-                new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
-                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory)));
+                createParallelProcessor(testExecutionSpec, reforkingProcessorFactory));
 
         final FileTree testClassFiles = testExecutionSpec.getCandidateClassFiles();
 
@@ -124,6 +143,37 @@ public void stopNow() {
         }
     }
 
+    @Nullable
+    private TestWorkerPool getWorkerPool(JvmTestExecutionSpec testExecutionSpec, Set<File> modulePath) {
+        // Workers are not reused when the tests ask for a new process, or expect the test classes to be loaded by the system ClassLoader or as modules
+        JavaForkOptions forkOptions = testExecutionSpec.getJavaForkOptions();
+        if (!Boolean.getBoolean(REUSE_TEST_WORKERS_PROPERTY)
+            || testExecutionSpec.getForkEvery() > 0
+            || !modulePath.isEmpty()
+            || forkOptions.getDebug()
+            || forkOptions.getSystemProperties().containsKey("java.system.class.loader")) {
+            return null;
+        }
+        for (String jvmArg : forkOptions.getAllJvmArgs()) {
+            // Agents such as code coverage tools usually write their results when the process exits
+            if (jvmArg.startsWith("-javaagent:") || jvmArg.startsWith("-agentlib:") || jvmArg.startsWith("-agentpath:")) {
+                return null;
+            }
+        }
+        return testWorkerPool;
+    }
+
+    private TestClassProcessor createParallelProcessor(JvmTestExecutionSpec testExecutionSpec, Factory<TestClassProcessor> processorFactory) {
+        int maxParallelForks = getMaxParallelForks(testExecutionSpec);
+        if (maxParallelForks > 1 && Boolean.getBoolean(BALANCE_FORKS_BY_DURATION_PROPERTY)) {
+            // Runs previously failed test classes first itself, so that test classes can be passed on as they are detected
+            return new MaxNParallelTestClassProcessor(maxParallelForks, processorFactory, actorFactory,
+                testExecutionSpec.getPreviousFailedTestClasses(), testExecutionSpec.getPreviousTestClassDurations(), buildOperationExecutor);
+        }
+        return new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
+            new MaxNParallelTestClassProcessor(maxParallelForks, processorFactory, actorFactory));
+    }
+
     private int getMaxParallelForks(JvmTestExecutionSpec testExecutionSpec) {
         int maxParallelForks = testExecutionSpec.getMaxParallelForks();
         if (maxParallelForks > maxWorkerCount) {
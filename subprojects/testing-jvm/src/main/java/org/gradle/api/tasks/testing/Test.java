@@ -40,6 +40,7 @@
 import org.gradle.api.internal.tasks.testing.junitplatform.JUnitPlatformTestFramework;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
 import org.gradle.api.internal.tasks.testing.worker.TestWorker;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.jvm.ModularitySpec;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
@@ -88,7 +89,7 @@
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -642,7 +643,10 @@ protected JvmTestExecutionSpec createTestExecutionSpec() {
         boolean testIsModule = javaModuleDetector.isModule(modularity.getInferModulePath().get(), getTestClassesDirs());
         FileCollection classpath = javaModuleDetector.inferClasspath(testIsModule, stableClasspath);
         FileCollection modulePath = javaModuleDetector.inferModulePath(testIsModule, stableClasspath);
-        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses());
+        Set<String> previousFailedTestClasses = new HashSet<String>();
+        Map<String, Long> previousTestClassDurations = new HashMap<String, Long>();
+        readPreviousTestResults(previousFailedTestClasses, previousTestClassDurations);
+        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), previousFailedTestClasses, previousTestClassDurations);
     }
 
     private void validateToolchainConfiguration() {
@@ -651,21 +655,18 @@ private void validateToolchainConfiguration() {
         }
     }
 
-    private Set<String> getPreviousFailedTestClasses() {
+    private void readPreviousTestResults(final Set<String> previousFailedTestClasses, final Map<String, Long> previousTestClassDurations) {
         TestResultSerializer serializer = new TestResultSerializer(getBinaryResultsDirectory().getAsFile().get());
         if (serializer.isHasResults()) {
-            final Set<String> previousFailedTestClasses = new HashSet<String>();
             serializer.read(new Action<TestClassResult>() {
                 @Override
                 public void execute(TestClassResult testClassResult) {
                     if (testClassResult.getFailuresCount() > 0) {
                         previousFailedTestClasses.add(testClassResult.getClassName());
                     }
+                    previousTestClassDurations.put(testClassResult.getClassName(), testClassResult.getDuration());
                 }
             });
-            return previousFailedTestClasses;
-        } else {
-            return Collections.emptySet();
         }
     }
 
@@ -700,7 +701,9 @@ protected TestExecuter<JvmTestExecutionSpec> createTestExecuter() {
                 getServices().get(StartParameter.class).getMaxWorkerCount(),
                 getServices().get(Clock.class),
                 getServices().get(DocumentationRegistry.class),
-                (DefaultTestFilter) getFilter());
+                (DefaultTestFilter) getFilter(),
+                getBuildOperationExecutor(),
+                getServices().get(TestWorkerPool.class));
         } else {
             return testExecuter;
         }
@@ -19,9 +19,16 @@
 import org.gradle.workers.WorkAction;
 import org.gradle.workers.WorkParameters;
 
+import java.io.OutputStream;
+
 public interface ActionExecutionSpecFactory {
     <T extends WorkParameters> TransportableActionExecutionSpec newTransportableSpec(IsolatedParametersActionExecutionSpec<T> spec);
 
+    /**
+     * Writes the parameters of the given spec to the given stream, serialized in the same way as for {@link #newTransportableSpec(IsolatedParametersActionExecutionSpec)}.
+     */
+    void writeSerializedParameters(IsolatedParametersActionExecutionSpec<?> spec, OutputStream outputStream);
+
     <T extends WorkParameters> IsolatedParametersActionExecutionSpec<T> newIsolatedSpec(String displayName, Class<? extends WorkAction<T>> implementationClass, T params, WorkerRequirement workerRequirement, boolean usesInternalServices);
 
     <T extends WorkParameters> SimpleActionExecutionSpec<T> newSimpleSpec(IsolatedParametersActionExecutionSpec<T> spec);
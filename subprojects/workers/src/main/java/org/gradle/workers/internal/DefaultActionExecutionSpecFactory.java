@@ -27,6 +27,8 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public class DefaultActionExecutionSpecFactory implements ActionExecutionSpecFactory {
     private final IsolatableFactory isolatableFactory;
@@ -39,7 +41,20 @@ public DefaultActionExecutionSpecFactory(IsolatableFactory isolatableFactory, Is
 
     @Override
     public <T extends WorkParameters> TransportableActionExecutionSpec newTransportableSpec(IsolatedParametersActionExecutionSpec<T> spec) {
-        return new TransportableActionExecutionSpec(spec.getImplementationClass().getName(), serialize(spec.getIsolatedParams()), spec.getClassLoaderStructure(), spec.getBaseDir(), spec.isInternalServicesRequired());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeSerializedParameters(spec, outputStream);
+        return new TransportableActionExecutionSpec(spec.getImplementationClass().getName(), outputStream.toByteArray(), spec.getClassLoaderStructure(), spec.getBaseDir(), spec.isInternalServicesRequired());
+    }
+
+    @Override
+    public void writeSerializedParameters(IsolatedParametersActionExecutionSpec<?> spec, OutputStream outputStream) {
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        try {
+            serializerRegistry.writeIsolatable(encoder, spec.getIsolatedParams());
+            encoder.flush();
+        } catch (Exception e) {
+            throw new WorkSerializationException("Could not serialize unit of work.", e);
+        }
     }
 
     @Override
@@ -57,7 +72,7 @@ public <T extends WorkParameters> SimpleActionExecutionSpec<T> newSimpleSpec(Iso
 
     @Override
     public <T extends WorkParameters> SimpleActionExecutionSpec<T> newSimpleSpec(TransportableActionExecutionSpec spec) {
-        T params = Cast.uncheckedCast(deserialize(spec.getSerializedParameters()).isolate());
+        T params = Cast.uncheckedCast(deserialize(spec).isolate());
         return new SimpleActionExecutionSpec<T>(Cast.uncheckedCast(fromClassName(spec.getImplementationClassName())), params, spec.isInternalServicesRequired());
     }
 
@@ -69,22 +84,12 @@ Class<?> fromClassName(String className) {
         }
     }
 
-    private byte[] serialize(Isolatable<?> isolatable) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
-        try {
-            serializerRegistry.writeIsolatable(encoder, isolatable);
-            encoder.flush();
-        } catch (Exception e) {
-            throw new WorkSerializationException("Could not serialize unit of work.", e);
-        }
-        return outputStream.toByteArray();
-    }
-
-    private Isolatable<?> deserialize(byte[] bytes) {
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
-        KryoBackedDecoder decoder = new KryoBackedDecoder(inputStream);
+    private Isolatable<?> deserialize(TransportableActionExecutionSpec spec) {
         try {
+            InputStream inputStream = spec.getSerializedParametersFile() != null
+                ? WorkParametersFileStore.open(spec.getSerializedParametersFile())
+                : new ByteArrayInputStream(spec.getSerializedParameters());
+            KryoBackedDecoder decoder = new KryoBackedDecoder(inputStream);
             return serializerRegistry.readIsolatable(decoder);
         } catch (Exception e) {
             throw new WorkSerializationException("Could not deserialize unit of work.", e);
@@ -16,18 +16,28 @@
 
 package org.gradle.workers.internal;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class TransportableActionExecutionSpec {
     protected final String implementationClassName;
     private final byte[] serializedParameters;
+    private final File serializedParametersFile;
     private final ClassLoaderStructure classLoaderStructure;
     private final File baseDir;
     private final boolean usesInternalServices;
 
     public TransportableActionExecutionSpec(String implementationClassName, byte[] serializedParameters, ClassLoaderStructure classLoaderStructure, File baseDir, boolean usesInternalServices) {
+        this(implementationClassName, serializedParameters, null, classLoaderStructure, baseDir, usesInternalServices);
+    }
+
+    /**
+     * Creates a spec whose parameters are either serialized inline or written to the given file, as done by {@link WorkParametersFileStore}.
+     */
+    public TransportableActionExecutionSpec(String implementationClassName, @Nullable byte[] serializedParameters, @Nullable File serializedParametersFile, ClassLoaderStructure classLoaderStructure, File baseDir, boolean usesInternalServices) {
         this.implementationClassName = implementationClassName;
         this.serializedParameters = serializedParameters;
+        this.serializedParametersFile = serializedParametersFile;
         this.classLoaderStructure = classLoaderStructure;
         this.baseDir = baseDir;
         this.usesInternalServices = usesInternalServices;
@@ -49,7 +59,16 @@ public String getImplementationClassName() {
         return implementationClassName;
     }
 
+    /**
+     * Returns the serialized parameters, or null when they have been written to {@link #getSerializedParametersFile()} instead.
+     */
+    @Nullable
     public byte[] getSerializedParameters() {
         return serializedParameters;
     }
+
+    @Nullable
+    public File getSerializedParametersFile() {
+        return serializedParametersFile;
+    }
 }
@@ -25,6 +25,8 @@
 public class TransportableActionExecutionSpecSerializer implements Serializer<TransportableActionExecutionSpec> {
     private static final byte FLAT = (byte) 0;
     private static final byte HIERARCHICAL = (byte) 1;
+    private static final byte INLINE_PARAMETERS = (byte) 0;
+    private static final byte PARAMETERS_FILE = (byte) 1;
 
     private final Serializer<HierarchicalClassLoaderStructure> hierarchicalClassLoaderStructureSerializer = new HierarchicalClassLoaderStructureSerializer();
 
@@ -33,7 +35,13 @@ public void write(Encoder encoder, TransportableActionExecutionSpec spec) throws
         encoder.writeString(spec.getImplementationClassName());
         encoder.writeBoolean(spec.isInternalServicesRequired());
         encoder.writeString(spec.getBaseDir().getAbsolutePath());
-        encoder.writeBinary(spec.getSerializedParameters());
+        if (spec.getSerializedParametersFile() != null) {
+            encoder.writeByte(PARAMETERS_FILE);
+            encoder.writeString(spec.getSerializedParametersFile().getAbsolutePath());
+        } else {
+            encoder.writeByte(INLINE_PARAMETERS);
+            encoder.writeBinary(spec.getSerializedParameters());
+        }
         if (spec.getClassLoaderStructure() instanceof HierarchicalClassLoaderStructure) {
             encoder.writeByte(HIERARCHICAL);
             hierarchicalClassLoaderStructureSerializer.write(encoder, (HierarchicalClassLoaderStructure) spec.getClassLoaderStructure());
@@ -50,7 +58,19 @@ public TransportableActionExecutionSpec read(Decoder decoder) throws Exception {
         String implementationClassName = decoder.readString();
         boolean usesInternalServices = decoder.readBoolean();
         String baseDirPath = decoder.readString();
-        byte[] serializedParameters = decoder.readBinary();
+        byte[] serializedParameters = null;
+        File serializedParametersFile = null;
+        byte parametersTag = decoder.readByte();
+        switch (parametersTag) {
+            case INLINE_PARAMETERS:
+                serializedParameters = decoder.readBinary();
+                break;
+            case PARAMETERS_FILE:
+                serializedParametersFile = new File(decoder.readString());
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected parameters type.");
+        }
         byte classLoaderStructureTag = decoder.readByte();
         ClassLoaderStructure classLoaderStructure;
         switch (classLoaderStructureTag) {
@@ -63,6 +83,6 @@ public TransportableActionExecutionSpec read(Decoder decoder) throws Exception {
             default:
                 throw new IllegalArgumentException("Unexpected payload type.");
         }
-        return new TransportableActionExecutionSpec(implementationClassName, serializedParameters, classLoaderStructure, new File(baseDirPath), usesInternalServices);
+        return new TransportableActionExecutionSpec(implementationClassName, serializedParameters, serializedParametersFile, classLoaderStructure, new File(baseDirPath), usesInternalServices);
     }
 }
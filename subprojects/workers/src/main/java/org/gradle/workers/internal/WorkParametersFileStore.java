@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.workers.internal;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.PrimitiveHasher;
+import org.gradle.internal.io.ByteBufferInputStream;
+import org.gradle.process.internal.worker.child.WorkerDirectoryProvider;
+import org.gradle.util.internal.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes large serialized work parameters to files in the {@link WorkerDirectoryProvider worker directory} of the Gradle user home, so only the location of the file is sent to the worker daemon,
+ * which maps the file into memory to read the parameters.
+ *
+ * <p>Enabled via {@link #ENABLED_PROPERTY}. The parameters are first serialized to compute their hash, keeping only the first {@link #MIN_SIZE} bytes in memory.
+ * Smaller parameters are sent inline. Larger parameters are stored in a file named by their hash, which is only written when it does not exist yet,
+ * so work items with the same parameters share a file across builds and build processes.
+ * Files which have not been used for {@link #MAX_UNUSED_DAYS} days are deleted when the store is first used, and when it is stopped.</p>
+ */
+public class WorkParametersFileStore implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.workers.parameters-files";
+    static final int MIN_SIZE = 64 * 1024;
+    static final int MAX_UNUSED_DAYS = 1;
+
+    private final boolean enabled;
+    private final WorkerDirectoryProvider workerDirectoryProvider;
+    private final ActionExecutionSpecFactory actionExecutionSpecFactory;
+    private final Map<String, File> storedParameters = new HashMap<>();
+    private File parametersDir;
+
+    public WorkParametersFileStore(boolean enabled, WorkerDirectoryProvider workerDirectoryProvider, ActionExecutionSpecFactory actionExecutionSpecFactory) {
+        this.enabled = enabled;
+        this.workerDirectoryProvider = workerDirectoryProvider;
+        this.actionExecutionSpecFactory = actionExecutionSpecFactory;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns a spec to send to the worker daemon, which refers to a file containing the parameters of the given spec when they are large enough.
+     */
+    public TransportableActionExecutionSpec store(IsolatedParametersActionExecutionSpec<?> spec) {
+        if (!enabled) {
+            return actionExecutionSpecFactory.newTransportableSpec(spec);
+        }
+        HashingBuffer hashingBuffer = new HashingBuffer();
+        actionExecutionSpecFactory.writeSerializedParameters(spec, hashingBuffer);
+        byte[] serializedParameters = hashingBuffer.getBufferedBytes();
+        File serializedParametersFile = null;
+        if (serializedParameters == null) {
+            serializedParametersFile = storeFile(spec, hashingBuffer.hasher.hash().toString(), hashingBuffer.count);
+        }
+        return new TransportableActionExecutionSpec(spec.getImplementationClass().getName(), serializedParameters, serializedParametersFile, spec.getClassLoaderStructure(), spec.getBaseDir(), spec.isInternalServicesRequired());
+    }
+
+    private synchronized File storeFile(IsolatedParametersActionExecutionSpec<?> spec, String key, long size) {
+        File file = storedParameters.get(key);
+        if (file != null) {
+            return file;
+        }
+        file = new File(getParametersDir(), key);
+        if (file.isFile() && file.length() == size) {
+            // Written by earlier work, possibly of another build. Mark the file as used, so it is not cleaned up
+            file.setLastModified(System.currentTimeMillis());
+        } else {
+            write(spec, file);
+        }
+        storedParameters.put(key, file);
+        return file;
+    }
+
+    private void write(IsolatedParametersActionExecutionSpec<?> spec, File file) {
+        try {
+            // Write to a temporary file first, so that other processes never read a partially written file
+            File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try {
+                try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+                    actionExecutionSpecFactory.writeSerializedParameters(spec, outputStream);
+                }
+                try {
+                    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    // Another process may have written the same file concurrently, and a worker daemon may have it mapped
+                    if (!file.isFile()) {
+                        throw e;
+                    }
+                }
+            } finally {
+                GFileUtils.deleteQuietly(tempFile);
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private File getParametersDir() {
+        if (parametersDir == null) {
+            parametersDir = new File(workerDirectoryProvider.getWorkingDirectory(), "parameters");
+            GFileUtils.mkdirs(parametersDir);
+            deleteUnusedFiles();
+        }
+        return parametersDir;
+    }
+
+    private void deleteUnusedFiles() {
+        File[] files = parametersDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long minLastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+        for (File file : files) {
+            if (!storedParameters.containsKey(file.getName()) && file.lastModified() < minLastModified) {
+                // Fails when a worker daemon still has the file mapped, in which case it is deleted later
+                GFileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (parametersDir != null) {
+            deleteUnusedFiles();
+            storedParameters.clear();
+            parametersDir = null;
+        }
+    }
+
+    /**
+     * Opens the given parameters file by mapping it into memory, in the worker daemon.
+     */
+    public static InputStream open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Hashes the bytes written to it, and keeps them in memory until there are at least {@link #MIN_SIZE} of them.
+     */
+    private static class HashingBuffer extends OutputStream {
+        private final PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private long count;
+
+        @Override
+        public void write(int b) {
+            hasher.putByte((byte) b);
+            count++;
+            if (buffer != null) {
+                if (count < MIN_SIZE) {
+                    buffer.write(b);
+                } else {
+                    buffer = null;
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) {
+            hasher.putBytes(bytes, off, len);
+            count += len;
+            if (buffer != null) {
+                if (count < MIN_SIZE) {
+                    buffer.write(bytes, off, len);
+                } else {
+                    buffer = null;
+                }
+            }
+        }
+
+        /**
+         * Returns the bytes written, or null when there were too many to keep them.
+         */
+        @Nullable
+        byte[] getBufferedBytes() {
+            return buffer == null ? null : buffer.toByteArray();
+        }
+    }
+}
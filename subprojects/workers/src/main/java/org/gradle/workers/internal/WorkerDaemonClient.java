@@ -28,22 +28,22 @@ class WorkerDaemonClient implements Stoppable {
     private final MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerClient;
     private final WorkerProcess workerProcess;
     private final LogLevel logLevel;
-    private final ActionExecutionSpecFactory actionExecutionSpecFactory;
+    private final WorkParametersFileStore parametersFileStore;
     private int uses;
     private boolean failed;
     private boolean cannotBeExpired = Boolean.getBoolean(DISABLE_EXPIRATION_PROPERTY_KEY);
 
-    public WorkerDaemonClient(DaemonForkOptions forkOptions, MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerClient, WorkerProcess workerProcess, LogLevel logLevel, ActionExecutionSpecFactory actionExecutionSpecFactory) {
+    public WorkerDaemonClient(DaemonForkOptions forkOptions, MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerClient, WorkerProcess workerProcess, LogLevel logLevel, WorkParametersFileStore parametersFileStore) {
         this.forkOptions = forkOptions;
         this.workerClient = workerClient;
         this.workerProcess = workerProcess;
         this.logLevel = logLevel;
-        this.actionExecutionSpecFactory = actionExecutionSpecFactory;
+        this.parametersFileStore = parametersFileStore;
     }
 
     public DefaultWorkResult execute(IsolatedParametersActionExecutionSpec<?> spec) {
         uses++;
-        return workerClient.run(actionExecutionSpecFactory.newTransportableSpec(spec));
+        return workerClient.run(parametersFileStore.store(spec));
     }
 
     public boolean isCompatibleWith(DaemonForkOptions required) {
@@ -40,13 +40,13 @@ public class WorkerDaemonStarter {
     private final WorkerProcessFactory workerDaemonProcessFactory;
     private final LoggingManager loggingManager;
     private final ClassPathRegistry classPathRegistry;
-    private final ActionExecutionSpecFactory actionExecutionSpecFactory;
+    private final WorkParametersFileStore parametersFileStore;
 
-    public WorkerDaemonStarter(WorkerProcessFactory workerDaemonProcessFactory, LoggingManager loggingManager, ClassPathRegistry classPathRegistry, ActionExecutionSpecFactory actionExecutionSpecFactory) {
+    public WorkerDaemonStarter(WorkerProcessFactory workerDaemonProcessFactory, LoggingManager loggingManager, ClassPathRegistry classPathRegistry, WorkParametersFileStore parametersFileStore) {
         this.workerDaemonProcessFactory = workerDaemonProcessFactory;
         this.loggingManager = loggingManager;
         this.classPathRegistry = classPathRegistry;
-        this.actionExecutionSpecFactory = actionExecutionSpecFactory;
+        this.parametersFileStore = parametersFileStore;
     }
 
     public WorkerDaemonClient startDaemon(DaemonForkOptions forkOptions, Action<WorkerProcess> cleanupAction) {
@@ -71,7 +71,7 @@ public WorkerDaemonClient startDaemon(DaemonForkOptions forkOptions, Action<Work
         MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerDaemonProcess = builder.build();
         WorkerProcess workerProcess = workerDaemonProcess.start();
 
-        WorkerDaemonClient client = new WorkerDaemonClient(forkOptions, workerDaemonProcess, workerProcess, loggingManager.getLevel(), actionExecutionSpecFactory);
+        WorkerDaemonClient client = new WorkerDaemonClient(forkOptions, workerDaemonProcess, workerProcess, loggingManager.getLevel(), parametersFileStore);
 
         LOG.info("Started Gradle worker daemon ({}) with fork options {}.", clock.getElapsed(), forkOptions);
 
@@ -63,10 +63,6 @@ public void registerProjectServices(ServiceRegistration registration) {
     }
 
     private static class BuildSessionScopeServices {
-        WorkerDirectoryProvider createWorkerDirectoryProvider(GradleUserHomeDirProvider gradleUserHomeDirProvider) {
-            return new DefaultWorkerDirectoryProvider(gradleUserHomeDirProvider);
-        }
-
         ConditionalExecutionQueueFactory createConditionalExecutionQueueFactory(ExecutorFactory executorFactory, ParallelismConfiguration parallelismConfiguration, WorkerLeaseService workerLeaseService) {
             return new DefaultConditionalExecutionQueueFactory(parallelismConfiguration, executorFactory, workerLeaseService);
         }
@@ -77,14 +73,22 @@ WorkerExecutionQueueFactory createWorkerExecutionQueueFactory(ConditionalExecuti
     }
 
     private static class GradleUserHomeServices {
+        WorkerDirectoryProvider createWorkerDirectoryProvider(GradleUserHomeDirProvider gradleUserHomeDirProvider) {
+            return new DefaultWorkerDirectoryProvider(gradleUserHomeDirProvider);
+        }
+
         WorkerDaemonClientsManager createWorkerDaemonClientsManager(WorkerProcessFactory workerFactory,
                                                                     LoggingManagerInternal loggingManager,
                                                                     ListenerManager listenerManager,
                                                                     MemoryManager memoryManager,
                                                                     OsMemoryInfo memoryInfo,
                                                                     ClassPathRegistry classPathRegistry,
-                                                                    ActionExecutionSpecFactory actionExecutionSpecFactory) {
-            return new WorkerDaemonClientsManager(new WorkerDaemonStarter(workerFactory, loggingManager, classPathRegistry, actionExecutionSpecFactory), listenerManager, loggingManager, memoryManager, memoryInfo);
+                                                                    WorkParametersFileStore parametersFileStore) {
+            return new WorkerDaemonClientsManager(new WorkerDaemonStarter(workerFactory, loggingManager, classPathRegistry, parametersFileStore), listenerManager, loggingManager, memoryManager, memoryInfo);
+        }
+
+        WorkParametersFileStore createWorkParametersFileStore(WorkerDirectoryProvider workerDirectoryProvider, ActionExecutionSpecFactory actionExecutionSpecFactory) {
+            return new WorkParametersFileStore(WorkParametersFileStore.isEnabled(), workerDirectoryProvider, actionExecutionSpecFactory);
         }
 
         ClassLoaderStructureProvider createClassLoaderStructureProvider(ClassLoaderRegistry classLoaderRegistry) {
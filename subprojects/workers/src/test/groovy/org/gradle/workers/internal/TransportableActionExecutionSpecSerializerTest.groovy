@@ -68,6 +68,24 @@ class TransportableActionExecutionSpecSerializerTest extends Specification {
         decodedSpec.internalServicesRequired
     }
 
+    def "can serialize and deserialize a spec with a parameters file"() {
+        def spec = new TransportableActionExecutionSpec(Runnable.class.name, null, new File("/foo/parameters"), flatClassLoaderStructure(), new File("/foo"), usesInternalServices)
+
+        when:
+        serializer.write(encoder, spec)
+        encoder.flush()
+
+        and:
+        def decoder = new KryoBackedDecoder(new ByteArrayInputStream(outputStream.toByteArray()))
+        def decodedSpec = serializer.read(decoder)
+
+        then:
+        decodedSpec.implementationClassName == spec.implementationClassName
+        decodedSpec.serializedParameters == null
+        decodedSpec.serializedParametersFile.canonicalPath == spec.serializedParametersFile.canonicalPath
+        decodedSpec.baseDir.canonicalPath == spec.baseDir.canonicalPath
+    }
+
     def filteringClassloaderSpec() {
         def classNames = [ 'allowed.Class1', 'allowed.Class2' ]
         def disallowedClassNames = [ 'disallowed.Class1', 'disallowed.Class2' ]
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.workers.internal
+
+import org.gradle.process.internal.worker.child.WorkerDirectoryProvider
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.workers.WorkAction
+import org.gradle.workers.WorkParameters
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class WorkParametersFileStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+    def workerDir = temporaryFolder.createDir("workers")
+    def parametersDir = workerDir.file("parameters")
+    def projectDir = temporaryFolder.createDir("project")
+    def workerDirectoryProvider = Stub(WorkerDirectoryProvider) {
+        getWorkingDirectory() >> workerDir
+    }
+    def inlineSpec = Mock(TransportableActionExecutionSpec)
+    def writes = 0
+    def actionExecutionSpecFactory = Stub(ActionExecutionSpecFactory) {
+        newTransportableSpec(_) >> inlineSpec
+        writeSerializedParameters(_, _) >> { IsolatedParametersActionExecutionSpec spec, OutputStream outputStream ->
+            writes++
+            outputStream.write(parameters(spec.displayName))
+        }
+    }
+    def store = new WorkParametersFileStore(true, workerDirectoryProvider, actionExecutionSpecFactory)
+
+    def "keeps small parameters inline"() {
+        when:
+        def stored = store.store(spec("small"))
+
+        then:
+        stored.serializedParameters == parameters("small")
+        stored.serializedParametersFile == null
+        stored.implementationClassName == TestWorkAction.name
+        !parametersDir.exists()
+        writes == 1
+    }
+
+    def "keeps parameters inline when disabled"() {
+        expect:
+        new WorkParametersFileStore(false, workerDirectoryProvider, actionExecutionSpecFactory).store(spec("1")).is(inlineSpec)
+        !parametersDir.exists()
+    }
+
+    def "writes large parameters to a file which can be read"() {
+        when:
+        def stored = store.store(spec("1"))
+
+        then:
+        stored.serializedParameters == null
+        stored.serializedParametersFile.file
+        stored.serializedParametersFile.parentFile == parametersDir
+        stored.implementationClassName == TestWorkAction.name
+        WorkParametersFileStore.open(stored.serializedParametersFile).bytes == parameters("1")
+        parametersDir.list() as List == [stored.serializedParametersFile.name]
+    }
+
+    def "shares file between specs with the same parameters"() {
+        when:
+        def stored1 = store.store(spec("1"))
+        def stored2 = store.store(spec("1"))
+        def stored3 = store.store(spec("2"))
+
+        then:
+        stored1.serializedParametersFile == stored2.serializedParametersFile
+        stored1.serializedParametersFile != stored3.serializedParametersFile
+        // Once to hash the parameters, and once to write the file for each distinct parameters
+        writes == 5
+    }
+
+    def "reuses file written by another build"() {
+        def stored1 = store.store(spec("1"))
+        def file = stored1.serializedParametersFile
+        def lastUsed = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)
+        file.lastModified = lastUsed
+        writes = 0
+
+        when:
+        def stored2 = new WorkParametersFileStore(true, workerDirectoryProvider, actionExecutionSpecFactory).store(spec("1"))
+
+        then:
+        stored2.serializedParametersFile == file
+        writes == 1
+        file.lastModified() > lastUsed
+        WorkParametersFileStore.open(file).bytes == parameters("1")
+    }
+
+    def "deletes files which have not been used recently on first use"() {
+        def unusedFile = parametersDir.createFile("unused")
+        def unusedBuildDir = parametersDir.createDir("build1234")
+        unusedBuildDir.createFile("parameters.bin")
+        def recentFile = parametersDir.createFile("recent")
+        [unusedFile, unusedBuildDir].each { it.lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(WorkParametersFileStore.MAX_UNUSED_DAYS + 1) }
+
+        when:
+        store.store(spec("1"))
+
+        then:
+        !unusedFile.exists()
+        !unusedBuildDir.exists()
+        recentFile.exists()
+    }
+
+    def "keeps files used by the build when stopped"() {
+        def stored = store.store(spec("1"))
+        def file = stored.serializedParametersFile
+        file.lastModified = 0
+
+        when:
+        store.stop()
+
+        then:
+        file.exists()
+
+        when:
+        store.store(spec("2"))
+
+        then:
+        !file.exists()
+    }
+
+    def spec(String name) {
+        return new IsolatedParametersActionExecutionSpec(TestWorkAction, name, "impl", null, new FlatClassLoaderStructure(null), projectDir, false)
+    }
+
+    static byte[] parameters(String name) {
+        if (name == "small") {
+            return new byte[WorkParametersFileStore.MIN_SIZE - 1]
+        }
+        def bytes = new byte[WorkParametersFileStore.MIN_SIZE * 2]
+        new Random(name as int).nextBytes(bytes)
+        return bytes
+    }
+
+    static abstract class TestWorkAction implements WorkAction<WorkParameters.None> {
+        @Override
+        void execute() {}
+    }
+}
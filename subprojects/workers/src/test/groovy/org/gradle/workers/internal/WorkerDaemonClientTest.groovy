@@ -18,6 +18,7 @@ package org.gradle.workers.internal
 
 import org.gradle.api.logging.LogLevel
 import org.gradle.process.internal.worker.MultiRequestClient
+import org.gradle.process.internal.worker.child.WorkerDirectoryProvider
 import org.gradle.workers.WorkAction
 import org.gradle.workers.WorkParameters
 import spock.lang.Specification
@@ -58,7 +59,7 @@ class WorkerDaemonClientTest extends Specification {
             newTransportableSpec(_) >> { Mock(TransportableActionExecutionSpec) }
         }
         def workerProcess = workerDaemonProcess.start()
-        return new WorkerDaemonClient(daemonForkOptions, workerDaemonProcess, workerProcess, LogLevel.INFO, actionExecutionSpecFactory)
+        return new WorkerDaemonClient(daemonForkOptions, workerDaemonProcess, workerProcess, LogLevel.INFO, new WorkParametersFileStore(false, Stub(WorkerDirectoryProvider), actionExecutionSpecFactory))
     }
 
     def spec() {